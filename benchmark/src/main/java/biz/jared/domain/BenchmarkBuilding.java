@@ -0,0 +1,116 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.simulation.WallClock;
+import biz.jared.strategy.DispatchStrategy;
+import biz.jared.strategy.IndexedDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import biz.jared.traffic.OriginDestinationMatrix;
+import biz.jared.traffic.TrafficPattern;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 压测用的楼宇：楼层、电梯、不起线程的调度器
+ * 每个电梯都随机停在某层，并已经朝另一层的任务出发，这样电梯的运行状态上行/下行都有
+ * 分配策略用电梯位置索引时，电梯在出发前加入索引
+ *
+ * @author jared
+ */
+public class BenchmarkBuilding {
+    private final List<Floor> floorList;
+    private final List<Elevator> elevatorList;
+    private final Random random;
+    private final SimulationContext context;
+
+    public BenchmarkBuilding(int floorNum, int elevatorNum, DispatchStrategy dispatchStrategy, long seed) {
+        random = new Random(seed);
+        context = new SimulationContext(new SimulationConfig(floorNum, elevatorNum, 2, 0, 10), new WallClock());
+        floorList = new Building(floorNum).getFloorList();
+        elevatorList = new ArrayList<>(elevatorNum);
+        for (int i = 0; i < elevatorNum; i++) {
+            elevatorList.add(new Elevator(i, randomFloor(), new SameDirectionNearestFirstPriorityStrategy(floorNum),
+                    context));
+        }
+        if (dispatchStrategy instanceof IndexedDispatchStrategy) {
+            ElevatorIndex index = ((IndexedDispatchStrategy) dispatchStrategy).getIndex();
+            elevatorList.forEach(elevator -> elevator.setIndex(index));
+        }
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList, dispatchStrategy);
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+        floorList.forEach(floor -> floor.setDispatcher(dispatcher));
+        //让电梯动起来
+        for (Elevator elevator : elevatorList) {
+            Floor target;
+            do {
+                target = randomFloor();
+            } while (target.equals(elevator.getCurrFloor()));
+            elevator.receive(Task.generate(target, randomDirection()));
+            elevator.step();
+        }
+    }
+
+    /**
+     * 每部电梯再排上 num 个要停的站：随机楼层，厅外上下行呼叫和车内乘客的目标楼层都有
+     */
+    public void commitStops(int num) {
+        Direction[] directions = Direction.values();
+        for (Elevator elevator : elevatorList) {
+            for (int i = 0; i < num; i++) {
+                elevator.receive(Task.generate(randomFloor(), directions[random.nextInt(directions.length)]));
+            }
+        }
+    }
+
+    /**
+     * @param num 任务数
+     * @return 随机楼层、随机上下方向的任务
+     */
+    public Task[] randomTasks(int num) {
+        Task[] tasks = new Task[num];
+        for (int i = 0; i < num; i++) {
+            tasks[i] = Task.generate(randomFloor(), randomDirection());
+        }
+        return tasks;
+    }
+
+    /**
+     * @param num 任务数
+     * @return 按交通模式的起止楼层矩阵抽样的出行，在出发楼层朝目标楼层方向的任务
+     */
+    public Task[] patternTasks(TrafficPattern pattern, int num) {
+        OriginDestinationMatrix matrix = pattern.matrix(floorList.size());
+        Task[] tasks = new Task[num];
+        for (int i = 0; i < num; i++) {
+            int trip = matrix.sample(random);
+            Floor srcFloor = floorList.get(matrix.srcFloorNo(trip) - 1);
+            Floor targetFloor = floorList.get(matrix.targetFloorNo(trip) - 1);
+            tasks[i] = Task.generate(srcFloor, srcFloor.locate(targetFloor).opposite());
+        }
+        return tasks;
+    }
+
+    public Floor randomFloor() {
+        return floorList.get(random.nextInt(floorList.size()));
+    }
+
+    private Direction randomDirection() {
+        return random.nextBoolean() ? Direction.UP : Direction.DOWN;
+    }
+
+    public List<Floor> getFloorList() {
+        return floorList;
+    }
+
+    public List<Elevator> getElevatorList() {
+        return elevatorList;
+    }
+
+    public SimulationContext getContext() {
+        return context;
+    }
+}
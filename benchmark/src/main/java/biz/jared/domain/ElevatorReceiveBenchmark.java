@@ -0,0 +1,52 @@
+package biz.jared.domain;
+
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 电梯接收一个任务（Elevator.receive，包括刷新队列里所有任务的优先级）的耗时
+ * 每次接收后再把任务移出队列，保持队列深度不变
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class ElevatorReceiveBenchmark {
+    private static final int TASK_NUM = 1024;
+
+    @Param({"1", "16", "128", "1024"})
+    private int queueDepth;
+
+    private Elevator elevator;
+    private Task[] tasks;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        //每层一个向上的任务垫在队列里，新来的都是向下的任务，不会和队列里的任务重复
+        BenchmarkBuilding building = new BenchmarkBuilding(Math.max(30, queueDepth + 1), 1,
+                new PriorityFirstDispatchStrategy(), 42);
+        elevator = building.getElevatorList().get(0);
+        for (int i = 0; i < queueDepth; i++) {
+            elevator.receive(Task.generate(building.getFloorList().get(i), Direction.UP));
+        }
+        tasks = new Task[TASK_NUM];
+        for (int i = 0; i < TASK_NUM; i++) {
+            tasks[i] = Task.generate(building.randomFloor(), Direction.DOWN);
+        }
+    }
+
+    @Benchmark
+    public void receive() {
+        Task task = tasks[index++ & (TASK_NUM - 1)];
+        elevator.receive(task);
+        elevator.getTaskQueue().remove(task);
+    }
+}
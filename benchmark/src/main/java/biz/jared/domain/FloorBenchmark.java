@@ -0,0 +1,46 @@
+package biz.jared.domain;
+
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 楼层带走一个等候的人再来一个人（Floor.reduce + Floor.add）的耗时
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class FloorBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int waitingNum;
+
+    private Floor floor;
+
+    @Setup
+    public void setUp() {
+        BenchmarkBuilding building = new BenchmarkBuilding(30, 2, new PriorityFirstDispatchStrategy(), 42);
+        floor = building.getFloorList().get(0);
+        Floor targetFloor = building.getFloorList().get(29);
+        for (int i = 0; i < waitingNum; i++) {
+            floor.add(new User("lucy" + i, targetFloor), Direction.UP);
+        }
+    }
+
+    @Benchmark
+    public List<User> reduceAndAdd() {
+        List<User> reduceSet = floor.reduce(Direction.UP, 1);
+        for (User user : reduceSet) {
+            floor.add(user, Direction.UP);
+        }
+        return reduceSet;
+    }
+}
@@ -0,0 +1,74 @@
+package biz.jared.domain;
+
+import biz.jared.simulation.ThreadFactories;
+import biz.jared.strategy.DispatchStrategy;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 大楼宇群里一批任务从提交给dispatcher到全部分配完的耗时
+ * shardNum=1 是原来的单线程 Dispatcher，其它是 ShardedDispatcher
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class ShardedDispatcherBenchmark {
+    private static final int TASK_NUM = 1024;
+
+    @Param({"1", "4", "8"})
+    private int shardNum;
+    @Param({"200"})
+    private int elevatorNum;
+
+    private Dispatcher dispatcher;
+    private Task[] tasks;
+    /**
+     * 已经分配出去的任务数
+     */
+    private final AtomicInteger dispatched = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        PriorityFirstDispatchStrategy priorityFirst = new PriorityFirstDispatchStrategy();
+        DispatchStrategy countingStrategy = (elevatorList, task) -> {
+            Elevator elevator = priorityFirst.select(elevatorList, task);
+            if (elevator != null) {
+                dispatched.incrementAndGet();
+            }
+            return elevator;
+        };
+        BenchmarkBuilding building = new BenchmarkBuilding(120, elevatorNum, countingStrategy, 42);
+        dispatcher = shardNum == 1
+                ? new Dispatcher(building.getContext(), building.getElevatorList(), countingStrategy,
+                ThreadFactories.platform("benchmark-dispatcher-thread-"))
+                : new ShardedDispatcher(building.getContext(), building.getElevatorList(), countingStrategy, shardNum,
+                ThreadFactories.platform("benchmark-dispatcher-thread-"));
+        tasks = building.randomTasks(TASK_NUM);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.onNoElevatorLeft();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASK_NUM)
+    public int dispatchBatch() {
+        int target = dispatched.get() + TASK_NUM;
+        for (Task task : tasks) {
+            dispatcher.dispatch(task);
+        }
+        while (dispatched.get() < target) {
+            Thread.yield();
+        }
+        return target;
+    }
+}
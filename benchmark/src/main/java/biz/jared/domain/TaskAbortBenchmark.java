@@ -0,0 +1,78 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.simulation.WallClock;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 电梯处理一个不能继续执行的任务的耗时：被取消的任务、走到一半被抢占的任务
+ * 这两种情况在高负载下很常见，处理路径上不应该有额外的开销
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class TaskAbortBenchmark {
+    private static final int TASK_NUM = 1024;
+
+    private List<Floor> floorList;
+    private Elevator elevator;
+    private Task[] cancelledTasks;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        SimulationContext context = new SimulationContext(new SimulationConfig(10, 1, 2, 0, 10), new WallClock());
+        floorList = new Building(10).getFloorList();
+        elevator = new Elevator(0, floorList.get(0), new SameDirectionNearestFirstPriorityStrategy(10), context);
+        //被抢占的任务redispatch时直接丢掉，不让待分配的任务越积越多
+        Dispatcher dispatcher = new Dispatcher(context, Collections.singletonList(elevator),
+                new PriorityFirstDispatchStrategy(), (ExecutorService) null) {
+            @Override
+            void dispatch(Task task) {
+            }
+        };
+        elevator.setDispatcher(dispatcher);
+        cancelledTasks = new Task[TASK_NUM];
+        for (int i = 0; i < TASK_NUM; i++) {
+            cancelledTasks[i] = Task.generate(floorList.get(1 + i % 9), Direction.UP);
+            cancelledTasks[i].cancel();
+        }
+    }
+
+    /**
+     * 取到一个已经被取消的任务并放弃它
+     */
+    @Benchmark
+    public boolean cancelled() {
+        elevator.receive(cancelledTasks[index++ & (TASK_NUM - 1)]);
+        return elevator.step();
+    }
+
+    /**
+     * 出发走了一层后任务被抢占，下一步发现后放弃它
+     */
+    @Benchmark
+    public boolean grabbed() {
+        //电梯在5、6楼之间来回，保证每次都要走一层才能到任务楼层
+        Floor target = elevator.getCurrFloor().getFloorNo() < 6 ? floorList.get(9) : floorList.get(0);
+        Task task = Task.generate(target, Direction.UP);
+        elevator.receive(task);
+        elevator.step();
+        task.yield();
+        return elevator.step();
+    }
+}
@@ -0,0 +1,62 @@
+package biz.jared.event;
+
+import biz.jared.domain.Building;
+import biz.jared.domain.User;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 电梯线程里记一次上人：原来在电梯线程里把整车乘客拼成文本 vs 往事件缓冲里写一条定长记录
+ * 文本只算拼字符串，不算写文件；事件由后台渲染线程读走，不做处理
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class EventLogBenchmark {
+    @Param({"2", "12"})
+    private int load;
+
+    private final Set<User> currLoad = new HashSet<>();
+    private EventLog eventLog;
+    private int floorNo;
+
+    @Setup
+    public void setUp() {
+        Building building = new Building(30);
+        for (int i = 0; i < load; i++) {
+            currLoad.add(new User("lucy" + i, building.getFloor(1 + i)));
+        }
+        eventLog = EventLog.start(EnumSet.allOf(EventType.class), EventLog.DEFAULT_CAPACITY,
+                (time, type, elevatorId, floorNo, arg, value) -> {
+                });
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        eventLog.close();
+    }
+
+    @Benchmark
+    public String text() {
+        floorNo = (floorNo + 1) & 31;
+        return MessageFormatter.arrayFormat("{} loading {} users: {}",
+                new Object[]{"Elevator{id=1, currFloor=" + floorNo + ", currLoad=" + currLoad + '}',
+                        currLoad.size(), currLoad}).getMessage();
+    }
+
+    @Benchmark
+    public void event() {
+        floorNo = (floorNo + 1) & 31;
+        eventLog.record(floorNo, EventType.BOARD, 1, floorNo, currLoad.size(), currLoad.size());
+    }
+}
@@ -0,0 +1,43 @@
+package biz.jared.metrics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多个电梯线程同时记录乘客时长：原来的单个AtomicLong累加 vs 直方图记录
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class LatencyRecordBenchmark {
+    private final AtomicLong total = new AtomicLong();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @State(Scope.Thread)
+    public static class Value {
+        private long value;
+
+        long next() {
+            value = (value + 37) & 1023;
+            return value;
+        }
+    }
+
+    @Benchmark
+    public long atomicSum(Value value) {
+        return total.addAndGet(value.next());
+    }
+
+    @Benchmark
+    public void histogram(Value value) {
+        histogram.record(value.next());
+    }
+}
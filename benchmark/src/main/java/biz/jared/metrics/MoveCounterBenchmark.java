@@ -0,0 +1,37 @@
+package biz.jared.metrics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多个电梯线程每走一层记一次里程：所有电梯共用一个AtomicLong vs 每个电梯写自己的 ElevatorMetrics
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class MoveCounterBenchmark {
+    private final AtomicLong totalDistance = new AtomicLong();
+
+    @State(Scope.Thread)
+    public static class Car {
+        private final ElevatorMetrics metrics = new ElevatorMetrics(0);
+    }
+
+    @Benchmark
+    public long sharedAtomic() {
+        return totalDistance.incrementAndGet();
+    }
+
+    @Benchmark
+    public void perElevator(Car car) {
+        car.metrics.recordMove(1);
+    }
+}
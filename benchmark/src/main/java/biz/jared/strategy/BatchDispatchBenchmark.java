@@ -0,0 +1,54 @@
+package biz.jared.strategy;
+
+import biz.jared.domain.BenchmarkBuilding;
+import biz.jared.domain.Elevator;
+import biz.jared.domain.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一批任务的分配耗时：匈牙利算法整批分配 vs 优先级优先逐个分配
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class BatchDispatchBenchmark {
+    @Param({"4", "16", "64"})
+    private int batchSize;
+    @Param({"16", "64"})
+    private int elevatorNum;
+
+    private final HungarianDispatchStrategy hungarian = new HungarianDispatchStrategy();
+    private final PriorityFirstDispatchStrategy priorityFirst = new PriorityFirstDispatchStrategy();
+    private List<Elevator> elevatorList;
+    private List<Task> taskList;
+
+    @Setup
+    public void setUp() {
+        BenchmarkBuilding building = new BenchmarkBuilding(120, elevatorNum, priorityFirst, 42);
+        elevatorList = building.getElevatorList();
+        taskList = Arrays.asList(building.randomTasks(batchSize));
+    }
+
+    @Benchmark
+    public Elevator[] hungarian() {
+        return hungarian.assign(elevatorList, taskList);
+    }
+
+    @Benchmark
+    public Elevator[] greedy() {
+        Elevator[] result = new Elevator[taskList.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = priorityFirst.select(elevatorList, taskList.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,64 @@
+package biz.jared.strategy;
+
+import biz.jared.domain.BenchmarkBuilding;
+import biz.jared.domain.Elevator;
+import biz.jared.domain.ElevatorIndex;
+import biz.jared.domain.Task;
+import biz.jared.traffic.TrafficPattern;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次任务分配（DispatchStrategy.select）的耗时
+ * 任务按交通模式产生：高峰时呼叫集中在大堂或者大堂方向，和均匀随机的任务压力不一样
+ * IndexedDispatch 和 PriorityFirstDispatch 选出的电梯相同，对比的是按位置索引找候选和逐个比较的开销
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class DispatchStrategyBenchmark {
+    private static final int TASK_NUM = 1024;
+
+    @Param({"RandomDispatch", "PriorityFirstDispatch", "IndexedDispatch"})
+    private String dispatchStrategy;
+    @Param({"30", "120"})
+    private int floorNum;
+    @Param({"2", "16", "64", "256"})
+    private int elevatorNum;
+    @Param({"UNIFORM", "UP_PEAK", "DOWN_PEAK"})
+    private TrafficPattern pattern;
+
+    private DispatchStrategy strategy;
+    private BenchmarkBuilding building;
+    private Task[] tasks;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        switch (dispatchStrategy) {
+            case "RandomDispatch":
+                strategy = new RandomDispatchStrategy(new Random(42));
+                break;
+            case "IndexedDispatch":
+                strategy = new IndexedDispatchStrategy(new ElevatorIndex(floorNum));
+                break;
+            default:
+                strategy = new PriorityFirstDispatchStrategy();
+                break;
+        }
+        building = new BenchmarkBuilding(floorNum, elevatorNum, strategy, 42);
+        tasks = building.patternTasks(pattern, TASK_NUM);
+    }
+
+    @Benchmark
+    public Elevator select() {
+        return strategy.select(building.getElevatorList(), tasks[index++ & (TASK_NUM - 1)]);
+    }
+}
@@ -0,0 +1,60 @@
+package biz.jared.strategy;
+
+import biz.jared.SimulationConfig;
+import biz.jared.domain.BenchmarkBuilding;
+import biz.jared.domain.Elevator;
+import biz.jared.domain.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按预计到达时间分配一次任务的耗时：每部电梯模拟加新任务前后的行程，电梯数、排着的站数越多越慢
+ * parallel=true 时各电梯的行程模拟在 ForkJoinPool.commonPool() 上并行算，和串行对比；priorityFirst 是按楼层距离打分的基线
+ * 压测期间电梯不动，不加新任务的那遍模拟都命中缓存，相当于两次状态变化之间的连续分配
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class EtaDispatchBenchmark {
+    private static final int TASK_NUM = 1024;
+
+    @Param({"16", "64"})
+    private int elevatorNum;
+    @Param({"4", "16"})
+    private int stopNum;
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private final PriorityFirstDispatchStrategy priorityFirst = new PriorityFirstDispatchStrategy();
+    private EtaDispatchStrategy eta;
+    private List<Elevator> elevatorList;
+    private Task[] tasks;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        BenchmarkBuilding building = new BenchmarkBuilding(120, elevatorNum, priorityFirst, 42);
+        building.commitStops(stopNum);
+        elevatorList = building.getElevatorList();
+        tasks = building.randomTasks(TASK_NUM);
+        eta = new EtaDispatchStrategy(new SimulationConfig(120, elevatorNum, 2, 0, 10, 40),
+                parallel ? 1 : Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public Elevator eta() {
+        return eta.select(elevatorList, tasks[index++ & (TASK_NUM - 1)]);
+    }
+
+    @Benchmark
+    public Elevator priorityFirst() {
+        return priorityFirst.select(elevatorList, tasks[index++ & (TASK_NUM - 1)]);
+    }
+}
@@ -0,0 +1,47 @@
+package biz.jared.strategy;
+
+import biz.jared.domain.BenchmarkBuilding;
+import biz.jared.domain.Elevator;
+import biz.jared.domain.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次任务优先级计算（SameDirectionNearestFirstPriorityStrategy.calcPriority）的耗时
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class PriorityCalculationBenchmark {
+    private static final int TASK_NUM = 1024;
+    private static final int ELEVATOR_NUM = 16;
+
+    @Param({"30", "120"})
+    private int floorNum;
+
+    private PriorityCalculationStrategy strategy;
+    private Elevator[] elevators;
+    private Task[] tasks;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        strategy = new SameDirectionNearestFirstPriorityStrategy(floorNum);
+        BenchmarkBuilding building = new BenchmarkBuilding(floorNum, ELEVATOR_NUM,
+                new PriorityFirstDispatchStrategy(), 42);
+        elevators = building.getElevatorList().toArray(new Elevator[0]);
+        tasks = building.randomTasks(TASK_NUM);
+    }
+
+    @Benchmark
+    public int calcPriority() {
+        int i = index++;
+        return strategy.calcPriority(elevators[i & (ELEVATOR_NUM - 1)], tasks[i & (TASK_NUM - 1)]);
+    }
+}
@@ -0,0 +1,82 @@
+package biz.jared.trace;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 顺序读一遍乘客到达记录，每条记录的耗时：内存映射的二进制记录 vs 逐行解析CSV
+ *
+ * @author jared
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class ArrivalTraceReadBenchmark {
+    private static final int RECORD_NUM = 1 << 20;
+
+    private Path csv;
+    private Path trace;
+
+    @Setup
+    public void setUp() throws IOException {
+        csv = Files.createTempFile("arrivals", ".csv");
+        trace = Files.createTempFile("arrivals", ".trace");
+        Random random = new Random(42);
+        long time = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < RECORD_NUM; i++) {
+                time += random.nextInt(100);
+                int src = 1 + random.nextInt(60);
+                int target = src % 60 + 1;
+                writer.write(time + "," + src + "," + target + "," + (1 + random.nextInt(3)));
+                writer.newLine();
+            }
+        }
+        TraceConverter.convert(csv, trace);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(csv);
+        Files.delete(trace);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_NUM)
+    public long mapped() throws IOException {
+        long sum = 0;
+        try (ArrivalTraceReader reader = new ArrivalTraceReader(trace)) {
+            while (reader.hasNext()) {
+                reader.next();
+                sum += reader.getTime() + reader.getSrcFloorNo() + reader.getTargetFloorNo() + reader.getGroupSize();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_NUM)
+    public long csv() throws IOException {
+        long sum = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                sum += Long.parseLong(fields[0]) + Integer.parseInt(fields[1]) + Integer.parseInt(fields[2])
+                        + Integer.parseInt(fields[3]);
+            }
+        }
+        return sum;
+    }
+}
@@ -1,19 +1,44 @@
 package biz.jared;
 
+import biz.jared.domain.Bank;
+import biz.jared.domain.BatchDispatcher;
+import biz.jared.domain.Building;
 import biz.jared.domain.Dispatcher;
 import biz.jared.domain.Elevator;
+import biz.jared.domain.ElevatorIndex;
 import biz.jared.domain.Floor;
+import biz.jared.domain.ShardedDispatcher;
+import biz.jared.domain.SteppedDispatcher;
+import biz.jared.domain.Topology;
 import biz.jared.domain.User;
+import biz.jared.event.EventLog;
+import biz.jared.event.EventType;
+import biz.jared.event.LoggingEventHandler;
+import biz.jared.journal.JournalWriter;
+import biz.jared.simulation.RandomUserGenerator;
+import biz.jared.simulation.SimulationClock;
+import biz.jared.simulation.SteppedSimulation;
+import biz.jared.simulation.ThreadFactories;
+import biz.jared.simulation.TraceUserGenerator;
+import biz.jared.simulation.UserGenerator;
+import biz.jared.simulation.VirtualClock;
+import biz.jared.simulation.WallClock;
 import biz.jared.strategy.*;
+import biz.jared.trace.ArrivalTraceReader;
+import biz.jared.traffic.RateProfile;
+import biz.jared.traffic.TrafficGenerator;
+import biz.jared.traffic.TrafficPattern;
+import com.google.common.base.Ticker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.CountDownLatch;
-
-import static biz.jared.Env.*;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * App Start
@@ -26,19 +51,62 @@ import static biz.jared.Env.*;
 public class App {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(App.class);
+    /**
+     * 指定配置文件路径的系统属性，例如 -Dconfig=simulation.properties，不指定时用默认配置
+     */
+    static final String CONFIG_PROPERTY = "config";
+    /**
+     * 指定乘客到达记录路径的系统属性，例如 -Dtrace=arrivals.trace，指定时按记录回放用户，不再随机产生
+     */
+    static final String TRACE_PROPERTY = "trace";
+    /**
+     * 指定交通模式的系统属性，格式 pattern[:peakRatePerMinute[:minutes]]，例如 -Dtraffic=UP_PEAK:120:10
+     * 指定时按该模式的泊松到达流产生用户，到达率先升后降，默认高峰每分钟60人、持续5分钟
+     */
+    static final String TRAFFIC_PROPERTY = "traffic";
+    /**
+     * 指定要记录哪些电梯事件的系统属性，逗号分隔，例如 -Devents=STOP,BOARD,ALIGHT，NONE 时都不记录，不指定时全部记录
+     * 事件在后台线程里渲染成文本写到运行日志，见 EventType
+     */
+    static final String EVENTS_PROPERTY = "events";
+    /**
+     * 指定事件日志目录的系统属性，例如 -Djournal=run1，指定时事件写进二进制的事件日志而不是文本，只跑一轮就退出
+     * 跑完用 JournalTool 重新算指标、看单部电梯的时间线、对比两次运行
+     */
+    static final String JOURNAL_PROPERTY = "journal";
 
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws InterruptedException, IOException {
         printLogo();
+        String engineStr = args.length > 3 ? args[3] : "";
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+        int shardNum = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        SimulationConfig config = SimulationConfig.load(System.getProperty(CONFIG_PROPERTY));
+        LOGGER.info("{}", config);
+        String journal = System.getProperty(JOURNAL_PROPERTY);
+        JournalWriter journalWriter = journal == null ? null : new JournalWriter(Paths.get(journal));
+        EventLog eventLog = EventLog.start(EventType.parse(System.getProperty(EVENTS_PROPERTY)),
+                EventLog.DEFAULT_CAPACITY, journalWriter != null ? journalWriter : new LoggingEventHandler());
         int epoch = 0;
-        while (true) {
-            LOGGER.info("===================================={}====================================", epoch++);
-            Env.LATCH = new CountDownLatch(ELEVATOR_NUM);
-            Env.TOTAL_ELEVATOR_MOVE_DISTANCE.set(0);
-            Env.TOTAL_USER_WAIT_TIME.set(0);
-            epoch(args[0], args[1]);
-            Env.LATCH.await();
-            Env.show();
-        }
+        do {
+            LOGGER.info("===================================={}====================================", epoch);
+            SimulationContext context;
+            if ("SingleThread".equals(engineStr)) {
+                LOGGER.info("seed {}", seed + epoch);
+                context = new SimulationContext(config, new VirtualClock(), eventLog);
+                steppedEpoch(context, args[0], args[1], seed + epoch);
+            } else {
+                context = new SimulationContext(config, selectClock(args.length > 2 ? args[2] : ""), eventLog);
+                epoch(context, args[0], args[1], "VirtualThread".equals(engineStr), shardNum);
+            }
+            context.await();
+            context.show(LOGGER);
+            epoch++;
+        } while (journalWriter == null);
+        eventLog.close();
+        journalWriter.close();
+        LOGGER.info("{} events written to {}", journalWriter.getRecordCount(), journal);
+        //多线程引擎下 dispatcher 等线程不会自己退出
+        System.exit(0);
     }
 
     private static void printLogo() {
@@ -50,152 +118,292 @@ public class App {
             + " \"#mm\"    \"mm  \"#mm\"    #    \"mm\"#    \"mm  \"#m#\"   #");
     }
 
-    private static void epoch(String dispatchStrategyStr, String priorityStrategyStr) throws InterruptedException {
+    /**
+     * 每个电梯一个线程跑一轮
+     *
+     * @param virtualThread 电梯、dispatcher、用户产生器是否都用虚拟线程
+     * @param shardNum      dispatcher的分片数，大于1时用多线程的 ShardedDispatcher
+     */
+    private static void epoch(SimulationContext context, String dispatchStrategyStr, String priorityStrategyStr,
+                              boolean virtualThread, int shardNum) {
+        SimulationConfig config = context.getConfig();
+        SimulationClock clock = context.getClock();
         //generate all floor
-        List<Floor> floorList = new ArrayList<>(FLOOR_NUM);
-        for (int i = 0; i < FLOOR_NUM; i++) {
-            Floor floor = new Floor(i + 1);
-            floorList.add(floor);
-            if (i > 0) {
-                floorList.get(i - 1).next(floor);
-            }
-        }
-
-        //make priority strategy
-        PriorityCalculationStrategy priorityStrategy = selectPriorityStrategy(priorityStrategyStr);
+        Building building = newBuilding(config);
+        List<Floor> floorList = building.getFloorList();
 
         //generate all elevator
-        List<Elevator> elevatorList = new ArrayList<>(ELEVATOR_NUM);
-        for (int i = 0; i < ELEVATOR_NUM; i++) {
-            elevatorList.add(new Elevator(i, floorList.get(0), priorityStrategy));
-        }
+        List<Elevator> elevatorList = generateElevatorList(context, building,
+                selectPriorityStrategy(priorityStrategyStr, config));
 
         //make dispatch strategy
-        DispatchStrategy dispatchStrategy = selectDispatchStrategy(dispatchStrategyStr);
+        DispatchStrategy dispatchStrategy = selectDispatchStrategy(dispatchStrategyStr, config, new Random());
+        prepare(building, elevatorList, dispatchStrategy);
 
         //generate dispatcher
-        Dispatcher dispatcher = new Dispatcher(elevatorList, dispatchStrategy);
+        ThreadFactory dispatcherThreadFactory = newThreadFactory("dispatcher-thread-", virtualThread);
+        Dispatcher dispatcher;
+        if (dispatchStrategy instanceof BatchDispatchStrategy) {
+            //批量分配策略攒一个时间单位的任务一起分配
+            dispatcher = new BatchDispatcher(context, elevatorList, (BatchDispatchStrategy) dispatchStrategy,
+                    config.getElapsedTime(), dispatcherThreadFactory);
+        } else if (shardNum > 1) {
+            dispatcher = new ShardedDispatcher(context, elevatorList, dispatchStrategy, shardNum,
+                    dispatcherThreadFactory);
+        } else {
+            dispatcher = new Dispatcher(context, elevatorList, dispatchStrategy, dispatcherThreadFactory);
+        }
 
         //elevator set dispatcher
         elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
 
         //floor set dispatcher
-        floorList.forEach(floor -> floor.setDispatcher(dispatcher));
+        building.setDispatcher(dispatcher);
 
-        //elevator run
-        elevatorList.forEach(elevator -> new Thread(elevator, "elevator-thread-" + elevator.getId()).start());
+        //main线程启动所有线程期间，时钟不能推进
+        clock.hold();
+        try {
+            //elevator run，先替电梯hold住时钟，电梯退出时自己release
+            ThreadFactory elevatorThreadFactory = newThreadFactory("elevator-thread-", virtualThread);
+            elevatorList.forEach(elevator -> {
+                clock.hold();
+                elevatorThreadFactory.newThread(elevator).start();
+            });
+
+            //simulation，同样先替用户产生线程hold住时钟
+            clock.hold();
+            newThreadFactory("user-generator-thread-", virtualThread).newThread(() -> {
+                try (UserGenerator userGenerator = newUserGenerator(context, floorList, new Random())) {
+                    //        simulation1u(context, floorList);
+                    //        simulationNu(context, floorList);
+                    simulate(context, userGenerator);
+                } catch (IOException e) {
+                    LOGGER.error("user generator error:", e);
+                } finally {
+                    context.finishArrivals();
+                    clock.release();
+                }
+            }).start();
+        } finally {
+            clock.release();
+        }
+    }
+
+    /**
+     * 分配策略需要楼宇、电梯配合的设置：目的层分配要按目标楼层呼叫，索引分配要把电梯加到位置索引里
+     */
+    private static void prepare(Building building, List<Elevator> elevatorList, DispatchStrategy dispatchStrategy) {
+        building.setDestinationDispatch(dispatchStrategy instanceof DestinationDispatchStrategy);
+        if (dispatchStrategy instanceof IndexedDispatchStrategy) {
+            ElevatorIndex index = ((IndexedDispatchStrategy) dispatchStrategy).getIndex();
+            elevatorList.forEach(elevator -> elevator.setIndex(index));
+        }
+    }
 
-        //simulation
-        //        simulation1u(floorList);
-        //        simulationNu(floorList);
-        randomSimulate(floorList);
+    private static ThreadFactory newThreadFactory(String prefix, boolean virtualThread) {
+        return virtualThread ? ThreadFactories.virtual(prefix) : ThreadFactories.platform(prefix);
+    }
 
+    /**
+     * 单线程确定性引擎跑一轮，同样的种子一定得到同样的结果
+     */
+    static void steppedEpoch(SimulationContext context, String dispatchStrategyStr, String priorityStrategyStr,
+                             long seed) throws IOException {
+        try (SteppedSimulation simulation = newSteppedSimulation(context, dispatchStrategyStr, priorityStrategyStr,
+                new Random(seed))) {
+            simulation.run();
+        }
     }
 
-    private static PriorityCalculationStrategy selectPriorityStrategy(String priorityStrategyStr) {
+    /**
+     * 搭好一轮单线程模拟：楼宇、电梯、分配策略、调度器、用户产生器，关闭模拟时关闭用户产生器
+     *
+     * @param random 分配策略、用户产生器用的随机数发生器
+     */
+    static SteppedSimulation newSteppedSimulation(SimulationContext context, String dispatchStrategyStr,
+                                                  String priorityStrategyStr, Random random) throws IOException {
+        SimulationConfig config = context.getConfig();
+        Building building = newBuilding(config);
+        List<Floor> floorList = building.getFloorList();
+        List<Elevator> elevatorList = generateElevatorList(context, building,
+                selectPriorityStrategy(priorityStrategyStr, config));
+        DispatchStrategy dispatchStrategy = selectDispatchStrategy(dispatchStrategyStr, config, random);
+        prepare(building, elevatorList, dispatchStrategy);
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList, dispatchStrategy);
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+        building.setDispatcher(dispatcher);
+        return new SteppedSimulation(context, elevatorList, dispatcher, newUserGenerator(context, floorList, random));
+    }
+
+    /**
+     * 指定了乘客到达记录时按记录回放，指定了交通模式时按模式产生，否则随机产生
+     */
+    private static UserGenerator newUserGenerator(SimulationContext context, List<Floor> floorList, Random random)
+            throws IOException {
+        String trace = System.getProperty(TRACE_PROPERTY);
+        if (trace != null) {
+            return new TraceUserGenerator(floorList, new ArrivalTraceReader(Paths.get(trace)),
+                    context.getClock().ticker());
+        }
+        String traffic = System.getProperty(TRAFFIC_PROPERTY);
+        if (traffic != null) {
+            String[] parts = traffic.split(":");
+            double peakRate = parts.length > 1 ? Double.parseDouble(parts[1]) : 60;
+            long duration = Env.TIME_UNIT.convert(parts.length > 2 ? Long.parseLong(parts[2]) : 5, TimeUnit.MINUTES);
+            return new TraceUserGenerator(floorList, new TrafficGenerator(TrafficPattern.valueOf(parts[0]),
+                    floorList.size(), RateProfile.peak(peakRate, duration), random), context.getClock().ticker());
+        }
+        return new RandomUserGenerator(floorList, context.getConfig().getUserNum(), random,
+                context.getClock().ticker());
+    }
+
+    /**
+     * 配置了梯群时是分区楼宇
+     */
+    private static Building newBuilding(SimulationConfig config) {
+        Building building = new Building(config.getFloorNum());
+        if (config.getBanks() != null) {
+            building.setTopology(Topology.parse(config.getBanks(), config.getFloorNum(), config.getElevatorNum()));
+        }
+        return building;
+    }
+
+    /**
+     * 电梯都从1层出发；分区楼宇里从所属梯群停的最低楼层出发
+     */
+    private static List<Elevator> generateElevatorList(SimulationContext context, Building building,
+                                                       PriorityCalculationStrategy priorityStrategy) {
+        int elevatorNum = context.getConfig().getElevatorNum();
+        Topology topology = building.getTopology();
+        List<Elevator> elevatorList = new ArrayList<>(elevatorNum);
+        for (int i = 0; i < elevatorNum; i++) {
+            if (topology == null) {
+                elevatorList.add(new Elevator(i, building.getFloor(1), priorityStrategy, context));
+            } else {
+                Bank bank = topology.bankOf(i);
+                Elevator elevator = new Elevator(i, building.getFloor(bank.getLowestFloor()), priorityStrategy,
+                        context);
+                elevator.setBank(bank);
+                elevatorList.add(elevator);
+            }
+        }
+        return elevatorList;
+    }
+
+    private static PriorityCalculationStrategy selectPriorityStrategy(String priorityStrategyStr,
+                                                                      SimulationConfig config) {
         PriorityCalculationStrategy priorityCalculationStrategy;
         switch (priorityStrategyStr) {
             case "SameDirectionNearestFirst":
-                priorityCalculationStrategy = new SameDirectionNearestFirstPriorityStrategy();
+                priorityCalculationStrategy = new SameDirectionNearestFirstPriorityStrategy(config.getFloorNum());
                 LOGGER.debug("priorityCalculationStrategy = SameDirectionNearestFirst");
                 break;
             default:
-                priorityCalculationStrategy = new SameDirectionNearestFirstPriorityStrategy();
+                priorityCalculationStrategy = new SameDirectionNearestFirstPriorityStrategy(config.getFloorNum());
                 LOGGER.debug("priorityCalculationStrategy = SameDirectionNearestFirst");
                 break;
         }
         return priorityCalculationStrategy;
     }
 
-    private static DispatchStrategy selectDispatchStrategy(String dispatchStrategyStr) {
+    private static SimulationClock selectClock(String clockStr) {
+        SimulationClock clock;
+        switch (clockStr) {
+            case "VirtualClock":
+                clock = new VirtualClock();
+                LOGGER.debug("clock = VirtualClock");
+                break;
+            case "WallClock":
+            default:
+                clock = new WallClock();
+                LOGGER.debug("clock = WallClock");
+                break;
+        }
+        return clock;
+    }
+
+    private static DispatchStrategy selectDispatchStrategy(String dispatchStrategyStr, SimulationConfig config,
+                                                           Random random) {
         DispatchStrategy dispatchStrategy;
         switch (dispatchStrategyStr) {
             case "RandomDispatch":
-                dispatchStrategy = new RandomDispatchStrategy();
+                dispatchStrategy = new RandomDispatchStrategy(random);
                 LOGGER.debug("dispatchStrategy = RandomDispatch");
                 break;
             case "PriorityFirstDispatch":
                 dispatchStrategy = new PriorityFirstDispatchStrategy();
                 LOGGER.debug("dispatchStrategy = PriorityFirstDispatch");
                 break;
+            case "HungarianBatchDispatch":
+                dispatchStrategy = new HungarianDispatchStrategy();
+                LOGGER.debug("dispatchStrategy = HungarianBatchDispatch");
+                break;
+            case "DestinationDispatch":
+                dispatchStrategy = new DestinationDispatchStrategy(config.getStopCostFloors());
+                LOGGER.debug("dispatchStrategy = DestinationDispatch");
+                break;
+            case "EtaDispatch":
+                dispatchStrategy = new EtaDispatchStrategy(config);
+                LOGGER.debug("dispatchStrategy = EtaDispatch");
+                break;
+            case "IndexedDispatch":
+                dispatchStrategy = new IndexedDispatchStrategy(new ElevatorIndex(config.getFloorNum()));
+                LOGGER.debug("dispatchStrategy = IndexedDispatch");
+                break;
             default:
-                dispatchStrategy = new RandomDispatchStrategy();
+                dispatchStrategy = new RandomDispatchStrategy(random);
                 LOGGER.debug("dispatchStrategy = RandomDispatch");
                 break;
         }
         return dispatchStrategy;
     }
 
-    private static void randomSimulate(List<Floor> floorList) throws InterruptedException {
+    private static void simulate(SimulationContext context, UserGenerator userGenerator) {
         //generate all user
-        Random random = new Random();
-        for (int i = 0; i < USER_NUM; i++) {
-            Env.elapsed();
-            //站在什么楼层
-            int randomSrcFloorNo = random.nextInt(FLOOR_NUM);
-            Floor srcFloor = floorList.get(randomSrcFloorNo);
-            //想去什么楼层
-            Floor targetFloor = floorList.get(differentFloorNo(randomSrcFloorNo));
-            User user = new User("lucy" + i, targetFloor);
-            LOGGER.debug("{} come to src_floorNo={}", user, srcFloor.getFloorNo());
-            //srcFloor.locate(targetFloor).opposite()，结果Direction一定是对的，但是这里也支持传错的，也符合实际
-            srcFloor.add(user, srcFloor.locate(targetFloor).opposite());
-            //srcFloor.add(user, Direction.DOWN);
+        while (userGenerator.hasNext()) {
+            context.elapsed();
+            userGenerator.next();
         }
     }
 
-    private static void simulation1u(List<Floor> floorList) throws InterruptedException {
+    private static void simulation1u(SimulationContext context, List<Floor> floorList) throws InterruptedException {
         Floor srcFloor = floorList.get(3);
         //想去什么楼层
         Floor targetFloor = floorList.get(2);
-        User user = new User("lucy0", targetFloor);
+        User user = new User("lucy0", targetFloor, context.getClock().ticker());
 
         LOGGER.debug("{} come to src_floorNo={}", user, srcFloor.getFloorNo());
         srcFloor.add(user, srcFloor.locate(targetFloor).opposite());
     }
 
-    private static void simulationNu(List<Floor> floorList) throws InterruptedException {
+    private static void simulationNu(SimulationContext context, List<Floor> floorList) throws InterruptedException {
+        Ticker ticker = context.getClock().ticker();
         //user 1
         Floor srcFloor = floorList.get(3);
         //想去什么楼层
         Floor targetFloor = floorList.get(0);
-        User user = new User("lucy0", targetFloor);
+        User user = new User("lucy0", targetFloor, ticker);
         LOGGER.debug("{} come to src_floorNo={}", user, srcFloor.getFloorNo());
         srcFloor.add(user, srcFloor.locate(targetFloor).opposite());
 
-        Env.elapsed();
+        context.elapsed();
 
         //user 2
         Floor srcFloor2 = floorList.get(2);
         //想去什么楼层
         Floor targetFloor2 = floorList.get(4);
-        user = new User("lucy1", targetFloor2);
+        user = new User("lucy1", targetFloor2, ticker);
         LOGGER.debug("{} come to src_floorNo={}", user, srcFloor2.getFloorNo());
         srcFloor2.add(user, srcFloor2.locate(targetFloor2).opposite());
 
-        Env.elapsed();
+        context.elapsed();
 
         //user 3
         Floor srcFloor3 = floorList.get(1);
         //想去什么楼层
         Floor targetFloor3 = floorList.get(3);
-        user = new User("lucy2", targetFloor3);
+        user = new User("lucy2", targetFloor3, ticker);
         LOGGER.debug("{} come to src_floorNo={}", user, srcFloor3.getFloorNo());
         srcFloor3.add(user, srcFloor3.locate(targetFloor3).opposite());
     }
-
-    /**
-     * 返回一下不一样的楼层
-     *
-     * @param randomSrcFloorNo
-     * @return
-     */
-    private static int differentFloorNo(int randomSrcFloorNo) {
-        Random random = new Random();
-        int result;
-        do {
-            result = random.nextInt(FLOOR_NUM);
-        } while (result == randomSrcFloorNo);
-        return result;
-    }
 }
@@ -1,6 +1,7 @@
 package biz.jared;
 
 import biz.jared.domain.Elevator;
+import biz.jared.domain.ElevatorState;
 import biz.jared.domain.Floor;
 import biz.jared.domain.Task;
 import biz.jared.domain.enumeration.Direction;
@@ -31,10 +32,22 @@ public class Calc {
      * @return
      */
     public static boolean isSameDirection(Elevator elevator, Task task) {
-        return (elevator.getStatus().equals(ElevatorStatus.RUNNING_UP) && task.getDirection().equals(Direction.UP))
-                || (elevator.getStatus().equals(ElevatorStatus.RUNNING_DOWN) && task.getDirection().equals(Direction.DOWN))
+        return isSameDirection(elevator.getState(), task);
+    }
+
+    /**
+     * 基于电梯状态快照判断是否任务和电梯同相
+     *
+     * @param state
+     * @param task
+     * @return
+     */
+    public static boolean isSameDirection(ElevatorState state, Task task) {
+        ElevatorStatus status = state.getStatus();
+        return (status.equals(ElevatorStatus.RUNNING_UP) && task.getDirection().equals(Direction.UP))
+                || (status.equals(ElevatorStatus.RUNNING_DOWN) && task.getDirection().equals(Direction.DOWN))
                 || task.getDirection().equals(Direction.NONE)
-                || elevator.getStatus().equals(ElevatorStatus.IDLE);
+                || status.equals(ElevatorStatus.IDLE);
     }
 
 }
@@ -0,0 +1,193 @@
+package biz.jared;
+
+import biz.jared.metrics.LatencyHistogram;
+import biz.jared.metrics.MetricsRegistry;
+import biz.jared.metrics.PassengerMetrics;
+import biz.jared.metrics.SampleStatistics;
+import biz.jared.simulation.ThreadFactories;
+import biz.jared.simulation.VirtualClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 策略对比实验：每种 分配策略 x 优先级策略 的组合各跑N轮单线程确定性模拟，所有模拟分摊到多个线程上并行跑
+ * 每轮模拟有自己的虚拟时钟、楼宇、电梯和指标，互不干扰，结果只取决于种子
+ * 第i轮在所有组合下都用种子 seed + i，用户序列相同，组合之间可以按种子配对比较
+ * <p>
+ * 用法：ExperimentRunner [runs] [seed] [threads]，默认30轮、随机种子、CPU核数个线程，-Dconfig 指定模拟配置文件
+ *
+ * @author jared
+ */
+public class ExperimentRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExperimentRunner.class);
+
+    static final String[] DISPATCH_STRATEGIES = {"RandomDispatch", "PriorityFirstDispatch", "HungarianBatchDispatch",
+            "DestinationDispatch", "EtaDispatch", "IndexedDispatch"};
+    static final String[] PRIORITY_STRATEGIES = {"SameDirectionNearestFirst"};
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException, IOException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        SimulationConfig config = SimulationConfig.load(System.getProperty(App.CONFIG_PROPERTY));
+        LOGGER.info("{} runs per strategy, seed {}, {} threads, {}", runs, seed, threads, config);
+        long start = System.nanoTime();
+        List<Experiment> experimentList = run(config, runs, seed, threads);
+        LOGGER.info("finished in {} ms", (System.nanoTime() - start) / 1_000_000);
+        report(experimentList);
+    }
+
+    /**
+     * 跑所有组合，每个组合 runs 轮
+     *
+     * @param config  每轮模拟的配置
+     * @param seed    第i轮的种子是 seed + i
+     * @param threads 并行跑模拟的线程数
+     * @return 每个组合的实验结果，顺序同 DISPATCH_STRATEGIES x PRIORITY_STRATEGIES
+     */
+    static List<Experiment> run(SimulationConfig config, int runs, long seed, int threads)
+            throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, ThreadFactories.platform("experiment-thread-"));
+        try {
+            List<Experiment> experimentList = new ArrayList<>();
+            List<List<Future<Run>>> futureList = new ArrayList<>();
+            for (String dispatchStrategyStr : DISPATCH_STRATEGIES) {
+                for (String priorityStrategyStr : PRIORITY_STRATEGIES) {
+                    experimentList.add(new Experiment(dispatchStrategyStr, priorityStrategyStr));
+                    List<Future<Run>> futures = new ArrayList<>(runs);
+                    for (int i = 0; i < runs; i++) {
+                        long runSeed = seed + i;
+                        futures.add(pool.submit(() -> runOnce(config, dispatchStrategyStr, priorityStrategyStr,
+                                runSeed)));
+                    }
+                    futureList.add(futures);
+                }
+            }
+            for (int i = 0; i < experimentList.size(); i++) {
+                for (Future<Run> future : futureList.get(i)) {
+                    experimentList.get(i).add(future.get());
+                }
+            }
+            return experimentList;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 跑一轮单线程确定性模拟，时钟、latch、指标都在本轮自己的上下文里，可以和其它模拟并行跑
+     */
+    static Run runOnce(SimulationConfig config, String dispatchStrategyStr, String priorityStrategyStr, long seed)
+            throws IOException {
+        SimulationContext context = new SimulationContext(config, new VirtualClock());
+        App.steppedEpoch(context, dispatchStrategyStr, priorityStrategyStr, seed);
+        MetricsRegistry metrics = context.getMetrics();
+        return new Run(seed, metrics.getPassengerMetrics(), metrics.getTotalMoveDistance());
+    }
+
+    /**
+     * 输出每个组合的等待时间均值和95%置信区间、合并所有轮后的分位数，以及和最优组合按种子配对的差值
+     */
+    static void report(List<Experiment> experimentList) {
+        Experiment best = experimentList.stream().min(Comparator.comparingDouble(Experiment::meanWait)).orElse(null);
+        for (Experiment experiment : experimentList) {
+            double[] waits = experiment.waits();
+            LatencyHistogram wait = experiment.passengerMetrics.getWaitTime();
+            LatencyHistogram journey = experiment.passengerMetrics.getJourneyTime();
+            LOGGER.info("{}/{} runs={} wait mean={} +/- {} p50={} p90={} p99={} max={}"
+                            + " | journey p50={} p90={} p99={} | distance mean={}",
+                    experiment.dispatchStrategyStr, experiment.priorityStrategyStr, waits.length,
+                    format(SampleStatistics.mean(waits)), format(SampleStatistics.halfWidth95(waits)),
+                    wait.getValueAtPercentile(50), wait.getValueAtPercentile(90), wait.getValueAtPercentile(99),
+                    wait.getMax(), journey.getValueAtPercentile(50), journey.getValueAtPercentile(90),
+                    journey.getValueAtPercentile(99), format(SampleStatistics.mean(experiment.distances())));
+        }
+        for (Experiment experiment : experimentList) {
+            if (experiment != best) {
+                double[] diffs = experiment.pairedWaitDiffs(best);
+                LOGGER.info("{}/{} vs best {}/{}: wait mean {} +/- {}", experiment.dispatchStrategyStr,
+                        experiment.priorityStrategyStr, best.dispatchStrategyStr, best.priorityStrategyStr,
+                        format(SampleStatistics.mean(diffs)), format(SampleStatistics.halfWidth95(diffs)));
+            }
+        }
+    }
+
+    private static String format(double value) {
+        return String.format("%.1f", value);
+    }
+
+    /**
+     * 一轮模拟的结果
+     */
+    static final class Run {
+        final long seed;
+        final PassengerMetrics passengerMetrics;
+        final long moveDistance;
+
+        Run(long seed, PassengerMetrics passengerMetrics, long moveDistance) {
+            this.seed = seed;
+            this.passengerMetrics = passengerMetrics;
+            this.moveDistance = moveDistance;
+        }
+    }
+
+    /**
+     * 一个策略组合所有轮的结果，轮次按种子顺序排列
+     */
+    static final class Experiment {
+        final String dispatchStrategyStr;
+        final String priorityStrategyStr;
+        final List<Run> runList = new ArrayList<>();
+        /**
+         * 所有轮的乘客时长合并在一起
+         */
+        final PassengerMetrics passengerMetrics = new PassengerMetrics();
+
+        Experiment(String dispatchStrategyStr, String priorityStrategyStr) {
+            this.dispatchStrategyStr = dispatchStrategyStr;
+            this.priorityStrategyStr = priorityStrategyStr;
+        }
+
+        void add(Run run) {
+            runList.add(run);
+            passengerMetrics.add(run.passengerMetrics);
+        }
+
+        /**
+         * @return 每轮的平均等待时间
+         */
+        double[] waits() {
+            return runList.stream().mapToDouble(run -> run.passengerMetrics.getWaitTime().getMean()).toArray();
+        }
+
+        double[] distances() {
+            return runList.stream().mapToDouble(run -> run.moveDistance).toArray();
+        }
+
+        double meanWait() {
+            return SampleStatistics.mean(waits());
+        }
+
+        /**
+         * @return 每轮的平均等待时间减去另一个组合同种子那一轮的
+         */
+        double[] pairedWaitDiffs(Experiment other) {
+            double[] waits = waits();
+            double[] otherWaits = other.waits();
+            double[] diffs = new double[waits.length];
+            for (int i = 0; i < diffs.length; i++) {
+                diffs[i] = waits[i] - otherWaits[i];
+            }
+            return diffs;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package biz.jared;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 电梯的运动学参数：层高、额定速度、加速度、加加速度，开门、关门时间，每个人上下电梯的时间
+ * 电梯从静止出发到静止停下走一趟，加速度按加加速度平滑地升到最大、降到0（S形曲线），速度升到额定速度后匀速走，到站前对称减速；
+ * 楼层近的一趟升不到额定速度就要减速
+ * <p>
+ * 一趟走 n 层、从起点过了 k 层时用了多久，所有 n、k 预先算好放在一张表里，电梯每走一站查一次表是数组下标运算
+ * 时间单位 Env.TIME_UNIT，向上取整；长度单位米，时间参数以外的单位都是秒
+ *
+ * @author jared
+ */
+public final class Kinematics {
+    public static final double DEFAULT_FLOOR_HEIGHT = 3.5;
+    public static final double DEFAULT_ACCELERATION = 1.0;
+    public static final double DEFAULT_JERK = 1.5;
+    public static final int DEFAULT_DOOR_OPEN_TIME = (int) Env.TIME_UNIT.convert(2, TimeUnit.SECONDS);
+    public static final int DEFAULT_DOOR_CLOSE_TIME = (int) Env.TIME_UNIT.convert(3, TimeUnit.SECONDS);
+    public static final int DEFAULT_TRANSFER_TIME = (int) Env.TIME_UNIT.convert(1200, TimeUnit.MILLISECONDS);
+
+    /**
+     * 一秒是多少个 Env.TIME_UNIT
+     */
+    private static final double UNITS_PER_SECOND = Env.TIME_UNIT.convert(1, TimeUnit.SECONDS);
+    /**
+     * 二分求速度、时刻的次数，足够把误差压到一个时间单位以下
+     */
+    private static final int BISECTIONS = 64;
+
+    private final int floorNum;
+    /**
+     * 层高，米
+     */
+    private final double floorHeight;
+    /**
+     * 额定速度，米/秒
+     */
+    private final double ratedSpeed;
+    /**
+     * 最大加速度，米/秒²
+     */
+    private final double acceleration;
+    /**
+     * 加加速度，米/秒³
+     */
+    private final double jerk;
+    /**
+     * 开门、关门的时间，单位 Env.TIME_UNIT
+     */
+    private final int doorOpenTime;
+    private final int doorCloseTime;
+    /**
+     * 每个人上或者下电梯的时间，单位 Env.TIME_UNIT
+     */
+    private final int transferTime;
+    /**
+     * passTimes[n * (n - 1) / 2 + k - 1] 是一趟走 n 层、从起点过了 k 层时用的时间，k 从1到 n，
+     * passTimes 的最后一项是 n 层一趟的总时间
+     */
+    private final int[] passTimes;
+
+    /**
+     * @param floorNum 总楼层数，一趟最多走 floorNum - 1 层
+     * @throws IllegalArgumentException 长度、速度、加速度不是正数，时间是负数
+     */
+    public Kinematics(int floorNum, double floorHeight, double ratedSpeed, double acceleration, double jerk,
+                      int doorOpenTime, int doorCloseTime, int transferTime) {
+        if (floorNum < 2 || !(floorHeight > 0) || !(ratedSpeed > 0) || !(acceleration > 0) || !(jerk > 0)
+                || doorOpenTime < 0 || doorCloseTime < 0 || transferTime < 0) {
+            throw new IllegalArgumentException("invalid kinematics: floorNum=" + floorNum + ", floorHeight="
+                    + floorHeight + ", ratedSpeed=" + ratedSpeed + ", acceleration=" + acceleration + ", jerk=" + jerk
+                    + ", doorOpenTime=" + doorOpenTime + ", doorCloseTime=" + doorCloseTime + ", transferTime="
+                    + transferTime);
+        }
+        this.floorNum = floorNum;
+        this.floorHeight = floorHeight;
+        this.ratedSpeed = ratedSpeed;
+        this.acceleration = acceleration;
+        this.jerk = jerk;
+        this.doorOpenTime = doorOpenTime;
+        this.doorCloseTime = doorCloseTime;
+        this.transferTime = transferTime;
+        this.passTimes = passTimes();
+    }
+
+    /**
+     * 从properties加载，key同字段名，没有 ratedSpeed 时不用运动学模型
+     *
+     * @param floorNum 总楼层数
+     * @return 没配置 ratedSpeed 时返回null
+     */
+    public static Kinematics fromProperties(Properties properties, int floorNum) {
+        String ratedSpeed = properties.getProperty("ratedSpeed");
+        if (ratedSpeed == null) {
+            return null;
+        }
+        return new Kinematics(floorNum,
+                doubleValue(properties, "floorHeight", DEFAULT_FLOOR_HEIGHT),
+                Double.parseDouble(ratedSpeed.trim()),
+                doubleValue(properties, "acceleration", DEFAULT_ACCELERATION),
+                doubleValue(properties, "jerk", DEFAULT_JERK),
+                intValue(properties, "doorOpenTime", DEFAULT_DOOR_OPEN_TIME),
+                intValue(properties, "doorCloseTime", DEFAULT_DOOR_CLOSE_TIME),
+                intValue(properties, "transferTime", DEFAULT_TRANSFER_TIME));
+    }
+
+    private static double doubleValue(Properties properties, String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    private static int intValue(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * 对每个一趟的层数，先算出这一趟的速度曲线，再二分求过每一层的时刻
+     */
+    private int[] passTimes() {
+        int maxFloors = floorNum - 1;
+        int[] times = new int[maxFloors * (maxFloors + 1) / 2];
+        for (int floors = 1; floors <= maxFloors; floors++) {
+            Profile profile = new Profile(floors * floorHeight);
+            int offset = floors * (floors - 1) / 2;
+            for (int passed = 1; passed < floors; passed++) {
+                times[offset + passed - 1] = toUnits(profile.timeAt(passed * floorHeight));
+            }
+            times[offset + floors - 1] = toUnits(profile.totalTime);
+        }
+        return times;
+    }
+
+    private static int toUnits(double seconds) {
+        return (int) Math.ceil(seconds * UNITS_PER_SECOND - 1e-6);
+    }
+
+    /**
+     * 从静止加速到 speed 要多久，减速到静止也一样：加速度升得到最大加速度时先升、再保持、再降，升不到时升到一半就开始降
+     */
+    private double accelerationTime(double speed) {
+        return speed * jerk <= acceleration * acceleration
+                ? 2 * Math.sqrt(speed / jerk)
+                : speed / acceleration + acceleration / jerk;
+    }
+
+    /**
+     * @param flightFloors 这一趟从起步到停下一共走几层，0到 floorNum - 1
+     * @param passed       从起步过了几层，0到 flightFloors
+     * @return 从起步到过了 passed 层用的时间，单位 Env.TIME_UNIT
+     */
+    public long passTime(int flightFloors, int passed) {
+        return passed == 0 ? 0 : passTimes[flightFloors * (flightFloors - 1) / 2 + passed - 1];
+    }
+
+    /**
+     * @return 从静止走 floors 层到静止的时间，单位 Env.TIME_UNIT
+     */
+    public long flightTime(int floors) {
+        return passTime(floors, floors);
+    }
+
+    /**
+     * @param transferred 上下电梯的人数
+     * @return 停靠时开门、上下人、关门的时间，没人上下不开门，单位 Env.TIME_UNIT
+     */
+    public long dwellTime(int transferred) {
+        return transferred == 0 ? 0 : doorOpenTime + doorCloseTime + (long) transferTime * transferred;
+    }
+
+    /**
+     * 长途中间多停一站多花的时间（多一次减速、起步，开关门、一个人上下）折合成额定速度下走几层，至少一层
+     */
+    public int stopCostFloors() {
+        int maxFloors = floorNum - 1;
+        double floorTime = floorHeight / ratedSpeed * UNITS_PER_SECOND;
+        double startStopTime = flightTime(maxFloors) - maxFloors * floorTime;
+        return Math.max(1, (int) Math.round((startStopTime + dwellTime(1)) / floorTime));
+    }
+
+    public int getFloorNum() {
+        return floorNum;
+    }
+
+    public double getFloorHeight() {
+        return floorHeight;
+    }
+
+    public double getRatedSpeed() {
+        return ratedSpeed;
+    }
+
+    public double getAcceleration() {
+        return acceleration;
+    }
+
+    public double getJerk() {
+        return jerk;
+    }
+
+    public int getDoorOpenTime() {
+        return doorOpenTime;
+    }
+
+    public int getDoorCloseTime() {
+        return doorCloseTime;
+    }
+
+    public int getTransferTime() {
+        return transferTime;
+    }
+
+    @Override
+    public String toString() {
+        return "Kinematics{" +
+                "floorHeight=" + floorHeight +
+                ", ratedSpeed=" + ratedSpeed +
+                ", acceleration=" + acceleration +
+                ", jerk=" + jerk +
+                ", doorOpenTime=" + doorOpenTime +
+                ", doorCloseTime=" + doorCloseTime +
+                ", transferTime=" + transferTime +
+                '}';
+    }
+
+    /**
+     * 走一段距离的速度曲线，分七段，每段加加速度不变：加速度升、保持、降，匀速，减速度升、保持、降
+     */
+    private final class Profile {
+        private final double[] jerks;
+        private final double[] durations;
+        private final double totalTime;
+
+        private Profile(double distance) {
+            //升得到额定速度时加速、减速之外匀速走完剩下的距离，升不到时二分求最高速度，加速、减速的距离正好走完
+            double peakSpeed = ratedSpeed;
+            double cruiseTime = (distance - ratedSpeed * accelerationTime(ratedSpeed)) / ratedSpeed;
+            if (cruiseTime < 0) {
+                double low = 0;
+                double high = ratedSpeed;
+                for (int i = 0; i < BISECTIONS; i++) {
+                    double speed = (low + high) / 2;
+                    if (speed * accelerationTime(speed) < distance) {
+                        low = speed;
+                    } else {
+                        high = speed;
+                    }
+                }
+                peakSpeed = (low + high) / 2;
+                cruiseTime = 0;
+            }
+            double peakAcceleration = Math.min(acceleration, Math.sqrt(peakSpeed * jerk));
+            double jerkTime = peakAcceleration / jerk;
+            double holdTime = Math.max(0, peakSpeed / peakAcceleration - jerkTime);
+            jerks = new double[]{jerk, 0, -jerk, 0, -jerk, 0, jerk};
+            durations = new double[]{jerkTime, holdTime, jerkTime, cruiseTime, jerkTime, holdTime, jerkTime};
+            double total = 0;
+            for (double duration : durations) {
+                total += duration;
+            }
+            totalTime = total;
+        }
+
+        /**
+         * @return 起步之后 time 秒走了多远
+         */
+        private double positionAt(double time) {
+            double position = 0;
+            double speed = 0;
+            double accel = 0;
+            for (int i = 0; i < durations.length && time > 0; i++) {
+                double t = Math.min(time, durations[i]);
+                position += speed * t + accel * t * t / 2 + jerks[i] * t * t * t / 6;
+                speed += accel * t + jerks[i] * t * t / 2;
+                accel += jerks[i] * t;
+                time -= t;
+            }
+            return position;
+        }
+
+        /**
+         * @return 走到 distance 时是起步之后第几秒，位置随时间单调增加，二分求
+         */
+        private double timeAt(double distance) {
+            double low = 0;
+            double high = totalTime;
+            for (int i = 0; i < BISECTIONS; i++) {
+                double time = (low + high) / 2;
+                if (positionAt(time) < distance) {
+                    low = time;
+                } else {
+                    high = time;
+                }
+            }
+            return high;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package biz.jared;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * 一次模拟的配置：楼层数、电梯数、最大负载、用户数、时间单位、开关门时间、分区楼宇的梯群、运动学参数，创建后不可变
+ * 可以从properties文件加载，没配置的项取默认值
+ * 没有运动学参数时每走一层耗一个操作的时间、有人上下的停靠耗 doorTime；有时按 Kinematics 的速度曲线、开关门和上下人的时间算
+ *
+ * @author jared
+ */
+public class SimulationConfig {
+    /**
+     * 默认配置：30层、2部电梯、每部最多2人、22个用户、每个操作10个时间单位、停靠不耗时
+     */
+    public static final SimulationConfig DEFAULT = new SimulationConfig(30, 2, 2, 22, 10, 0);
+
+    /**
+     * 总楼层数
+     */
+    private final int floorNum;
+    /**
+     * 电梯数
+     */
+    private final int elevatorNum;
+    /**
+     * 最大负载人数
+     */
+    private final int maxLoad;
+    /**
+     * 总用户数
+     */
+    private final int userNum;
+    /**
+     * 所有操作需要流逝的时间长度，单位 Env.TIME_UNIT
+     */
+    private final int elapsedTime;
+    /**
+     * 停靠时有人上下，开关门耗费的时间，单位 Env.TIME_UNIT
+     */
+    private final int doorTime;
+    /**
+     * 分区楼宇的梯群描述，格式见 Topology，为null时所有电梯停所有楼层
+     */
+    private final String banks;
+    /**
+     * 运动学参数，为null时每层、每次停靠耗时固定
+     */
+    private final Kinematics kinematics;
+
+    /**
+     * 停靠不耗时
+     */
+    public SimulationConfig(int floorNum, int elevatorNum, int maxLoad, int userNum, int elapsedTime) {
+        this(floorNum, elevatorNum, maxLoad, userNum, elapsedTime, 0);
+    }
+
+    public SimulationConfig(int floorNum, int elevatorNum, int maxLoad, int userNum, int elapsedTime,
+                            int doorTime) {
+        this(floorNum, elevatorNum, maxLoad, userNum, elapsedTime, doorTime, null);
+    }
+
+    /**
+     * @param banks 分区楼宇的梯群描述，格式见 Topology，为null时所有电梯停所有楼层
+     */
+    public SimulationConfig(int floorNum, int elevatorNum, int maxLoad, int userNum, int elapsedTime,
+                            int doorTime, String banks) {
+        this(floorNum, elevatorNum, maxLoad, userNum, elapsedTime, doorTime, banks, null);
+    }
+
+    /**
+     * @param kinematics 运动学参数，楼层数要和 floorNum 一样，为null时每层、每次停靠耗时固定
+     */
+    public SimulationConfig(int floorNum, int elevatorNum, int maxLoad, int userNum, int elapsedTime,
+                            int doorTime, String banks, Kinematics kinematics) {
+        if (floorNum < 2 || elevatorNum <= 0 || maxLoad <= 0 || userNum < 0 || elapsedTime <= 0 || doorTime < 0) {
+            throw new IllegalArgumentException("invalid simulation config: floorNum=" + floorNum + ", elevatorNum="
+                    + elevatorNum + ", maxLoad=" + maxLoad + ", userNum=" + userNum + ", elapsedTime=" + elapsedTime
+                    + ", doorTime=" + doorTime);
+        }
+        if (kinematics != null && kinematics.getFloorNum() != floorNum) {
+            throw new IllegalArgumentException(kinematics + " of " + kinematics.getFloorNum()
+                    + " floors for simulation of " + floorNum + " floors");
+        }
+        this.floorNum = floorNum;
+        this.elevatorNum = elevatorNum;
+        this.maxLoad = maxLoad;
+        this.userNum = userNum;
+        this.elapsedTime = elapsedTime;
+        this.doorTime = doorTime;
+        this.banks = banks;
+        this.kinematics = kinematics;
+    }
+
+    /**
+     * 从properties文件加载，key同字段名
+     *
+     * @param path 配置文件路径，为null时返回默认配置
+     */
+    public static SimulationConfig load(String path) throws IOException {
+        if (path == null) {
+            return DEFAULT;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(Paths.get(path))) {
+            properties.load(in);
+        }
+        return fromProperties(properties);
+    }
+
+    /**
+     * @param properties 没有的key取默认配置的值
+     */
+    public static SimulationConfig fromProperties(Properties properties) {
+        int floorNum = intValue(properties, "floorNum", DEFAULT.floorNum);
+        return new SimulationConfig(
+                floorNum,
+                intValue(properties, "elevatorNum", DEFAULT.elevatorNum),
+                intValue(properties, "maxLoad", DEFAULT.maxLoad),
+                intValue(properties, "userNum", DEFAULT.userNum),
+                intValue(properties, "elapsedTime", DEFAULT.elapsedTime),
+                intValue(properties, "doorTime", DEFAULT.doorTime),
+                properties.getProperty("banks", DEFAULT.banks),
+                Kinematics.fromProperties(properties, floorNum));
+    }
+
+    private static int intValue(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public int getFloorNum() {
+        return floorNum;
+    }
+
+    public int getElevatorNum() {
+        return elevatorNum;
+    }
+
+    public int getMaxLoad() {
+        return maxLoad;
+    }
+
+    public int getUserNum() {
+        return userNum;
+    }
+
+    public int getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public int getDoorTime() {
+        return doorTime;
+    }
+
+    public String getBanks() {
+        return banks;
+    }
+
+    public Kinematics getKinematics() {
+        return kinematics;
+    }
+
+    /**
+     * @param flightFloors 这一趟从起步到停下一共走几层
+     * @param passed       从起步过了几层
+     * @return 从起步到过了 passed 层用的时间，没有运动学参数时每层一个操作的时间，单位 Env.TIME_UNIT
+     */
+    public long passTime(int flightFloors, int passed) {
+        return kinematics == null ? (long) elapsedTime * passed : kinematics.passTime(flightFloors, passed);
+    }
+
+    /**
+     * @return 从静止走 floors 层到静止的时间，单位 Env.TIME_UNIT
+     */
+    public long flightTime(int floors) {
+        return passTime(floors, floors);
+    }
+
+    /**
+     * @param transferred 上下电梯的人数
+     * @return 停靠时开关门、上下人的时间，没人上下不开门，没有运动学参数时是 doorTime，单位 Env.TIME_UNIT
+     */
+    public long dwellTime(int transferred) {
+        if (kinematics != null) {
+            return kinematics.dwellTime(transferred);
+        }
+        return transferred == 0 ? 0 : doorTime;
+    }
+
+    /**
+     * @return 多停一站的代价折合成走几层：停下来开关门的时间够走几层，再加上减速、启动算一层
+     */
+    public int getStopCostFloors() {
+        return kinematics == null ? 1 + doorTime / elapsedTime : kinematics.stopCostFloors();
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationConfig{" +
+                "floorNum=" + floorNum +
+                ", elevatorNum=" + elevatorNum +
+                ", maxLoad=" + maxLoad +
+                ", userNum=" + userNum +
+                ", elapsedTime=" + elapsedTime +
+                ", doorTime=" + doorTime +
+                (banks == null ? "" : ", banks='" + banks + '\'') +
+                (kinematics == null ? "" : ", kinematics=" + kinematics) +
+                '}';
+    }
+}
@@ -0,0 +1,173 @@
+package biz.jared;
+
+import biz.jared.event.EventLog;
+import biz.jared.event.EventType;
+import biz.jared.metrics.MetricsRegistry;
+import biz.jared.simulation.SimulationClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次模拟运行时的上下文：配置、时钟、电梯退出的latch、指标、事件流
+ * 电梯、调度器、模拟引擎都从自己的上下文取这些状态，多个模拟可以在同一个JVM里同时跑
+ *
+ * @author jared
+ */
+public class SimulationContext {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimulationContext.class);
+
+    private final SimulationConfig config;
+    /**
+     * 模拟时钟
+     */
+    private final SimulationClock clock;
+    /**
+     * 每个电梯退出时减一，减到0本次模拟结束
+     */
+    private final CountDownLatch latch;
+    /**
+     * 各电梯的运行里程、停靠次数、满载率，以及乘客的候梯、乘梯、全程时间分布
+     */
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    /**
+     * 电梯移动、停靠、上下人等事件，多个模拟可以共用一个
+     */
+    private final EventLog eventLog;
+    /**
+     * 不会再有用户到来，在这之前电梯空闲多久都不退出
+     */
+    private volatile boolean arrivalsFinished;
+    /**
+     * 正在换乘的人数：从到达时发现要换乘，到坐上最后一程的电梯，他们还要有电梯来接
+     */
+    private final AtomicInteger transferringUsers = new AtomicInteger();
+
+    public SimulationContext(SimulationConfig config, SimulationClock clock) {
+        this(config, clock, EventLog.DISABLED);
+    }
+
+    public SimulationContext(SimulationConfig config, SimulationClock clock, EventLog eventLog) {
+        this.config = config;
+        this.clock = clock;
+        this.latch = new CountDownLatch(config.getElevatorNum());
+        this.eventLog = eventLog;
+    }
+
+    public SimulationConfig getConfig() {
+        return config;
+    }
+
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    public CountDownLatch getLatch() {
+        return latch;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public EventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * 按模拟时钟的当前时刻记一条事件，参数的含义见 EventType
+     */
+    public void event(EventType type, int elevatorId, int floorNo, int arg, long value) {
+        if (eventLog.isEnabled(type)) {
+            eventLog.record(clock.now(), type, elevatorId, floorNo, arg, value);
+        }
+    }
+
+    /**
+     * 流逝一个操作的时间
+     */
+    public void elapsed() {
+        try {
+            clock.sleep(config.getElapsedTime());
+        } catch (InterruptedException e) {
+            LOGGER.error("elapsed timeout");
+        }
+    }
+
+    /**
+     * 走一站的时间，按 SimulationConfig.passTime 算，直达时一次跨过几层
+     *
+     * @param duration 单位 Env.TIME_UNIT
+     */
+    public void travel(long duration) {
+        try {
+            clock.sleep(duration);
+        } catch (InterruptedException e) {
+            LOGGER.error("travel timeout");
+        }
+    }
+
+    /**
+     * 停靠时开关门、上下人，有人上下才开门，时间按 SimulationConfig.dwellTime 算
+     *
+     * @param transferred 上下电梯的人数
+     */
+    public void dwell(int transferred) {
+        long dwellTime = config.dwellTime(transferred);
+        if (dwellTime == 0) {
+            return;
+        }
+        try {
+            clock.sleep(dwellTime);
+        } catch (InterruptedException e) {
+            LOGGER.error("dwell timeout");
+        }
+    }
+
+    /**
+     * 用户产生完了，之后电梯长时间空闲就可以退出
+     */
+    public void finishArrivals() {
+        arrivalsFinished = true;
+    }
+
+    /**
+     * @return 用户产生完了，而且没有人正在换乘
+     */
+    public boolean isArrivalsFinished() {
+        return arrivalsFinished && transferringUsers.get() == 0;
+    }
+
+    /**
+     * 来了要换乘的人，到他坐上最后一程的电梯之前，电梯空闲多久都不退出
+     */
+    public void startTransfer() {
+        transferringUsers.incrementAndGet();
+    }
+
+    /**
+     * 换乘的人坐上了最后一程的电梯
+     */
+    public void finishTransfer() {
+        transferringUsers.decrementAndGet();
+    }
+
+    /**
+     * 等所有电梯退出
+     */
+    public void await() throws InterruptedException {
+        latch.await();
+    }
+
+    /**
+     * 输出本次模拟的评价指标
+     */
+    public void show(Logger logger) {
+        logger.info("average wait time {}", metrics.getPassengerMetrics().getWaitTime().getMean());
+        logger.info("average elevator move distance {}",
+                metrics.getTotalMoveDistance() / (double) config.getElevatorNum());
+        metrics.show(logger, config.getMaxLoad());
+    }
+}
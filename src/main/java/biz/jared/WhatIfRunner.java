@@ -0,0 +1,164 @@
+package biz.jared;
+
+import biz.jared.metrics.LatencyHistogram;
+import biz.jared.metrics.MetricsRegistry;
+import biz.jared.simulation.SimulationSnapshot;
+import biz.jared.simulation.SteppedSimulation;
+import biz.jared.simulation.ThreadFactories;
+import biz.jared.simulation.VirtualClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 假设分析：先用基准分配策略把单线程确定性模拟跑到分叉时刻存一个快照，再从快照分叉，每种分配策略各接着跑一个，
+ * 所有分叉并行跑，对比分叉之后的指标；分叉之后到达的用户完全一样，差别只来自分配策略
+ * 前面跑得长、没什么可看的部分（比如一整天的交通流跑到下午5点）只跑一次，快照还可以存成文件下次直接用
+ * <p>
+ * 用法：WhatIfRunner {forkTime} [seed] [threads]，forkTime 单位 Env.TIME_UNIT，默认随机种子、CPU核数个线程
+ * -Dconfig、-Dtrace、-Dtraffic 同 App；-Dsnapshot 指定快照文件，文件已经存在时直接从它分叉，不存在时把这次的快照存进去
+ *
+ * @author jared
+ */
+public class WhatIfRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WhatIfRunner.class);
+
+    /**
+     * 指定快照文件的系统属性
+     */
+    static final String SNAPSHOT_PROPERTY = "snapshot";
+    /**
+     * 跑到分叉时刻用的分配策略
+     */
+    static final String BASE_DISPATCH_STRATEGY = "PriorityFirstDispatch";
+    static final String PRIORITY_STRATEGY = "SameDirectionNearestFirst";
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException, IOException {
+        if (args.length < 1) {
+            System.err.println("usage: WhatIfRunner {forkTime} [seed] [threads]");
+            System.exit(1);
+        }
+        long forkTime = Long.parseLong(args[0]);
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        SimulationConfig config = SimulationConfig.load(System.getProperty(App.CONFIG_PROPERTY));
+        String snapshotFile = System.getProperty(SNAPSHOT_PROPERTY);
+        Path snapshotPath = snapshotFile == null ? null : Paths.get(snapshotFile);
+
+        long start = System.nanoTime();
+        SimulationSnapshot snapshot;
+        if (snapshotPath != null && Files.exists(snapshotPath)) {
+            snapshot = SimulationSnapshot.read(snapshotPath);
+            LOGGER.info("snapshot at {} read from {}", snapshot.getTime(), snapshotPath);
+        } else {
+            LOGGER.info("{}, seed {}, running {} to {}", config, seed, BASE_DISPATCH_STRATEGY, forkTime);
+            snapshot = fastForward(new SimulationContext(config, new VirtualClock()), seed, forkTime);
+            if (snapshotPath != null) {
+                snapshot.write(snapshotPath);
+                LOGGER.info("snapshot written to {}", snapshotPath);
+            }
+        }
+        LOGGER.info("snapshot at {}, {} bytes, took {} ms", snapshot.getTime(), snapshot.size(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        start = System.nanoTime();
+        List<Fork> forkList = fork(config, snapshot, ExperimentRunner.DISPATCH_STRATEGIES, seed, threads);
+        LOGGER.info("{} forks finished in {} ms", forkList.size(), (System.nanoTime() - start) / 1_000_000);
+        report(forkList);
+    }
+
+    /**
+     * 用基准分配策略从头跑到分叉时刻，分叉之前的指标在 context 里
+     *
+     * @return 分叉时刻的快照
+     * @throws IllegalArgumentException 还没到分叉时刻所有电梯就已经退出了
+     */
+    static SimulationSnapshot fastForward(SimulationContext context, long seed, long forkTime) throws IOException {
+        try (SteppedSimulation simulation = App.newSteppedSimulation(context, BASE_DISPATCH_STRATEGY,
+                PRIORITY_STRATEGY, new Random(seed))) {
+            if (!simulation.runUntil(forkTime)) {
+                throw new IllegalArgumentException("simulation finished at " + context.getClock().now()
+                        + " before fork time " + forkTime);
+            }
+            return simulation.snapshot();
+        }
+    }
+
+    /**
+     * 从快照分叉，每种分配策略各跑一个
+     *
+     * @param seed    随机分配策略用的种子，用户到达由快照决定
+     * @param threads 并行跑分叉的线程数
+     * @return 每个分叉的结果，顺序同 dispatchStrategies
+     */
+    static List<Fork> fork(SimulationConfig config, SimulationSnapshot snapshot, String[] dispatchStrategies,
+                           long seed, int threads) throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, ThreadFactories.platform("what-if-thread-"));
+        try {
+            List<Future<Fork>> futureList = new ArrayList<>(dispatchStrategies.length);
+            for (String dispatchStrategyStr : dispatchStrategies) {
+                futureList.add(pool.submit(() -> runFork(config, snapshot, dispatchStrategyStr, seed)));
+            }
+            List<Fork> forkList = new ArrayList<>(futureList.size());
+            for (Future<Fork> future : futureList) {
+                forkList.add(future.get());
+            }
+            return forkList;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 从快照恢复出一个新的模拟，换上分配策略跑完
+     */
+    static Fork runFork(SimulationConfig config, SimulationSnapshot snapshot, String dispatchStrategyStr, long seed)
+            throws IOException {
+        SimulationContext context = new SimulationContext(config, new VirtualClock());
+        try (SteppedSimulation simulation = App.newSteppedSimulation(context, dispatchStrategyStr, PRIORITY_STRATEGY,
+                new Random(seed))) {
+            simulation.restore(snapshot);
+            simulation.run();
+        }
+        return new Fork(dispatchStrategyStr, context.getMetrics(), context.getClock().now());
+    }
+
+    static void report(List<Fork> forkList) {
+        for (Fork fork : forkList) {
+            LatencyHistogram wait = fork.metrics.getPassengerMetrics().getWaitTime();
+            LatencyHistogram journey = fork.metrics.getPassengerMetrics().getJourneyTime();
+            LOGGER.info("{} served={} wait mean={} p50={} p90={} p99={} max={} | journey p50={} p90={} p99={}"
+                            + " | distance={} end={}",
+                    fork.dispatchStrategyStr, journey.getCount(), String.format("%.1f", wait.getMean()),
+                    wait.getValueAtPercentile(50), wait.getValueAtPercentile(90), wait.getValueAtPercentile(99),
+                    wait.getMax(), journey.getValueAtPercentile(50), journey.getValueAtPercentile(90),
+                    journey.getValueAtPercentile(99), fork.metrics.getTotalMoveDistance(), fork.endTime);
+        }
+    }
+
+    /**
+     * 一个分叉的结果，指标只包括分叉之后的
+     */
+    static final class Fork {
+        final String dispatchStrategyStr;
+        final MetricsRegistry metrics;
+        final long endTime;
+
+        Fork(String dispatchStrategyStr, MetricsRegistry metrics, long endTime) {
+            this.dispatchStrategyStr = dispatchStrategyStr;
+            this.metrics = metrics;
+            this.endTime = endTime;
+        }
+    }
+}
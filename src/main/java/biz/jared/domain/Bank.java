@@ -0,0 +1,106 @@
+package biz.jared.domain;
+
+import biz.jared.domain.enumeration.Direction;
+
+import java.util.BitSet;
+
+/**
+ * 梯群：一组停靠同样楼层的电梯，比如低区、高区、只停大堂和空中大堂的穿梭梯
+ * 停靠的楼层之间的楼层直达跳过，往上/往下下一个停靠楼层预先算好，查一次是数组下标运算
+ *
+ * @author jared
+ */
+public final class Bank {
+    private final int index;
+    /**
+     * 停靠的楼层，第i位代表 i+1 层
+     */
+    private final BitSet servedFloors;
+    /**
+     * nextUp[n] 是 n 层往上（不含）最近的停靠楼层号，没有时为0
+     */
+    private final int[] nextUp;
+    /**
+     * nextDown[n] 是 n 层往下（不含）最近的停靠楼层号，没有时为0
+     */
+    private final int[] nextDown;
+
+    /**
+     * @param index        在楼宇所有梯群里的下标
+     * @param servedFloors 停靠的楼层，第i位代表 i+1 层，至少两层
+     * @param floorNum     总楼层数
+     */
+    Bank(int index, BitSet servedFloors, int floorNum) {
+        if (servedFloors.cardinality() < 2 || servedFloors.length() > floorNum) {
+            throw new IllegalArgumentException("bank " + index + " must serve at least 2 of floor 1 ~ " + floorNum
+                    + ": " + servedFloors);
+        }
+        this.index = index;
+        this.servedFloors = (BitSet) servedFloors.clone();
+        this.nextUp = new int[floorNum + 2];
+        this.nextDown = new int[floorNum + 2];
+        for (int floorNo = floorNum; floorNo >= 1; floorNo--) {
+            nextUp[floorNo - 1] = servedFloors.get(floorNo - 1) ? floorNo : nextUp[floorNo];
+        }
+        for (int floorNo = 1; floorNo <= floorNum; floorNo++) {
+            nextDown[floorNo + 1] = servedFloors.get(floorNo - 1) ? floorNo : nextDown[floorNo];
+        }
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return 是否停靠某楼层
+     */
+    public boolean serves(int floorNo) {
+        return floorNo >= 1 && servedFloors.get(floorNo - 1);
+    }
+
+    /**
+     * @return 本梯群的电梯能不能执行这个任务：任务楼层停靠，目的层呼叫的目标楼层也停靠
+     */
+    boolean serves(Task task) {
+        Floor targetFloor = task.getTargetFloor();
+        return serves(task.getSrcFloor().getFloorNo()) && (targetFloor == null || serves(targetFloor.getFloorNo()));
+    }
+
+    /**
+     * @return 从 floorNo 层朝 direction 方向走，下一个停靠的楼层号，没有时返回0
+     */
+    public int next(int floorNo, Direction direction) {
+        return Direction.UP.equals(direction) ? nextUp[floorNo] : nextDown[floorNo];
+    }
+
+    /**
+     * @return 停靠的最低楼层号，电梯从这里出发
+     */
+    public int getLowestFloor() {
+        return servedFloors.nextSetBit(0) + 1;
+    }
+
+    /**
+     * @return 停靠的楼层数
+     */
+    public int getFloorCount() {
+        return servedFloors.cardinality();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Bank{index=").append(index).append(", floors=");
+        for (int from = servedFloors.nextSetBit(0); from >= 0; ) {
+            int to = servedFloors.nextClearBit(from);
+            sb.append(from + 1);
+            if (to - from > 1) {
+                sb.append('-').append(to);
+            }
+            from = servedFloors.nextSetBit(to);
+            if (from >= 0) {
+                sb.append(',');
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
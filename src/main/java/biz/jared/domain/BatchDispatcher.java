@@ -0,0 +1,108 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationContext;
+import biz.jared.simulation.SimulationClock;
+import biz.jared.strategy.BatchDispatchStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 批量任务调度器：来了任务先不分配，攒一个时间窗口，把窗口内到达的任务交给批量分配策略一起分配
+ * 突发的大量呼叫可以按所有电梯做全局最优，而不是先到的任务先把最近的电梯占走
+ * dispatcher线程和电梯线程一样，从启动到退出一直是时钟的参与者，没任务时通过时钟等待
+ *
+ * @author jared
+ */
+public class BatchDispatcher extends Dispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchDispatcher.class);
+    /**
+     * 还没进入批次的任务
+     */
+    private final BlockingQueue<Task> taskQueue = new LinkedBlockingQueue<>();
+    /**
+     * 攒批的时间窗口，单位 Env.TIME_UNIT
+     */
+    private final long window;
+    /**
+     * dispatcher线程所用的时钟
+     */
+    private final SimulationClock clock;
+    private final ExecutorService executorService;
+    /**
+     * 所有电梯都退出后为true，dispatcher线程退出
+     */
+    private volatile boolean stopped;
+
+    /**
+     * @param window        攒批的时间窗口，单位 Env.TIME_UNIT
+     * @param threadFactory dispatcher线程的工厂
+     */
+    public BatchDispatcher(SimulationContext context, List<Elevator> elevatorList,
+                           BatchDispatchStrategy dispatchStrategy, long window, ThreadFactory threadFactory) {
+        super(context, elevatorList, dispatchStrategy, (ExecutorService) null);
+        this.window = window;
+        this.clock = context.getClock();
+        this.executorService = Executors.newSingleThreadExecutor(threadFactory);
+        //先替dispatcher线程hold住时钟，线程退出时release
+        clock.hold();
+        executorService.execute(() -> {
+            try {
+                work();
+            } finally {
+                clock.release();
+            }
+        });
+    }
+
+    @Override
+    void dispatch(Task task) {
+        if (task != null && !stopped) {
+            taskQueue.add(task);
+        }
+    }
+
+    /**
+     * dispatcher线程退出，还没分配的任务丢弃
+     */
+    @Override
+    void onNoElevatorLeft() {
+        stopped = true;
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 等到第一个任务后再等一个窗口，窗口内到达的任务和上一批没分出去的任务一起分配
+     */
+    private void work() {
+        List<Task> batch = new ArrayList<>();
+        try {
+            while (!stopped) {
+                if (batch.isEmpty()) {
+                    Task first = clock.poll(taskQueue, getContext().getConfig().getElapsedTime());
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                }
+                clock.sleep(window);
+                taskQueue.drainTo(batch);
+                LOGGER.debug("dispatch a batch of {} tasks", batch.size());
+                batch = tryDispatch(batch);
+                if (!batch.isEmpty()) {
+                    LOGGER.warn("dispatcher can't select elevator for {} tasks, maybe all of them are in max load ,"
+                            + " retry dispatch...", batch.size());
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("batch dispatcher interrupted, quit");
+        }
+    }
+}
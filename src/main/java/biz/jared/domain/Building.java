@@ -0,0 +1,194 @@
+package biz.jared.domain;
+
+import biz.jared.domain.enumeration.Direction;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 楼宇：按楼层号下标存放的楼层数组，所有楼层上/下行的呼叫，以及分区楼宇的梯群划分
+ * 楼层之间不再互相链接，找相邻楼层、算距离都是数组下标运算
+ *
+ * @author jared
+ */
+public class Building {
+    /**
+     * floors[i] 是 i+1 层
+     */
+    private final Floor[] floors;
+    private final List<Floor> floorList;
+    /**
+     * 有上行呼叫的楼层，第i位代表 i+1 层
+     */
+    private final BitSet upHallCalls;
+    /**
+     * 有下行呼叫的楼层，第i位代表 i+1 层
+     */
+    private final BitSet downHallCalls;
+    /**
+     * 目的层派梯：乘客在厅外登记目标楼层，每个目标楼层单独产生任务
+     */
+    private volatile boolean destinationDispatch;
+    /**
+     * 分区楼宇的梯群划分，所有电梯都停所有楼层时为null
+     */
+    private volatile Topology topology;
+
+    /**
+     * @param floorNum 总楼层数，楼层号从1开始
+     */
+    public Building(int floorNum) {
+        floors = new Floor[floorNum];
+        for (int i = 0; i < floorNum; i++) {
+            floors[i] = new Floor(i + 1, this);
+        }
+        floorList = Collections.unmodifiableList(Arrays.asList(floors));
+        upHallCalls = new BitSet(floorNum);
+        downHallCalls = new BitSet(floorNum);
+    }
+
+    /**
+     * @param floorNo 楼层号，从1开始
+     * @return 楼层
+     */
+    public Floor getFloor(int floorNo) {
+        return floors[floorNo - 1];
+    }
+
+    public int getFloorNum() {
+        return floors.length;
+    }
+
+    /**
+     * @return 按楼层号排好序的所有楼层，不可修改
+     */
+    public List<Floor> getFloorList() {
+        return floorList;
+    }
+
+    public void setDispatcher(Dispatcher dispatcher) {
+        for (Floor floor : floors) {
+            floor.setDispatcher(dispatcher);
+        }
+    }
+
+    /**
+     * 分区楼宇总是按目标楼层呼叫：只有知道乘客要去哪一层，才知道哪个梯群能送、要不要换乘
+     */
+    public boolean isDestinationDispatch() {
+        return destinationDispatch || topology != null;
+    }
+
+    /**
+     * 要在有人来之前设置
+     */
+    public void setDestinationDispatch(boolean destinationDispatch) {
+        this.destinationDispatch = destinationDispatch;
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    /**
+     * 要在有人来之前设置
+     *
+     * @throws IllegalArgumentException 梯群划分的楼层数和楼宇的不一样
+     */
+    public void setTopology(Topology topology) {
+        if (topology != null && topology.getFloorNum() != floors.length) {
+            throw new IllegalArgumentException(topology + " doesn't fit a building of " + floors.length + " floors");
+        }
+        this.topology = topology;
+    }
+
+    /**
+     * @param floor       乘客所在楼层
+     * @param destination 乘客最终要去的楼层
+     * @return 这一程要坐到的楼层，不用换乘或者不分区时就是 destination
+     */
+    Floor nextLeg(Floor floor, Floor destination) {
+        Topology topology = this.topology;
+        return topology == null ? destination
+                : floors[topology.nextLeg(floor.getFloorNo(), destination.getFloorNo()) - 1];
+    }
+
+    /**
+     * @param bank 电梯所属的梯群，为null时停所有楼层
+     * @return floor 朝 direction 方向下一个电梯停得了的楼层，中间不停的楼层直达跳过，已经到顶/底时返回null
+     */
+    Floor next(Floor floor, Direction direction, Bank bank) {
+        if (bank == null) {
+            return next(floor, direction);
+        }
+        int floorNo = bank.next(floor.getFloorNo(), direction);
+        return floorNo == 0 ? null : floors[floorNo - 1];
+    }
+
+    /**
+     * @return floor 朝 direction 方向的相邻楼层，已经到顶/底时返回null
+     */
+    Floor next(Floor floor, Direction direction) {
+        //floorNo 是 floor 所在下标+1
+        int index = Direction.UP.equals(direction) ? floor.getFloorNo() : floor.getFloorNo() - 2;
+        return index >= 0 && index < floors.length ? floors[index] : null;
+    }
+
+    /**
+     * 楼层产生或者结束了某方向的呼叫
+     */
+    synchronized void setHallCall(Floor floor, Direction direction, boolean on) {
+        BitSet hallCalls = hallCalls(direction);
+        if (hallCalls != null) {
+            hallCalls.set(floor.getFloorNo() - 1, on);
+        }
+    }
+
+    /**
+     * @return 某楼层是否有某方向的呼叫在等电梯
+     */
+    public synchronized boolean hasHallCall(int floorNo, Direction direction) {
+        BitSet hallCalls = hallCalls(direction);
+        return hallCalls != null && hallCalls.get(floorNo - 1);
+    }
+
+    /**
+     * 从某楼层（含）开始，朝 searchDirection 方向找最近的有呼叫（不分上下行）的楼层
+     *
+     * @param floorNo         开始找的楼层号
+     * @param searchDirection 找的方向，UP往高层找，DOWN往低层找
+     * @return 楼层号，没有时返回-1
+     */
+    public synchronized int nextHallCall(int floorNo, Direction searchDirection) {
+        int index = floorNo - 1;
+        int found;
+        if (Direction.UP.equals(searchDirection)) {
+            int up = upHallCalls.nextSetBit(index);
+            int down = downHallCalls.nextSetBit(index);
+            found = up < 0 || down < 0 ? Math.max(up, down) : Math.min(up, down);
+        } else {
+            found = Math.max(upHallCalls.previousSetBit(index), downHallCalls.previousSetBit(index));
+        }
+        return found < 0 ? -1 : found + 1;
+    }
+
+    /**
+     * @return 所有楼层上/下行呼叫的总数
+     */
+    public synchronized int hallCallCount() {
+        return upHallCalls.cardinality() + downHallCalls.cardinality();
+    }
+
+    private BitSet hallCalls(Direction direction) {
+        switch (direction) {
+            case UP:
+                return upHallCalls;
+            case DOWN:
+                return downHallCalls;
+            default:
+                return null;
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package biz.jared.domain;
 
-import biz.jared.Env;
+import biz.jared.SimulationContext;
+import biz.jared.event.EventType;
+import biz.jared.strategy.BatchDispatchStrategy;
 import biz.jared.strategy.DispatchStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 多电梯系统的任务总调度器
@@ -20,25 +27,75 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class Dispatcher {
     private static final Logger LOGGER = LoggerFactory.getLogger(Dispatcher.class);
     /**
-     * 可以调度的电梯列表
+     * 可以调度的电梯列表，写时复制，分配任务时无锁遍历
      */
-    private List<Elevator> elevatorList = new ArrayList<>();
+    private List<Elevator> elevatorList;
+    /**
+     * 分区楼宇里各梯群还在运行的电梯，下标是梯群的下标，写时复制；不分区时为null
+     */
+    private final List<List<Elevator>> bankElevatorLists;
+    /**
+     * 分区楼宇里的梯群，和 bankElevatorLists 一一对应，没有电梯的梯群为null
+     */
+    private final Bank[] banks;
     /**
      * 任务分配策略
      */
     private DispatchStrategy dispatchStrategy;
     /**
-     * 保证 elevatorList 的读写互斥
+     * 用于异步完成dispatch task
+     */
+    private ExecutorService executorService;
+    /**
+     * 已提交还没执行完的分配任务数，不为0时dispatcher线程就是时钟的一个活跃参与者
      */
-    private ReadWriteLock elevatorListLock = new ReentrantReadWriteLock();
+    private final AtomicInteger pendingJobCount = new AtomicInteger();
     /**
-     * 用于异步完成dispatch task
+     * 所属模拟的上下文：时钟、电梯退出的latch
+     */
+    private final SimulationContext context;
+
+    public Dispatcher(SimulationContext context, List<Elevator> elevatorList, DispatchStrategy dispatchStrategy) {
+        this(context, elevatorList, dispatchStrategy, Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * @param threadFactory dispatcher线程的工厂，比如用虚拟线程
      */
-    private ExecutorService executorService = Executors.newSingleThreadExecutor();
+    public Dispatcher(SimulationContext context, List<Elevator> elevatorList, DispatchStrategy dispatchStrategy,
+                      ThreadFactory threadFactory) {
+        this(context, elevatorList, dispatchStrategy, Executors.newSingleThreadExecutor(threadFactory));
+    }
 
-    public Dispatcher(List<Elevator> elevatorList, DispatchStrategy dispatchStrategy) {
-        this.elevatorList = elevatorList;
+    /**
+     * @param executorService 异步完成dispatch task的线程池，为null时由子类自己决定如何分配
+     */
+    Dispatcher(SimulationContext context, List<Elevator> elevatorList, DispatchStrategy dispatchStrategy,
+               ExecutorService executorService) {
+        this.context = context;
+        this.elevatorList = new CopyOnWriteArrayList<>(elevatorList);
         this.dispatchStrategy = dispatchStrategy;
+        this.executorService = executorService;
+        int bankNum = elevatorList.stream().map(Elevator::getBank)
+                .mapToInt(bank -> bank == null ? 0 : bank.getIndex() + 1).max().orElse(0);
+        if (bankNum == 0) {
+            this.bankElevatorLists = null;
+            this.banks = null;
+        } else {
+            this.bankElevatorLists = new ArrayList<>(bankNum);
+            this.banks = new Bank[bankNum];
+            for (int i = 0; i < bankNum; i++) {
+                bankElevatorLists.add(new CopyOnWriteArrayList<>());
+            }
+            for (Elevator elevator : elevatorList) {
+                Bank bank = elevator.getBank();
+                if (bank == null) {
+                    throw new IllegalArgumentException(elevator + " doesn't belong to any bank");
+                }
+                banks[bank.getIndex()] = bank;
+                bankElevatorLists.get(bank.getIndex()).add(elevator);
+            }
+        }
     }
 
     /**
@@ -52,17 +109,37 @@ public class Dispatcher {
         }
         // !executorService.isShutdown() this for avoid RejectedExecutionException
         if (executorService != null && !executorService.isShutdown()) {
-            executorService.submit(() -> {
-                Elevator elevator;
-                //如果选不出来电梯，就一直重试
-                while ((elevator = dispatchStrategy.select(elevatorList, task)) == null) {
-                    Env.elapsed();
-                    LOGGER.warn(
-                            "dispatcher can't select one elevator, maybe all of them are in max load , retry dispatch...");
-                }
-                LOGGER.info("dispatch task:{} result: give it to {}", task, elevator);
-                elevator.receive(task);
-            });
+            //dispatcher线程有活干时，时钟不能推进
+            if (pendingJobCount.getAndIncrement() == 0) {
+                context.getClock().hold();
+            }
+            try {
+                executorService.submit(() -> {
+                    try {
+                        //如果选不出来电梯，就一直重试
+                        while (!tryDispatch(task)) {
+                            if (elevatorList.isEmpty()) {
+                                LOGGER.warn("no elevator left, give up dispatching {}", task);
+                                return;
+                            }
+                            context.elapsed();
+                            LOGGER.warn(
+                                    "dispatcher can't select one elevator, maybe all of them are in max load , retry dispatch...");
+                        }
+                    } finally {
+                        onJobDone();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                onJobDone();
+                throw e;
+            }
+        }
+    }
+
+    private void onJobDone() {
+        if (pendingJobCount.decrementAndGet() == 0) {
+            context.getClock().release();
         }
     }
 
@@ -86,17 +163,170 @@ public class Dispatcher {
      * @param elevator
      */
     void quit(Elevator elevator) {
-        elevatorListLock.writeLock().lock();
         elevatorList.removeIf(e -> e.equals(elevator));
-        elevatorListLock.writeLock().unlock();
-        //无电梯可调度时要shutdown线程池
+        if (bankElevatorLists != null) {
+            bankElevatorLists.get(elevator.getBank().getIndex()).removeIf(e -> e.equals(elevator));
+        }
         if (elevatorList.isEmpty()) {
+            onNoElevatorLeft();
+        }
+        context.getLatch().countDown();
+    }
+
+    /**
+     * 所有电梯都退出了，本轮模拟结束前的清理，可能被调用多次
+     */
+    void onNoElevatorLeft() {
+        //无电梯可调度时要shutdown线程池
+        if (executorService != null) {
             executorService.shutdown();
         }
-        Env.LATCH.countDown();
     }
 
-    public ReadWriteLock getElevatorListLock() {
-        return elevatorListLock;
+    /**
+     * 用分配策略选出一个电梯并交给它任务
+     *
+     * @param task 待分配任务
+     * @return 选不出电梯时返回false
+     */
+    boolean tryDispatch(Task task) {
+        List<Elevator> candidate = candidates(task);
+        if (candidate.isEmpty() && isZoned()) {
+            abandon(task);
+            return true;
+        }
+        return tryDispatch(task, candidate);
+    }
+
+    /**
+     * 分区楼宇里能执行任务的梯群电梯都退出了，重试也等不来电梯：等这个任务的人走掉，记一个没接的呼叫
+     */
+    private void abandon(Task task) {
+        List<User> abandonList = task.getSrcFloor().abandon(task);
+        LOGGER.warn("no elevator left can serve {}, {} users gave up", task, abandonList.size());
+        context.getMetrics().recordUnservedCall(abandonList.size());
+        //走掉的人不会再换乘了
+        abandonList.stream().filter(User::isTransferJourney).forEach(user -> context.finishTransfer());
+    }
+
+    /**
+     * 分区楼宇里只有停任务楼层（目的层呼叫还要停目标楼层）的梯群能执行任务，只在这些梯群的电梯里选
+     * 一般只有一个梯群，直接用这个梯群的电梯列表，不用逐个电梯判断
+     *
+     * @return 能执行任务的还在运行的电梯，不分区时是所有还在运行的电梯
+     */
+    List<Elevator> candidates(Task task) {
+        if (banks == null) {
+            return elevatorList;
+        }
+        List<Elevator> candidate = null;
+        boolean merged = false;
+        for (int i = 0; i < banks.length; i++) {
+            if (banks[i] == null || !banks[i].serves(task)) {
+                continue;
+            }
+            if (candidate == null) {
+                candidate = bankElevatorLists.get(i);
+            } else {
+                //几个梯群都能去时合并成一个新列表
+                if (!merged) {
+                    candidate = new ArrayList<>(candidate);
+                    merged = true;
+                }
+                candidate.addAll(bankElevatorLists.get(i));
+            }
+        }
+        return candidate == null ? Collections.emptyList() : candidate;
+    }
+
+    /**
+     * @return 是否是分区楼宇，电梯按梯群分开选
+     */
+    boolean isZoned() {
+        return banks != null;
+    }
+
+    /**
+     * 在指定的电梯范围内选出一个电梯并交给它任务
+     *
+     * @param task      待分配任务
+     * @param candidate 备选电梯集合
+     * @return 选不出电梯时返回false
+     */
+    boolean tryDispatch(Task task, List<Elevator> candidate) {
+        Elevator elevator = dispatchStrategy.select(candidate, task);
+        if (elevator == null) {
+            return false;
+        }
+        assign(task, elevator);
+        return true;
+    }
+
+    /**
+     * 一批任务一起分配，批量分配策略做全局最优，普通策略就逐个分配
+     *
+     * @param taskList 待分配任务
+     * @return 选不出电梯的任务
+     */
+    List<Task> tryDispatch(List<Task> taskList) {
+        List<Task> failList = new ArrayList<>();
+        if (!(dispatchStrategy instanceof BatchDispatchStrategy)) {
+            for (Task task : taskList) {
+                if (!tryDispatch(task)) {
+                    failList.add(task);
+                }
+            }
+            return failList;
+        }
+        if (banks == null) {
+            assign(elevatorList, taskList, failList);
+            return failList;
+        }
+        //分区楼宇里按能去的电梯分组，每组单独做全局最优
+        Map<List<Elevator>, List<Task>> groups = new LinkedHashMap<>();
+        for (Task task : taskList) {
+            List<Elevator> candidate = candidates(task);
+            if (candidate.isEmpty()) {
+                abandon(task);
+            } else {
+                groups.computeIfAbsent(candidate, key -> new ArrayList<>()).add(task);
+            }
+        }
+        groups.forEach((candidate, group) -> assign(candidate, group, failList));
+        return failList;
+    }
+
+    /**
+     * 用批量分配策略把一批任务分给 candidate 里的电梯
+     *
+     * @param failList 选不出电梯的任务加到这里
+     */
+    private void assign(List<Elevator> candidate, List<Task> taskList, List<Task> failList) {
+        Elevator[] elevators = ((BatchDispatchStrategy) dispatchStrategy).assign(candidate, taskList);
+        for (int i = 0; i < elevators.length; i++) {
+            if (elevators[i] == null) {
+                failList.add(taskList.get(i));
+            } else {
+                assign(taskList.get(i), elevators[i]);
+            }
+        }
+    }
+
+    private void assign(Task task, Elevator elevator) {
+        context.event(EventType.DISPATCH, elevator.getId(), task.getSrcFloor().getFloorNo(),
+                task.getDirection().ordinal(), 0);
+        elevator.receive(task);
+    }
+
+    /**
+     * @return 还在运行的电梯
+     */
+    List<Elevator> getElevatorList() {
+        return elevatorList;
     }
+
+    SimulationContext getContext() {
+        return context;
+    }
+
 }
@@ -1,89 +1,108 @@
 package biz.jared.domain;
 
-import biz.jared.Calc;
-import biz.jared.Env;
+import biz.jared.SimulationContext;
 import biz.jared.domain.enumeration.Direction;
 import biz.jared.domain.enumeration.ElevatorStatus;
+import biz.jared.domain.enumeration.TaskOutcome;
 import biz.jared.domain.enumeration.TaskStatus;
-import biz.jared.exception.CannotExecTaskException;
-import biz.jared.exception.TaskCancelledException;
-import biz.jared.exception.UserInElevatorTaskGrabbedException;
-import biz.jared.exception.UserInFloorTaskGrabbedException;
+import biz.jared.event.EventType;
+import biz.jared.metrics.ElevatorMetrics;
 import biz.jared.strategy.PriorityCalculationStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
-import static biz.jared.Env.MAX_LOAD;
-
 /**
  * @author jared
  */
 public class Elevator implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Elevator.class);
+    /**
+     * 用户产生完之后，连续空闲多少个时间单位电梯退出
+     */
+    private static final int MAX_IDLE_STEPS = 10;
     private int id;
     /**
-     * 当前所处楼层
+     * 所属模拟的上下文：时钟、指标、配置
      */
-    private Floor currFloor;
+    private final SimulationContext context;
     /**
-     * 当前运行状态
+     * 最大负载人数
      */
-    private ElevatorStatus status;
+    private final int maxLoad;
     /**
-     * 电梯负载人群
+     * 当前状态的快照（所处楼层、运行状态、负载人数、当前正在执行的任务）
+     * 只有电梯线程写，每次写都发布一个新快照，其它线程无锁读取
      */
-    private Set<User> currLoad = new HashSet<>(MAX_LOAD);
+    private volatile ElevatorState state;
     /**
-     * 当前正在执行的任务
+     * 电梯负载人群，只在电梯线程里读写，其它线程通过 state 读负载人数
      */
-    private Task currTask;
+    private Set<User> currLoad;
     /**
      * 负责调度此电梯的调度器
      */
     private Dispatcher dispatcher;
     /**
-     * 电梯的任务列表，读写操作都在电梯线程这一个线程里，所以不用锁保护
+     * 电梯的任务列表，取任务时按电梯当前的楼层和方向计算优先级
      */
-    private BlockingQueue<Task> taskQueue = new PriorityBlockingQueue<>();
+    private TaskQueue taskQueue = new TaskQueue(this::tryReceive);
     /**
      * 任务优先级计算策略
      */
     private PriorityCalculationStrategy priorityCalculationStrategy;
-
-    //================many lock to protect elevator status===================
     /**
-     * 用于锁楼层（在读取楼层并做任务优先的决策时，不能改楼层数据）
+     * 单线程引擎下连续空闲的时间单位数
+     */
+    private int idleSteps;
+    /**
+     * 一个时间单位的长度，单线程引擎下按它把走楼层、开关门的时间折成时间单位数
+     */
+    private final int elapsedTime;
+    /**
+     * 单线程引擎下还要忙的时间单位数：停在楼层开着门，或者这一站还没走到
+     */
+    private int busySteps;
+    /**
+     * 这一趟起步的楼层号，停着时为0：朝一个方向连续走、中途没停的几站算一趟，按同一条速度曲线算时间，只在电梯线程里读写
+     */
+    private int flightStart;
+    /**
+     * 上一次 moveOneStop 出发和到站时，离这一趟起步过了多久，单位 Env.TIME_UNIT，只在电梯线程里读写
      */
-    private final ReadWriteLock currFloorLock = new ReentrantReadWriteLock();
+    private long lastMoveFrom;
+    private long lastMoveTo;
     /**
-     * dispatcher里的线程池要"连续读"currTask这个属性，而电梯线程可以"同时写"currTask这个属性，存在并发错误的可能，且不会引发任何异常，需要加锁
+     * 本电梯的运行指标，只在电梯线程里写
      */
-    private final ReadWriteLock currTaskLock = new ReentrantReadWriteLock();
+    private final ElevatorMetrics metrics;
     /**
-     * currLoad属性可能同时在电梯线程里写，在dispatchStrategy-select时读，所以要加锁保护
+     * 电梯位置索引，没有时为null
      */
-    private final ReadWriteLock currLoadLock = new ReentrantReadWriteLock();
+    private ElevatorIndex index;
     /**
-     * status属性可能同时在电梯线程里写，在dispatcher-tryReceive时读，所以要加锁保护
+     * 所属梯群，只停这个梯群的楼层，为null时停所有楼层
      */
-    private final ReadWriteLock statusLock = new ReentrantReadWriteLock();
+    private Bank bank;
 
-    public Elevator(int id, Floor initFloor, PriorityCalculationStrategy priorityCalculationStrategy) {
+    public Elevator(int id, Floor initFloor, PriorityCalculationStrategy priorityCalculationStrategy,
+                    SimulationContext context) {
         this.id = id;
-        this.currFloor = initFloor;
-        setStatus(ElevatorStatus.IDLE);
+        this.context = context;
+        this.maxLoad = context.getConfig().getMaxLoad();
+        this.currLoad = new HashSet<>(maxLoad);
+        this.state = new ElevatorState(initFloor, ElevatorStatus.IDLE, 0, null, 0);
         this.priorityCalculationStrategy = priorityCalculationStrategy;
+        this.elapsedTime = context.getConfig().getElapsedTime();
+        this.metrics = new ElevatorMetrics(id);
+        context.getMetrics().register(metrics);
     }
 
     /**
@@ -92,58 +111,45 @@ public class Elevator implements Runnable {
      * @param task 待排期任务
      */
     void receive(Task task) {
-        //updateAllTaskPriorityOnReceive doReceive needGrab 三个方法都需要读取 currFloor 一起做出正确的决策，所以要加读锁保证中间不会有写操作
-        currFloorLock.readLock().lock();
         if (task != null && !taskQueue.contains(task)) {
-            //接收新任务前要刷新所有任务的优先级
-            updateAllTaskPriorityOnReceive();
-            //当前任务定好优先级再放入队列
-            doReceive(task);
+            //doReceive needGrab 两个方法要基于同一个状态快照一起做出正确的决策
+            ElevatorState snapshot = state;
+            //队列里其它任务的优先级在取任务时才按电梯当前状态现算，这里只算新任务的，抢占判断要用
+            doReceive(snapshot, task);
             //如果当前任务比电梯正在执行的任务优先级还优先（priority较小，相等都不算），则发生任务抢占
-            currTaskLock.readLock().lock();
-            if (currTask != null && needGrab(task)) {
-                LOGGER.trace("{} grab {}", task, currFloor);
+            Task currTask = snapshot.getCurrTask();
+            if (currTask != null && needGrab(snapshot, currTask, task)) {
+                LOGGER.trace("{} grab {}", task, snapshot.getCurrFloor());
                 currTask.yield();
+                context.event(EventType.YIELD, id, snapshot.getCurrFloor().getFloorNo(),
+                        currTask.getSrcFloor().getFloorNo(), currTask.getDirection().ordinal());
             }
-            currTaskLock.readLock().unlock();
         }
-        currFloorLock.readLock().unlock();
     }
 
     /**
-     * 计算任务优先级，然后放入优先队列
+     * 计算任务优先级，然后放入任务队列
      *
      * @param task 要入队的任务
      */
-    private void doReceive(Task task) {
-        int priority = tryReceive(task);
+    private void doReceive(ElevatorState snapshot, Task task) {
+        int priority = tryReceive(snapshot, task);
         task.setPriority(priority);
         LOGGER.trace("get receive task {} priority {}", task, priority);
-        try {
-            taskQueue.put(task);
-        } catch (InterruptedException e) {
-            LOGGER.error("do receive task error", e);
-        }
-    }
-
-    /**
-     * 当接收任务时，更新所有任务列表里的任务优先级
-     */
-    private void updateAllTaskPriorityOnReceive() {
-        Collection<Task> tempTaskList = new ArrayList<>();
-        taskQueue.drainTo(tempTaskList);
-        tempTaskList.forEach(this::doReceive);
+        taskQueue.offer(task);
     }
 
     /**
      * 是否可以抢占
      * 重新计算当前任务的优先级，并和当前收到的任务进行比较
      *
-     * @param task
+     * @param snapshot 电梯状态快照
+     * @param currTask 正在执行的任务
+     * @param task     收到的任务
      * @return
      */
-    private boolean needGrab(Task task) {
-        int newPriority = tryReceive(currTask);
+    private boolean needGrab(ElevatorState snapshot, Task currTask, Task task) {
+        int newPriority = tryReceive(snapshot, currTask);
         currTask.setPriority(newPriority);
         LOGGER.trace("update current {} priority {}", currTask, newPriority);
         return task.isPriorityHigherThan(currTask);
@@ -156,36 +162,46 @@ public class Elevator implements Runnable {
      * @return 此任务可能的权重
      */
     public int tryReceive(Task task) {
-        return priorityCalculationStrategy.calcPriority(this, task);
+        return tryReceive(state, task);
+    }
+
+    /**
+     * 基于某个状态快照尝试receive task
+     *
+     * @param snapshot 电梯状态快照
+     * @param task
+     * @return 此任务可能的权重
+     */
+    public int tryReceive(ElevatorState snapshot, Task task) {
+        return priorityCalculationStrategy.calcPriority(snapshot, task);
     }
 
     /**
      * 电梯运行逻辑
+     * 启动电梯线程前，启动方要先替电梯 hold() 住上下文的时钟，电梯退出时会 release
      */
     @Override
     public void run() {
         while (true) {
-            Task task = null;
             try {
                 //get task
-                task = taskQueue.poll(10 * Env.ELAPSED_TIME, Env.TIME_UNIT);
+                Task task = context.getClock().poll(taskQueue,
+                        MAX_IDLE_STEPS * context.getConfig().getElapsedTime());
                 if (task == null) {
-                    throw new InterruptedException();
+                    //还会有用户来的时候一直等着
+                    if (context.isArrivalsFinished()) {
+                        break;
+                    }
+                    continue;
                 }
                 //execute it
-                execTask(task);
+                TaskOutcome outcome = execTask(task);
+                if (outcome != TaskOutcome.DONE) {
+                    abort(task, outcome);
+                }
             } catch (InterruptedException e) {
-                dispatcher.quit(this);
-                LOGGER.warn("{} has no task for a long time, so quit...", this);
+                LOGGER.warn("{} interrupted", this);
                 break;
-            } catch (TaskCancelledException e) {//任务被取消
-                LOGGER.warn("{} task {} has been cancelled", this, task);
-            } catch (CannotExecTaskException | UserInFloorTaskGrabbedException e) {//不能执行的任务要重新分配
-                LOGGER.warn("{} can not be executed by {} caused by {} so re-dispatching...", task, this, e);
-                dispatcher.redispatch(task);
-            } catch (UserInElevatorTaskGrabbedException e) {//电梯内用户任务被抢占，只能还是当前电梯处理其任务
-                LOGGER.warn("{} has been grabbed so delay execute ...", task);
-                receive(task);
             } catch (Throwable e) {//其它情况
                 LOGGER.error("unknown error:", e);
             } finally {
@@ -193,49 +209,200 @@ public class Elevator implements Runnable {
                 onIdle();
             }
         }
+        //启动电梯线程的一方已经替电梯hold了时钟，退出时要release，且要在quit之前，quit之后本轮模拟可能已经结束
+        context.getClock().release();
+        quit();
+    }
+
+    /**
+     * 单线程引擎下，电梯前进一个时间单位：没有当前任务就取一个任务，然后走到下一个停得了的楼层或者到达任务楼层
+     * 和 run() 一样，到达、装卸载、取下一个任务都不耗时，只有走楼层和有人上下时开关门耗时，耗时折成时间单位数向上取整；
+     * 速度快的电梯一个时间单位里走得完不止一站时，接着走下一站
+     *
+     * @return 电梯是否还在运行，长时间没有任务时会退出并返回false
+     */
+    public boolean step() {
+        if (busySteps > 0) {
+            busySteps--;
+            return true;
+        }
+        while (true) {
+            Task task = state.getCurrTask();
+            if (task == null) {
+                task = taskQueue.poll();
+                if (task == null) {
+                    if (++idleSteps >= MAX_IDLE_STEPS && context.isArrivalsFinished()) {
+                        quit();
+                        return false;
+                    }
+                    return true;
+                }
+                idleSteps = 0;
+            }
+            TaskOutcome outcome = task == state.getCurrTask() ? TaskOutcome.RUNNING : startTask(task);
+            if (outcome == TaskOutcome.RUNNING && !state.getCurrFloor().equals(task.getSrcFloor())) {
+                outcome = moveOneStop(task);
+                if (outcome == TaskOutcome.RUNNING) {
+                    //按离起步过了多久算到站在第几个时间单位，前后相减，一趟里各站取整的误差不会累加
+                    int moveSteps = steps(lastMoveTo) - steps(lastMoveFrom);
+                    if (moveSteps > 0) {
+                        busySteps = moveSteps - 1;
+                        return true;
+                    }
+                    continue;
+                }
+            }
+            int transferred = 0;
+            if (outcome == TaskOutcome.RUNNING) {
+                transferred = arrive(task);
+            } else {
+                abort(task, outcome);
+            }
+            //finish, i'm idle
+            onIdle();
+            int dwellSteps = steps(context.getConfig().dwellTime(transferred));
+            if (dwellSteps > 0) {
+                busySteps = dwellSteps;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return 一段时间折成几个时间单位，向上取整
+     */
+    private int steps(long duration) {
+        return (int) ((duration + elapsedTime - 1) / elapsedTime);
+    }
+
+    /**
+     * 任务无法继续执行时的处理
+     *
+     * @param task    被放弃的任务
+     * @param outcome 放弃的原因
+     */
+    private void abort(Task task, TaskOutcome outcome) {
+        switch (outcome) {
+            case CANCELLED://任务被取消
+                LOGGER.warn("{} task {} has been cancelled", this, task);
+                break;
+            case GRABBED_IN_ELEVATOR://电梯内用户任务被抢占，只能还是当前电梯处理其任务
+                context.event(EventType.GRAB, id, state.getCurrFloor().getFloorNo(), task.getSrcFloor().getFloorNo(),
+                        task.getDirection().ordinal());
+                receive(task);
+                break;
+            default://不能执行的任务要重新分配
+                context.event(EventType.REDISPATCH, id, state.getCurrFloor().getFloorNo(),
+                        task.getSrcFloor().getFloorNo(), outcome.ordinal());
+                dispatcher.redispatch(task);
+                break;
+        }
     }
 
     /**
      * 电梯空闲时要主动找dispatcher尝试领task
+     * 任务放弃了还有别的任务时电梯不停，接着走的同方向的站还算这一趟；没有任务了就停下
      */
     private void onIdle() {
         setCurrTask(null);
         setStatus(ElevatorStatus.IDLE);
+        if (taskQueue.isEmpty()) {
+            flightStart = 0;
+        }
     }
 
     /**
      * 执行任务逻辑
      *
      * @param task 待执行的任务
-     * @throws TaskCancelledException  执行过程中任务被取消的情况
-     * @throws CannotExecTaskException 执行过程中发现任务无法再执行的情况
-     */
-    private void execTask(Task task)
-            throws TaskCancelledException, CannotExecTaskException, UserInElevatorTaskGrabbedException,
-            InterruptedException, UserInFloorTaskGrabbedException {
-        if (task == null) {
-            return;
+     * @return 执行完成返回DONE，否则返回任务无法继续执行的原因
+     */
+    private TaskOutcome execTask(Task task) {
+        TaskOutcome outcome = startTask(task);
+        //1. move currFloor
+        while (outcome == TaskOutcome.RUNNING && !state.getCurrFloor().equals(task.getSrcFloor())) {
+            outcome = moveOneStop(task);
+            if (outcome == TaskOutcome.RUNNING) {
+                context.travel(lastMoveTo - lastMoveFrom);
+            }
+        }
+        if (outcome != TaskOutcome.RUNNING) {
+            return outcome;
         }
+        //2. unload and load
+        context.dwell(arrive(task));
+        return TaskOutcome.DONE;
+    }
+
+    /**
+     * 开始执行任务：检查任务能否执行，并让电梯朝任务楼层出发
+     *
+     * @param task 待执行的任务
+     * @return 可以执行返回RUNNING，任务已经被取消返回CANCELLED，无法执行返回CANNOT_EXEC
+     */
+    private TaskOutcome startTask(Task task) {
         setCurrTask(task);
         //以下为执行任务逻辑
         //无法执行：已经满载且当前楼层没人下的电梯，要将自身的任务重新交给dispatcher分配
-        if (currLoad.size() == MAX_LOAD && !canReduceLoad(task.getSrcFloor())) {
-            throw new CannotExecTaskException();
+        if (currLoad.size() == maxLoad && !canReduceLoad(task.getSrcFloor())) {
+            return TaskOutcome.CANNOT_EXEC;
         }
         //在任务执行之前检查已经被取消的任务
         if (task.getStatus().equals(TaskStatus.CANCELLED)) {
-            throw new TaskCancelledException();
+            return TaskOutcome.CANCELLED;
         }
-        LOGGER.info("{} start to execute {}", this, currTask);
-        //执行
-        //1. move currFloor
-        move(task);
-        //1.1 wherever task wanna go , elevator go
+        context.event(EventType.EXECUTE, id, state.getCurrFloor().getFloorNo(), task.getSrcFloor().getFloorNo(),
+                task.getDirection().ordinal());
+        //设置任务状态
+        task.setStatus(TaskStatus.RUNNING);
+        //设置电梯运行状态
+        Direction relativeDirection = task.getSrcFloor().locate(state.getCurrFloor());
+        setStatus(Direction.UP.equals(relativeDirection) ? ElevatorStatus.RUNNING_UP : ElevatorStatus.RUNNING_DOWN);
+        return TaskOutcome.RUNNING;
+    }
+
+    /**
+     * 到达任务楼层后，先卸载再装载
+     *
+     * @param task 当前任务
+     * @return 上下电梯的人数
+     */
+    private int arrive(Task task) {
+        flightStart = 0;
+        //wherever task wanna go , elevator go
         setStatus(task.getDirection().equals(Direction.DOWN) ? ElevatorStatus.RUNNING_DOWN : ElevatorStatus.RUNNING_UP);
-        //2. unload user
-        unload();
-        //3. load user who wanna go task's direction
-        load(task.getDirection());
+        //unload user
+        int transferred = unload();
+        //load user who wanna go task's direction
+        transferred += load(task);
+        if (task.isDestinationCall()) {
+            transferred += loadAlongside(task);
+        }
+        metrics.recordStop(transferred);
+        context.event(EventType.STOP, id, state.getCurrFloor().getFloorNo(), transferred, currLoad.size());
+        return transferred;
+    }
+
+    /**
+     * 目的层派梯时，分给本电梯的、同一楼层同一方向的其它目的层呼叫在这一站一起接走，
+     * 车内乘客在这一层下电梯的任务也已经完成，都不用再停一次
+     *
+     * @param task 当前任务
+     * @return 上电梯的人数
+     */
+    private int loadAlongside(Task task) {
+        Floor currFloor = state.getCurrFloor();
+        int loaded = 0;
+        for (Task other : taskQueue) {
+            if (!other.getSrcFloor().equals(currFloor)) {
+                continue;
+            }
+            boolean sameTrip = other.isDestinationCall() && other.getDirection() == task.getDirection();
+            if ((sameTrip || other.getDirection() == Direction.NONE) && taskQueue.remove(other) && sameTrip) {
+                loaded += load(other);
+            }
+        }
+        return loaded;
     }
 
     /**
@@ -248,85 +415,116 @@ public class Elevator implements Runnable {
         return currLoad.stream().anyMatch(user -> user.getTargetFloor().equals(floor));
     }
 
-    private void load(Direction direction) {
+    /**
+     * @return 上电梯的人数
+     */
+    private int load(Task task) {
         //楼层减少负载
-        Set<User> reduceSet = currFloor.reduce(direction, MAX_LOAD - currLoad.size());
+        Floor currFloor = state.getCurrFloor();
+        List<User> reduceSet = currFloor.reduce(task, maxLoad - currLoad.size());
         if (!reduceSet.isEmpty()) {
             //电梯增加负载
-            getCurrLoadLock().writeLock().lock();
             currLoad.addAll(reduceSet);
-            getCurrLoadLock().writeLock().unlock();
-            LOGGER.info("{} loading {} users: {}", this, reduceSet.size(), reduceSet);
+            setState(state.withLoadCount(currLoad.size()));
+            context.event(EventType.BOARD, id, currFloor.getFloorNo(), reduceSet.size(), currLoad.size());
             //每个上电梯的人都按一下想去的楼层
-            reduceSet.forEach(user -> {
-                user.enterElevator(this);
+            for (User user : reduceSet) {
+                //要换乘的人坐上了最后一程
+                if (user.isFinalLeg() && user.getTransfers() > 0) {
+                    context.finishTransfer();
+                }
+                long waitTime = user.enterElevator(this);
+                context.event(EventType.WAIT, id, currFloor.getFloorNo(), user.getTargetFloor().getFloorNo(),
+                        waitTime);
                 user.select(user.getTargetFloor());
-            });
+            }
         }
         //任务收尾
-        currFloor.done(direction);
+        currFloor.done(task);
+        return reduceSet.size();
     }
 
-    private void unload() {
+    /**
+     * 这一程到站的人下电梯，要换乘的人下了电梯接着在本楼层等下一程
+     *
+     * @return 下电梯的人数
+     */
+    private int unload() {
         //获取已经到目标楼层的人
+        Floor currFloor = state.getCurrFloor();
         Set<User> unloadSet = currLoad.stream()
                 .filter(user -> user.getTargetFloor().equals(currFloor))
                 .collect(Collectors.toSet());
         if (unloadSet.size() > 0) {
             //卸载掉
-            getCurrLoadLock().writeLock().lock();
             currLoad.removeAll(unloadSet);
-            getCurrLoadLock().writeLock().unlock();
-            LOGGER.info("{} unloading {} users:{}", this, unloadSet.size(), unloadSet);
+            setState(state.withLoadCount(currLoad.size()));
+            List<User> transferList = new ArrayList<>();
+            for (User user : unloadSet) {
+                boolean finalLeg = user.isFinalLeg();
+                long rideTime = user.leaveElevator();
+                if (finalLeg) {
+                    context.event(EventType.RIDE, id, currFloor.getFloorNo(),
+                            (int) Math.min(user.getJourneyWaitTime(rideTime), Integer.MAX_VALUE), rideTime);
+                } else {
+                    context.event(EventType.TRANSFER, id, currFloor.getFloorNo(),
+                            user.getDestination().getFloorNo(), rideTime);
+                    transferList.add(user);
+                }
+            }
+            context.event(EventType.ALIGHT, id, currFloor.getFloorNo(), unloadSet.size(), currLoad.size());
+            transferList.forEach(currFloor::transfer);
         }
+        return unloadSet.size();
     }
 
     /**
-     * 一层一层的去到某楼层，期间要检查任务是否已经被抢占
+     * 向任务楼层走到下一个停得了的楼层，走之前要检查任务是否已经被抢占
+     * 不属于梯群的电梯每层都停，走一层；梯群不停的楼层直达跳过，一次走完
+     * 要走多久按这一趟的速度曲线算：从起步楼层到任务楼层是一趟，记下这一站出发和到站时离起步过了多久；
+     * 掉头或者停过之后从当前楼层重新起步，中途任务楼层变了按新的一趟接着算
      *
-     * @param task
+     * @param task 当前任务
+     * @return 走了返回RUNNING，否则返回任务无法继续执行的原因
      */
-    private void move(Task task)
-            throws TaskCancelledException, UserInElevatorTaskGrabbedException, InterruptedException,
-            UserInFloorTaskGrabbedException {
-        //设置任务状态
-        task.setStatus(TaskStatus.RUNNING);
-
-        //设置电梯运行状态
-        Direction relativeDirection = task.getSrcFloor().locate(currFloor);
-        setStatus(Direction.UP.equals(relativeDirection) ? ElevatorStatus.RUNNING_UP : ElevatorStatus.RUNNING_DOWN);
-
-        //算好绝对距离，向目标楼层进发
-        int distance = Math.abs(Calc.calcDistance(currFloor, task.getSrcFloor()));
-        for (int i = 0; i < distance; i++) {
-            //执行过程中检查，已取消的任务停止执行
-            if (task.getStatus().equals(TaskStatus.CANCELLED)) {
-                throw new TaskCancelledException();
-            }
-            //执行过程中检查，已被抢占的任务停止执行
-            if (task.getStatus().equals(TaskStatus.RUNNABLE)) {
-                //电梯内用户的任务只能在当前电梯任务列表里重新分配，而电梯外用户的任务可以redispatch给其它的电梯，处理方式不同所以抛出不同的异常
-                if (task.getDirection().equals(Direction.NONE)) {
-                    throw new UserInElevatorTaskGrabbedException();
-                } else {
-                    throw new UserInFloorTaskGrabbedException();
-                }
-            }
-            //一定要先改变电梯的当前楼层，再楼层移动耗时。原因：当电梯门关上后，刚刚开始启动，这时即使还没到下一层楼，也要按下一层楼算了，因为当前楼层已经没机会上了，这和现实也是符合的
-            setCurrFloor(currFloor.next(relativeDirection));
-            Env.elapsed();
-            //电梯运行总里程+1
-            Env.TOTAL_ELEVATOR_MOVE_DISTANCE.incrementAndGet();
-            LOGGER.info("{} moving {}", this, getStatus());
+    private TaskOutcome moveOneStop(Task task) {
+        //执行过程中检查，已取消的任务停止执行
+        if (task.getStatus().equals(TaskStatus.CANCELLED)) {
+            return TaskOutcome.CANCELLED;
+        }
+        //执行过程中检查，已被抢占的任务停止执行
+        if (task.getStatus().equals(TaskStatus.RUNNABLE)) {
+            //电梯内用户的任务只能在当前电梯任务列表里重新分配，而电梯外用户的任务可以redispatch给其它的电梯，处理方式不同所以结果不同
+            return task.getDirection().equals(Direction.NONE)
+                    ? TaskOutcome.GRABBED_IN_ELEVATOR
+                    : TaskOutcome.GRABBED_IN_FLOOR;
         }
+        //一定要先改变电梯的当前楼层，再楼层移动耗时。原因：当电梯门关上后，刚刚开始启动，这时即使还没到下一层楼，也要按下一层楼算了，因为当前楼层已经没机会上了，这和现实也是符合的
+        Floor currFloor = state.getCurrFloor();
+        Direction direction = task.getSrcFloor().locate(currFloor);
+        int currFloorNo = currFloor.getFloorNo();
+        int sign = Direction.UP.equals(direction) ? 1 : -1;
+        if (flightStart == 0 || (currFloorNo - flightStart) * sign < 0) {
+            flightStart = currFloorNo;
+        }
+        setCurrFloor(currFloor.next(direction, bank));
+        int nextFloorNo = state.getCurrFloor().getFloorNo();
+        int flightFloors = Math.abs(task.getSrcFloor().getFloorNo() - flightStart);
+        lastMoveFrom = context.getConfig().passTime(flightFloors, Math.abs(currFloorNo - flightStart));
+        lastMoveTo = context.getConfig().passTime(flightFloors, Math.abs(nextFloorNo - flightStart));
+        //电梯运行里程加上走的层数
+        metrics.recordMove(currLoad.size(), Math.abs(nextFloorNo - currFloorNo));
+        context.event(EventType.MOVE, id, state.getCurrFloor().getFloorNo(), state.getStatus().ordinal(),
+                currLoad.size());
+        return TaskOutcome.RUNNING;
     }
 
     @Override
     public String toString() {
         return "Elevator{" +
                 "id=" + id +
-                ", currFloor=" + currFloor.getFloorNo() +
-                ", currLoad=" + currLoad +
+                ", currFloor=" + state.getCurrFloor().getFloorNo() +
+                ", currLoad=" + currLoad.size() +
                 '}';
     }
 
@@ -334,50 +532,154 @@ public class Elevator implements Runnable {
         return id;
     }
 
+    public int getMaxLoad() {
+        return maxLoad;
+    }
+
+    public ElevatorMetrics getMetrics() {
+        return metrics;
+    }
+
     public Dispatcher getDispatcher() {
         return dispatcher;
     }
 
+    /**
+     * @return 当前状态的快照，要基于同一状态做多个判断时，先取快照再读
+     */
+    public ElevatorState getState() {
+        return state;
+    }
+
     public ElevatorStatus getStatus() {
-        return status;
+        return state.getStatus();
     }
 
     private void setStatus(ElevatorStatus status) {
-        getStatusLock().writeLock().lock();
-        this.status = status;
-        getStatusLock().writeLock().unlock();
+        setState(state.withStatus(status));
     }
 
     public Floor getCurrFloor() {
-        return currFloor;
+        return state.getCurrFloor();
     }
 
     private void setCurrFloor(Floor currFloor) {
-        currFloorLock.writeLock().lock();
-        this.currFloor = currFloor;
-        currFloorLock.writeLock().unlock();
+        setState(state.withCurrFloor(currFloor));
     }
 
     private void setCurrTask(Task currTask) {
-        currTaskLock.writeLock().lock();
-        this.currTask = currTask;
-        currTaskLock.writeLock().unlock();
+        setState(state.withCurrTask(currTask));
+    }
+
+    /**
+     * 发布新的状态快照，楼层或者运行状态变了要更新位置索引
+     */
+    private void setState(ElevatorState newState) {
+        ElevatorState oldState = state;
+        state = newState;
+        if (index != null && (oldState.getCurrFloor() != newState.getCurrFloor()
+                || oldState.getStatus() != newState.getStatus())) {
+            index.move(this, oldState, newState);
+        }
+    }
+
+    /**
+     * 加入位置索引，要在电梯开始运行之前设置
+     */
+    public void setIndex(ElevatorIndex index) {
+        this.index = index;
+        index.add(this, state);
+    }
+
+    /**
+     * 从快照恢复电梯的状态、车里的人和任务列表，原来的都丢掉
+     * 要在设置了dispatcher、位置索引之后，开始运行之前调用
+     *
+     * @param state       状态快照，负载人数要和 currLoad 一致
+     * @param currLoad    车里的人
+     * @param queuedTasks 任务列表，按入队顺序
+     * @param idleSteps   单线程引擎下已经连续空闲的时间单位数
+     * @param busySteps   单线程引擎下还要忙的时间单位数
+     * @param flightStart 这一趟起步的楼层号，停着时为0
+     */
+    void restore(ElevatorState state, List<User> currLoad, List<Task> queuedTasks, int idleSteps, int busySteps,
+                 int flightStart) {
+        this.currLoad.clear();
+        this.currLoad.addAll(currLoad);
+        taskQueue.clear();
+        taskQueue.addAll(queuedTasks);
+        this.idleSteps = idleSteps;
+        this.busySteps = busySteps;
+        this.flightStart = flightStart;
+        setState(state);
+    }
+
+    int getIdleSteps() {
+        return idleSteps;
+    }
+
+    int getBusySteps() {
+        return busySteps;
+    }
+
+    int getFlightStart() {
+        return flightStart;
+    }
+
+    /**
+     * 退出运行，不再参与分配
+     */
+    void quit() {
+        if (index != null) {
+            index.remove(this, state);
+        }
+        dispatcher.quit(this);
+        LOGGER.warn("{} has no task for a long time, so quit...", this);
     }
 
     public void setDispatcher(Dispatcher dispatcher) {
         this.dispatcher = dispatcher;
     }
 
-    public Set<User> getCurrLoad() {
-        return currLoad;
+    /**
+     * @return 所属梯群，不分区时为null
+     */
+    public Bank getBank() {
+        return bank;
     }
 
-    public ReadWriteLock getCurrLoadLock() {
-        return currLoadLock;
+    /**
+     * 要在电梯开始运行之前设置，电梯要在梯群停的楼层上
+     */
+    public void setBank(Bank bank) {
+        if (bank != null && !bank.serves(state.getCurrFloor().getFloorNo())) {
+            throw new IllegalArgumentException(this + " is not on a floor served by " + bank);
+        }
+        this.bank = bank;
     }
 
-    public ReadWriteLock getStatusLock() {
-        return statusLock;
+    BlockingQueue<Task> getTaskQueue() {
+        return taskQueue;
+    }
+
+    /**
+     * @return 任务队列的快照，不保证顺序
+     */
+    public List<Task> getQueuedTasks() {
+        return taskQueue.snapshot();
+    }
+
+    /**
+     * 要和 getQueuedTasks 一起缓存时，先读版本再取快照，快照只会比版本新，缓存只会多失效不会用旧的
+     *
+     * @return 任务队列的版本，接收、取出、删除任务都会变
+     */
+    public long getQueueVersion() {
+        return taskQueue.version();
+    }
+
+    public Set<User> getCurrLoad() {
+        return currLoad;
     }
 
     @Override
@@ -0,0 +1,118 @@
+package biz.jared.domain;
+
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.domain.enumeration.ElevatorStatus;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 电梯位置索引：按运行状态分组，每组一个楼层位图和每层的电梯
+ * 电梯每次换楼层、换运行状态都更新索引，分配时找某层往上/往下最近的某状态电梯是位图的 nextSetBit/previousSetBit，不用遍历所有电梯
+ * 读写都加锁：电梯线程写、dispatcher线程读
+ *
+ * @author jared
+ */
+public class ElevatorIndex {
+    private final int floorNum;
+    /**
+     * occupied[status.ordinal()] 第i位是i层有这个状态的电梯
+     */
+    private final BitSet[] occupied;
+    /**
+     * elevators[status.ordinal()][floorNo] 是停在/经过这一层、这个状态的电梯
+     */
+    private final List<List<List<Elevator>>> elevators;
+    private int size;
+
+    /**
+     * @param floorNum 总楼层数，楼层号从1开始
+     */
+    public ElevatorIndex(int floorNum) {
+        this.floorNum = floorNum;
+        int statusNum = ElevatorStatus.values().length;
+        occupied = new BitSet[statusNum];
+        elevators = new ArrayList<>(statusNum);
+        for (int i = 0; i < statusNum; i++) {
+            occupied[i] = new BitSet(floorNum + 1);
+            List<List<Elevator>> floors = new ArrayList<>(floorNum + 1);
+            for (int floorNo = 0; floorNo <= floorNum; floorNo++) {
+                floors.add(new ArrayList<>(1));
+            }
+            elevators.add(floors);
+        }
+    }
+
+    synchronized void add(Elevator elevator, ElevatorState state) {
+        put(elevator, state);
+        size++;
+    }
+
+    synchronized void remove(Elevator elevator, ElevatorState state) {
+        if (take(elevator, state)) {
+            size--;
+        }
+    }
+
+    /**
+     * 电梯换了楼层或者运行状态
+     */
+    synchronized void move(Elevator elevator, ElevatorState from, ElevatorState to) {
+        if (take(elevator, from)) {
+            put(elevator, to);
+        }
+    }
+
+    private void put(Elevator elevator, ElevatorState state) {
+        int floorNo = state.getCurrFloor().getFloorNo();
+        elevators.get(state.getStatus().ordinal()).get(floorNo).add(elevator);
+        occupied[state.getStatus().ordinal()].set(floorNo);
+    }
+
+    private boolean take(Elevator elevator, ElevatorState state) {
+        int floorNo = state.getCurrFloor().getFloorNo();
+        List<Elevator> floorElevators = elevators.get(state.getStatus().ordinal()).get(floorNo);
+        boolean removed = floorElevators.remove(elevator);
+        if (floorElevators.isEmpty()) {
+            occupied[state.getStatus().ordinal()].clear(floorNo);
+        }
+        return removed;
+    }
+
+    /**
+     * @return 索引里的电梯数
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getFloorNum() {
+        return floorNum;
+    }
+
+    /**
+     * 从某楼层（含）开始，朝 searchDirection 方向找最近的有 status 状态电梯的楼层
+     *
+     * @param floorNo         开始找的楼层号，超出楼层范围时从最近的顶/底层开始
+     * @param searchDirection 找的方向，UP往高层找，DOWN往低层找
+     * @return 楼层号，没有时返回-1
+     */
+    public synchronized int nearest(ElevatorStatus status, int floorNo, Direction searchDirection) {
+        BitSet bits = occupied[status.ordinal()];
+        int found = Direction.UP.equals(searchDirection)
+                ? bits.nextSetBit(Math.max(floorNo, 1))
+                : bits.previousSetBit(Math.min(floorNo, floorNum));
+        return found <= 0 ? -1 : found;
+    }
+
+    /**
+     * @return 某楼层 status 状态的电梯，不可修改的快照
+     */
+    public synchronized List<Elevator> elevatorsAt(ElevatorStatus status, int floorNo) {
+        List<Elevator> floorElevators = elevators.get(status.ordinal()).get(floorNo);
+        return floorElevators.isEmpty() ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(floorElevators));
+    }
+}
@@ -0,0 +1,71 @@
+package biz.jared.domain;
+
+import biz.jared.domain.enumeration.ElevatorStatus;
+
+/**
+ * 电梯状态的不可变快照：楼层、运行状态、负载人数、当前任务
+ * 电梯每次改变状态都发布一个新快照（版本号+1），dispatcher和策略拿到一个快照后，无锁读取也能得到前后一致的状态
+ *
+ * @author jared
+ */
+public final class ElevatorState {
+    private final Floor currFloor;
+    private final ElevatorStatus status;
+    private final int loadCount;
+    private final Task currTask;
+    private final long version;
+
+    ElevatorState(Floor currFloor, ElevatorStatus status, int loadCount, Task currTask, long version) {
+        this.currFloor = currFloor;
+        this.status = status;
+        this.loadCount = loadCount;
+        this.currTask = currTask;
+        this.version = version;
+    }
+
+    ElevatorState withCurrFloor(Floor currFloor) {
+        return new ElevatorState(currFloor, status, loadCount, currTask, version + 1);
+    }
+
+    ElevatorState withStatus(ElevatorStatus status) {
+        return new ElevatorState(currFloor, status, loadCount, currTask, version + 1);
+    }
+
+    ElevatorState withLoadCount(int loadCount) {
+        return new ElevatorState(currFloor, status, loadCount, currTask, version + 1);
+    }
+
+    ElevatorState withCurrTask(Task currTask) {
+        return new ElevatorState(currFloor, status, loadCount, currTask, version + 1);
+    }
+
+    public Floor getCurrFloor() {
+        return currFloor;
+    }
+
+    public ElevatorStatus getStatus() {
+        return status;
+    }
+
+    public int getLoadCount() {
+        return loadCount;
+    }
+
+    public Task getCurrTask() {
+        return currTask;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "ElevatorState{" +
+                "currFloor=" + currFloor.getFloorNo() +
+                ", status=" + status +
+                ", loadCount=" + loadCount +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -1,10 +1,15 @@
 package biz.jared.domain;
 
 import biz.jared.domain.enumeration.Direction;
+import biz.jared.event.EventType;
 
-import java.util.*;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author jared
@@ -12,55 +17,68 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class Floor {
 
     private int floorNo;
-    private Floor preFloor, nextFloor;
     /**
-     * 当前楼层往上走的等候人群
+     * 所在楼宇，找相邻楼层、登记呼叫用
      */
-    private Set<User> waitingUpUserSet = new HashSet<>(100);
+    private Building building;
     /**
-     * 当前楼层往下走的等候人群
+     * 当前楼层往上走的等候人群
      */
-    private Set<User> waitingDownUserSet = new HashSet<>(100);
+    private final UserQueue waitingUpQueue = new UserQueue();
     /**
-     * 向上等候人群读写锁，杜绝并发异常，因为waitingUpUserSet可能会同时在main线程里写，在电梯线程里读
+     * 当前楼层往下走的等候人群
      */
-    private ReadWriteLock upUserSetLock = new ReentrantReadWriteLock();
+    private final UserQueue waitingDownQueue = new UserQueue();
     /**
-     * 向下等候人群读写锁，杜绝并发异常
+     * 已经有人表达说要去的方向上的任务，按 Direction.ordinal() 存放，没人要去的方向为null
      */
-    private ReadWriteLock downUserSetLock = new ReentrantReadWriteLock();
+    private final Task[] directionTasks = new Task[Direction.values().length];
     /**
-     * 已经有人表达说要去的方向集合
+     * 目的层派梯时，已经登记的目的层呼叫，按目标楼层存放，同一目标楼层只有一个任务
      */
-    private Map<Direction, Task> waitingDirectionMap = new HashMap<>(Direction.values().length);
+    private final Map<Floor, Task> destinationTasks = new HashMap<>();
     /**
-     * waitingDirectionMap可能会同时在main线程里读，在电梯线程里写
+     * 等候人群和方向任务可能会同时在产生用户的线程里写，在电梯线程里读写，用一把锁一起保护
      */
-    private ReadWriteLock waitingDirectionMapLock = new ReentrantReadWriteLock();
+    private final Lock lock = new ReentrantLock();
     /**
      * 整个电梯的调度
      */
     private Dispatcher dispatcher;
 
+    /**
+     * 不属于任何楼宇的单独楼层，没有相邻楼层
+     */
     public Floor(int floorNo) {
         this.floorNo = floorNo;
     }
 
+    Floor(int floorNo, Building building) {
+        this.floorNo = floorNo;
+        this.building = building;
+    }
+
     public int getFloorNo() {
         return floorNo;
     }
 
-    Floor next(Direction direction) {
-        return Direction.UP.equals(direction) ? nextFloor : preFloor;
+    /**
+     * @return 所在楼宇，单独的楼层返回null
+     */
+    Building getBuilding() {
+        return building;
     }
 
-    public void next(Floor nextFloor) {
-        this.nextFloor = nextFloor;
-        nextFloor.previous(this);
+    Floor next(Direction direction) {
+        return building == null ? null : building.next(this, direction);
     }
 
-    private void previous(Floor preFloor) {
-        this.preFloor = preFloor;
+    /**
+     * @param bank 电梯所属的梯群，为null时停所有楼层
+     * @return 朝 direction 方向下一个电梯停得了的楼层，没有时返回null
+     */
+    Floor next(Direction direction, Bank bank) {
+        return building == null ? null : building.next(this, direction, bank);
     }
 
     /**
@@ -69,69 +87,135 @@ public class Floor {
      * @param user
      */
     public void add(User user, Direction direction) {
-        //给相应方向上的等待队列加用户
-        if (direction.equals(Direction.UP)) {
-            upUserSetLock.writeLock().lock();
-            waitingUpUserSet.add(user);
-            upUserSetLock.writeLock().unlock();
-        } else if (direction.equals(Direction.DOWN)) {
-            downUserSetLock.writeLock().lock();
-            waitingDownUserSet.add(user);
-            downUserSetLock.writeLock().unlock();
-        }
-        //给楼层加当前方向上的任务
-        addDirectionTask(direction);
-        //用户等待时间开始计时
-        user.getStopwatch().start();
+        enqueue(user, direction, true);
+    }
+
+    /**
+     * 换乘的人在本楼层下了电梯，接着等下一程的电梯
+     * 只有分区楼宇才会换乘，按目标楼层呼叫，方向由下一程的目标楼层决定
+     *
+     * @param user
+     */
+    void transfer(User user) {
+        enqueue(user, Direction.NONE, false);
+    }
+
+    /**
+     * @param arrival 是否是新来的人，换乘的人不记到达事件
+     */
+    private void enqueue(User user, Direction direction, boolean arrival) {
+        boolean destinationDispatch = building != null && building.isDestinationDispatch();
+        if (destinationDispatch) {
+            //分区楼宇里先定这一程坐到哪一层
+            user.route(building.nextLeg(this, user.getDestination()));
+            //厅外登记的是目标楼层，方向由目标楼层决定，不会按错
+            direction = locate(user.getTargetFloor()).opposite();
+            //要换乘的人从到达起就算在途，否则第一程还在排队时下一程的电梯可能已经退出了
+            if (arrival && !user.isFinalLeg()) {
+                dispatcher.getContext().startTransfer();
+            }
+        }
+        //用户等待时间开始计时，要在进等待队列、分配任务之前，否则电梯线程可能先把人接走
+        user.startWaiting();
+        lock.lock();
+        try {
+            //给相应方向上的等待队列加用户
+            UserQueue waitingQueue = waitingQueue(direction);
+            if (waitingQueue != null) {
+                waitingQueue.add(user);
+            }
+            if (arrival) {
+                event(EventType.ARRIVE, user.getDestination().getFloorNo(), direction.ordinal());
+            }
+            if (destinationDispatch) {
+                //给楼层加去这个目标楼层的任务
+                addDestinationTask(user.getTargetFloor());
+            } else {
+                //给楼层加当前方向上的任务
+                addDirectionTask(direction);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
+    /**
+     * 调用时必须持有lock
+     */
     private void addDirectionTask(Direction direction) {
         //只有之前没人说要去的方向才可以建任务，已经有人说要去的方向就不用再说一次了
-        waitingDirectionMapLock.readLock().lock();
-        if (!waitingDirectionMap.containsKey(direction)) {
+        if (directionTasks[direction.ordinal()] == null) {
             Task task = Task.generate(this, direction);
-            waitingDirectionMap.put(direction, task);
+            directionTasks[direction.ordinal()] = task;
+            setHallCall(direction, true);
+            event(EventType.HALL_CALL, direction.ordinal(), 0);
+            dispatcher.dispatch(task);
+        }
+    }
+
+    /**
+     * 调用时必须持有lock
+     */
+    private void addDestinationTask(Floor targetFloor) {
+        //同一目标楼层已经登记过，和先来的人坐同一部电梯
+        if (!destinationTasks.containsKey(targetFloor)) {
+            Task task = Task.generate(this, targetFloor);
+            destinationTasks.put(targetFloor, task);
+            setHallCall(task.getDirection(), true);
+            event(EventType.HALL_CALL, task.getDirection().ordinal(), targetFloor.getFloorNo());
             dispatcher.dispatch(task);
         }
-        waitingDirectionMapLock.readLock().unlock();
     }
 
     /**
-     * 楼层可以减少num人
+     * 楼层可以减少num人，先来的先上
      *
      * @param direction 可以带走向哪个方向走的人
      * @param num       可以减少的人数
-     * @return 减少的人集合
-     */
-    Set<User> reduce(Direction direction, int num) {
-        Set<User> reduceSet = new HashSet<>(num);
-        //准备接走哪一个方向的人，另一个方向的人不能上
-        Set<User> waitingUserSet = null;
-        ReadWriteLock userSetLock = null;
-        if (direction.equals(Direction.UP)) {
-            waitingUserSet = waitingUpUserSet;
-            userSetLock = upUserSetLock;
-        } else if (direction.equals(Direction.DOWN)) {
-            waitingUserSet = waitingDownUserSet;
-            userSetLock = downUserSetLock;
-        }
-        //电梯剩余负载大于所有等候人数的情况，全上。否则只上随机的一部分
-        if (waitingUserSet != null) {
-            userSetLock.readLock().lock();
-            if (num >= waitingUserSet.size()) {
-                reduceSet.addAll(waitingUserSet);
-                waitingUserSet.clear();
-            } else {
-                Iterator<User> iterator = waitingUserSet.iterator();
-                while (reduceSet.size() < num) {
-                    User next = iterator.next();
-                    iterator.remove();
-                    reduceSet.add(next);
-                }
+     * @return 减少的人
+     */
+    List<User> reduce(Direction direction, int num) {
+        lock.lock();
+        try {
+            //准备接走哪一个方向的人，另一个方向的人不能上
+            UserQueue waitingQueue = waitingQueue(direction);
+            if (waitingQueue == null || waitingQueue.isEmpty() || num <= 0) {
+                return Collections.emptyList();
+            }
+            List<User> reduceList = new ArrayList<>(Math.min(num, waitingQueue.size()));
+            while (reduceList.size() < num && !waitingQueue.isEmpty()) {
+                reduceList.add(waitingQueue.poll());
+            }
+            return reduceList;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 接走任务要接的人，最多num人，先来的先上
+     * 目的层呼叫只接要去任务目标楼层的人，其它呼叫接任务方向上的人
+     *
+     * @param task 电梯正在执行的任务
+     * @param num  可以减少的人数
+     * @return 减少的人
+     */
+    List<User> reduce(Task task, int num) {
+        if (!task.isDestinationCall()) {
+            return reduce(task.getDirection(), num);
+        }
+        lock.lock();
+        try {
+            UserQueue waitingQueue = waitingQueue(task.getDirection());
+            List<User> reduceList = new ArrayList<>();
+            User user;
+            while (reduceList.size() < num && (user = waitingQueue.poll(task.getTargetFloor())) != null) {
+                reduceList.add(user);
             }
-            userSetLock.readLock().unlock();
+            return reduceList;
+        } finally {
+            lock.unlock();
         }
-        return reduceSet;
     }
 
     /**
@@ -140,24 +224,174 @@ public class Floor {
      * @param direction
      */
     void cancel(Direction direction) {
-        if (waitingDirectionMap.containsKey(direction)) {
-            dispatcher.cancel(waitingDirectionMap.get(direction));
-            waitingDirectionMapLock.writeLock().lock();
-            waitingDirectionMap.remove(direction);
-            waitingDirectionMapLock.writeLock().unlock();
+        lock.lock();
+        try {
+            Task task = directionTasks[direction.ordinal()];
+            if (task != null) {
+                dispatcher.cancel(task);
+                directionTasks[direction.ordinal()] = null;
+                setHallCall(direction, false);
+                event(EventType.CANCEL, direction.ordinal(), 0);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 没有电梯能执行这个任务：等它的人都走掉，任务收尾
+     *
+     * @param task 没有电梯能执行的任务
+     * @return 走掉的人
+     */
+    List<User> abandon(Task task) {
+        lock.lock();
+        try {
+            List<User> abandonList = reduce(task, Integer.MAX_VALUE);
+            dispatcher.cancel(task);
+            done(task);
+            return abandonList;
+        } finally {
+            lock.unlock();
         }
     }
 
     void done(Direction direction) {
-        if (waitingDirectionMap.containsKey(direction)) {
-            waitingDirectionMapLock.writeLock().lock();
-            waitingDirectionMap.remove(direction);
-            waitingDirectionMapLock.writeLock().unlock();
-            //当电梯因为满载而无法全部把人带走时，继续产生新的任务
-            Set<User> remainingUsers = direction.equals(Direction.UP) ? waitingUpUserSet : waitingDownUserSet;
-            if (!remainingUsers.isEmpty()) {
-                addDirectionTask(direction);
+        lock.lock();
+        try {
+            if (directionTasks[direction.ordinal()] != null) {
+                directionTasks[direction.ordinal()] = null;
+                setHallCall(direction, false);
+                event(EventType.HALL_DONE, direction.ordinal(), 0);
+                //当电梯因为满载而无法全部把人带走时，继续产生新的任务
+                UserQueue remainingQueue = waitingQueue(direction);
+                if (remainingQueue != null && !remainingQueue.isEmpty()) {
+                    addDirectionTask(direction);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 任务收尾
+     *
+     * @param task 电梯执行完的任务
+     */
+    void done(Task task) {
+        if (!task.isDestinationCall()) {
+            done(task.getDirection());
+            return;
+        }
+        lock.lock();
+        try {
+            Floor targetFloor = task.getTargetFloor();
+            if (destinationTasks.get(targetFloor) == task) {
+                destinationTasks.remove(targetFloor);
+                event(EventType.HALL_DONE, task.getDirection().ordinal(), targetFloor.getFloorNo());
+                if (waitingQueue(task.getDirection()).contains(targetFloor)) {
+                    //电梯满载没接完，继续产生新的任务
+                    addDestinationTask(targetFloor);
+                } else if (destinationTasks.values().stream()
+                        .noneMatch(other -> other.getDirection() == task.getDirection())) {
+                    setHallCall(task.getDirection(), false);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 某方向上等电梯的人，按先来后到
+     */
+    List<User> getWaitingUsers(Direction direction) {
+        lock.lock();
+        try {
+            return waitingQueue(direction).snapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 某方向上已经登记的方向任务，没有时返回null
+     */
+    Task getDirectionTask(Direction direction) {
+        lock.lock();
+        try {
+            return directionTasks[direction.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 已经登记的目的层呼叫
+     */
+    List<Task> getDestinationTasks() {
+        lock.lock();
+        try {
+            return new ArrayList<>(destinationTasks.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 从快照恢复等电梯的人和已经登记的呼叫，原来的都丢掉，不再分配任务也不记事件
+     *
+     * @param waitingUp        往上走等电梯的人，按先来后到
+     * @param waitingDown      往下走等电梯的人，按先来后到
+     * @param upTask           上行的方向任务，可以为null
+     * @param downTask         下行的方向任务，可以为null
+     * @param destinationTasks 目的层呼叫
+     */
+    void restore(List<User> waitingUp, List<User> waitingDown, Task upTask, Task downTask,
+                 List<Task> destinationTasks) {
+        lock.lock();
+        try {
+            waitingUpQueue.clear();
+            waitingUp.forEach(waitingUpQueue::add);
+            waitingDownQueue.clear();
+            waitingDown.forEach(waitingDownQueue::add);
+            directionTasks[Direction.UP.ordinal()] = upTask;
+            directionTasks[Direction.DOWN.ordinal()] = downTask;
+            this.destinationTasks.clear();
+            destinationTasks.forEach(task -> this.destinationTasks.put(task.getTargetFloor(), task));
+            for (Direction direction : new Direction[]{Direction.UP, Direction.DOWN}) {
+                setHallCall(direction, directionTasks[direction.ordinal()] != null
+                        || destinationTasks.stream().anyMatch(task -> task.getDirection() == direction));
             }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private UserQueue waitingQueue(Direction direction) {
+        switch (direction) {
+            case UP:
+                return waitingUpQueue;
+            case DOWN:
+                return waitingDownQueue;
+            default:
+                return null;
+        }
+    }
+
+    private void setHallCall(Direction direction, boolean on) {
+        if (building != null) {
+            building.setHallCall(this, direction, on);
+        }
+    }
+
+    /**
+     * 记一条本楼层的事件，参数的含义见 EventType
+     */
+    private void event(EventType type, int arg, long value) {
+        if (dispatcher != null) {
+            dispatcher.getContext().event(type, EventType.NO_ELEVATOR, floorNo, arg, value);
         }
     }
 
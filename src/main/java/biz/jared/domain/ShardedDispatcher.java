@@ -0,0 +1,192 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationContext;
+import biz.jared.simulation.SimulationClock;
+import biz.jared.strategy.DispatchStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 分片的任务调度器，电梯多的楼宇群用，不再让所有任务排队等一个dispatcher线程
+ * 楼层按楼层号分成连续的几段，每段一个分片，电梯轮流归到各个分片；每个分片一个线程，只在本分片的电梯里选
+ * 本分片的电梯都选不出来时（满载或者都已退出）再到全部电梯里选
+ * 某个分片的线程没活干时，从其它分片的队尾偷任务来分配
+ * 分片线程和电梯线程一样，从启动到退出一直是时钟的参与者，没任务时通过时钟等待
+ *
+ * @author jared
+ */
+public class ShardedDispatcher extends Dispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedDispatcher.class);
+
+    private final Shard[] shards;
+    /**
+     * 总楼层数，按楼层号划分分片用
+     */
+    private final int floorNum;
+    /**
+     * 没任务时等待、选不出电梯时重试的间隔
+     */
+    private final int elapsedTime;
+    /**
+     * 分片线程所用的时钟
+     */
+    private final SimulationClock clock;
+    /**
+     * 运行各分片线程的线程池
+     */
+    private final ExecutorService workerPool;
+    /**
+     * 所有电梯都退出后为true，分片线程退出
+     */
+    private volatile boolean stopped;
+
+    /**
+     * @param shardNum      分片数，也是dispatcher的线程数
+     * @param threadFactory dispatcher线程的工厂
+     */
+    public ShardedDispatcher(SimulationContext context, List<Elevator> elevatorList,
+                             DispatchStrategy dispatchStrategy, int shardNum, ThreadFactory threadFactory) {
+        super(context, elevatorList, dispatchStrategy, (ExecutorService) null);
+        if (shardNum <= 0) {
+            throw new IllegalArgumentException("shardNum must be positive: " + shardNum);
+        }
+        this.floorNum = context.getConfig().getFloorNum();
+        this.elapsedTime = context.getConfig().getElapsedTime();
+        this.clock = context.getClock();
+        this.shards = new Shard[shardNum];
+        for (int i = 0; i < shardNum; i++) {
+            shards[i] = new Shard(i);
+        }
+        for (int i = 0; i < elevatorList.size(); i++) {
+            shards[i % shardNum].elevatorList.add(elevatorList.get(i));
+        }
+        this.workerPool = Executors.newFixedThreadPool(shardNum, threadFactory);
+        for (Shard shard : shards) {
+            //先替分片线程hold住时钟，分片线程退出时release
+            clock.hold();
+            workerPool.execute(() -> {
+                try {
+                    work(shard);
+                } finally {
+                    clock.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * 任务放入所属楼层段的分片
+     *
+     * @param task
+     */
+    @Override
+    void dispatch(Task task) {
+        if (task == null || stopped) {
+            return;
+        }
+        shardOf(task).taskDeque.addLast(task);
+    }
+
+    @Override
+    void quit(Elevator elevator) {
+        for (Shard shard : shards) {
+            shard.elevatorList.remove(elevator);
+        }
+        super.quit(elevator);
+    }
+
+    /**
+     * 分片线程退出，还没分配的任务丢弃
+     */
+    @Override
+    void onNoElevatorLeft() {
+        stopped = true;
+        workerPool.shutdownNow();
+    }
+
+    /**
+     * @return 任务所在楼层所属的分片
+     */
+    private Shard shardOf(Task task) {
+        int index = (task.getSrcFloor().getFloorNo() - 1) * shards.length / floorNum;
+        return shards[Math.max(0, Math.min(shards.length - 1, index))];
+    }
+
+    /**
+     * 分片线程：先取本分片的队头，没有就偷其它分片的队尾，都没有就在本分片的队列上等一个时间单位
+     */
+    private void work(Shard shard) {
+        try {
+            while (!stopped) {
+                Task task = take(shard);
+                if (task == null) {
+                    task = clock.poll(shard.taskDeque, elapsedTime);
+                }
+                //偷来的任务也要在任务所属分片的电梯里选，如果选不出来电梯，就一直重试
+                while (task != null && !tryDispatch(task, shardOf(task))) {
+                    if (stopped) {
+                        LOGGER.warn("no elevator left, give up dispatching {}", task);
+                        return;
+                    }
+                    clock.sleep(elapsedTime);
+                    LOGGER.warn(
+                            "dispatcher can't select one elevator, maybe all of them are in max load , retry dispatch...");
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("shard {} dispatcher interrupted, quit", shard.index);
+        }
+    }
+
+    /**
+     * 先在本分片的电梯里选，选不出来再在全部电梯里选
+     * 分区楼宇里电梯已经按梯群分开了，直接在能去的梯群里选
+     */
+    private boolean tryDispatch(Task task, Shard shard) {
+        if (isZoned()) {
+            return tryDispatch(task);
+        }
+        if (!shard.elevatorList.isEmpty() && tryDispatch(task, shard.elevatorList)) {
+            return true;
+        }
+        List<Elevator> elevatorList = getElevatorList();
+        return !elevatorList.isEmpty() && tryDispatch(task, elevatorList);
+    }
+
+    private Task take(Shard shard) {
+        Task task = shard.taskDeque.pollFirst();
+        for (int i = 1; task == null && i < shards.length; i++) {
+            task = shards[(shard.index + i) % shards.length].taskDeque.pollLast();
+            if (task != null) {
+                LOGGER.debug("shard {} steal {}", shard.index, task);
+            }
+        }
+        return task;
+    }
+
+    /**
+     * 一个楼层段的分片
+     */
+    private static final class Shard {
+        private final int index;
+        /**
+         * 归本分片管的电梯
+         */
+        private final List<Elevator> elevatorList = new CopyOnWriteArrayList<>();
+        /**
+         * 本分片待分配的任务，本分片线程从队头取，其它分片线程从队尾偷
+         */
+        private final LinkedBlockingDeque<Task> taskDeque = new LinkedBlockingDeque<>();
+
+        private Shard(int index) {
+            this.index = index;
+        }
+    }
+}
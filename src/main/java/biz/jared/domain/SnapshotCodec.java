@@ -0,0 +1,308 @@
+package biz.jared.domain;
+
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.domain.enumeration.ElevatorStatus;
+import biz.jared.domain.enumeration.TaskStatus;
+import com.google.common.base.Ticker;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 把单线程引擎下楼宇、电梯、调度器的状态写进快照，以及从快照恢复
+ * 同一个任务对象会同时挂在楼层、电梯的任务列表、调度器的积压队列上，被抢占、被取消的状态是共享的，
+ * 所以任务先按第一次出现的顺序编号写成一张表，其它地方只写编号，恢复出来的还是同一个对象
+ * <pre>
+ * floorNum(short) elevatorNum(short)
+ * 任务表：taskNum(int)，每个任务 id(int) srcFloorNo(short) direction(byte) targetFloorNo(short) status(byte) priority(int)
+ * 楼层：  每层 上行任务(int) 下行任务(int) 目的层呼叫数(short) 任务... 上行等候的人 下行等候的人
+ * 电梯：  每部 id(int) running(byte) floorNo(short) status(byte) 当前任务(int) version(long) idleSteps(int)
+ *         busySteps(int) flightStart(short) 车里的人 任务数(int) 任务...
+ * 调度器：积压任务数(int) 任务...
+ * </pre>
+ * 任务写编号，没有时为-1；目标楼层为0表示不是目的层呼叫；
+ * 等候的人 人数(int)，每人 name(UTF) targetFloorNo(short) waitStartNanos(long) destinationFloorNo(short)
+ * journeyStartNanos(long) transfers(short)；
+ * 车里的人 人数(short)，每人再加 rideStartNanos(long) waitTime(long)
+ *
+ * @author jared
+ */
+public final class SnapshotCodec {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final ElevatorStatus[] ELEVATOR_STATUSES = ElevatorStatus.values();
+    private static final TaskStatus[] TASK_STATUSES = TaskStatus.values();
+    private static final int NO_TASK = -1;
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * 写出所有电梯、所在楼宇的楼层和调度器的状态，要在两个时间单位之间调用
+     *
+     * @param elevatorList 所有电梯，包括已经退出的，它们在同一个楼宇里
+     * @param dispatcher   调度这些电梯的调度器
+     */
+    public static void write(DataOutput out, List<Elevator> elevatorList, SteppedDispatcher dispatcher)
+            throws IOException {
+        Building building = building(elevatorList);
+        List<Floor> floorList = building.getFloorList();
+        List<Elevator> runningList = dispatcher.getElevatorList();
+        List<Task> pendingTasks = dispatcher.getPendingTasks();
+
+        TaskTable tasks = new TaskTable();
+        for (Floor floor : floorList) {
+            tasks.add(floor.getDirectionTask(Direction.UP));
+            tasks.add(floor.getDirectionTask(Direction.DOWN));
+            floor.getDestinationTasks().forEach(tasks::add);
+        }
+        for (Elevator elevator : elevatorList) {
+            tasks.add(elevator.getState().getCurrTask());
+            elevator.getQueuedTasks().forEach(tasks::add);
+        }
+        pendingTasks.forEach(tasks::add);
+
+        out.writeShort(floorList.size());
+        out.writeShort(elevatorList.size());
+        out.writeInt(tasks.taskList.size());
+        for (Task task : tasks.taskList) {
+            out.writeInt(task.getId());
+            out.writeShort(task.getSrcFloor().getFloorNo());
+            out.writeByte(task.getDirection().ordinal());
+            out.writeShort(task.isDestinationCall() ? task.getTargetFloor().getFloorNo() : 0);
+            out.writeByte(task.getStatus().ordinal());
+            out.writeInt(task.getPriority());
+        }
+        for (Floor floor : floorList) {
+            out.writeInt(tasks.id(floor.getDirectionTask(Direction.UP)));
+            out.writeInt(tasks.id(floor.getDirectionTask(Direction.DOWN)));
+            List<Task> destinationTasks = floor.getDestinationTasks();
+            out.writeShort(destinationTasks.size());
+            for (Task task : destinationTasks) {
+                out.writeInt(tasks.id(task));
+            }
+            writeWaitingUsers(out, floor.getWaitingUsers(Direction.UP));
+            writeWaitingUsers(out, floor.getWaitingUsers(Direction.DOWN));
+        }
+        for (Elevator elevator : elevatorList) {
+            ElevatorState state = elevator.getState();
+            out.writeInt(elevator.getId());
+            out.writeBoolean(runningList.contains(elevator));
+            out.writeShort(state.getCurrFloor().getFloorNo());
+            out.writeByte(state.getStatus().ordinal());
+            out.writeInt(tasks.id(state.getCurrTask()));
+            out.writeLong(state.getVersion());
+            out.writeInt(elevator.getIdleSteps());
+            out.writeInt(elevator.getBusySteps());
+            out.writeShort(elevator.getFlightStart());
+            out.writeShort(elevator.getCurrLoad().size());
+            for (User user : elevator.getCurrLoad()) {
+                writeUser(out, user);
+                out.writeLong(user.getRideStartNanos());
+                out.writeLong(user.getWaitTime());
+            }
+            List<Task> queuedTasks = elevator.getQueuedTasks();
+            out.writeInt(queuedTasks.size());
+            for (Task task : queuedTasks) {
+                out.writeInt(tasks.id(task));
+            }
+        }
+        out.writeInt(pendingTasks.size());
+        for (Task task : pendingTasks) {
+            out.writeInt(tasks.id(task));
+        }
+    }
+
+    /**
+     * 把快照里的状态恢复到新建的一套楼宇、电梯、调度器上
+     * 电梯要已经设置好dispatcher、位置索引，楼层要已经设置好dispatcher；恢复时不分配任务，也不记事件
+     * 快照时已经退出的电梯在这里退出
+     *
+     * @param elevatorList 所有电梯，数量、id要和快照时一样
+     * @param dispatcher   调度这些电梯的调度器，还没有积压任务
+     * @return 还在运行的电梯，顺序同 elevatorList
+     * @throws IOException              快照内容不完整或者有不存在的楼层、任务
+     * @throws IllegalArgumentException 楼层数、电梯和快照时的不一样
+     */
+    public static List<Elevator> read(DataInput in, List<Elevator> elevatorList, SteppedDispatcher dispatcher)
+            throws IOException {
+        Building building = building(elevatorList);
+        int floorNum = in.readShort();
+        int elevatorNum = in.readShort();
+        if (floorNum != building.getFloorNum() || elevatorNum != elevatorList.size()) {
+            throw new IllegalArgumentException("snapshot of " + floorNum + " floors and " + elevatorNum
+                    + " elevators can't be restored into " + building.getFloorNum() + " floors and "
+                    + elevatorList.size() + " elevators");
+        }
+        Ticker ticker = dispatcher.getContext().getClock().ticker();
+
+        Task[] tasks = new Task[in.readInt()];
+        for (int i = 0; i < tasks.length; i++) {
+            int id = in.readInt();
+            Floor srcFloor = floor(building, in.readShort());
+            Direction direction = DIRECTIONS[ordinal(in.readByte(), DIRECTIONS.length)];
+            int targetFloorNo = in.readShort();
+            Floor targetFloor = targetFloorNo == 0 ? null : floor(building, targetFloorNo);
+            TaskStatus status = TASK_STATUSES[ordinal(in.readByte(), TASK_STATUSES.length)];
+            tasks[i] = Task.restore(id, srcFloor, direction, targetFloor, status, in.readInt());
+        }
+        for (Floor floor : building.getFloorList()) {
+            Task upTask = task(tasks, in.readInt());
+            Task downTask = task(tasks, in.readInt());
+            List<Task> destinationTasks = readTasks(in, tasks, in.readShort());
+            List<User> waitingUp = readWaitingUsers(in, building, ticker);
+            List<User> waitingDown = readWaitingUsers(in, building, ticker);
+            floor.restore(waitingUp, waitingDown, upTask, downTask, destinationTasks);
+            //等电梯的人里要换乘的，到坐上最后一程之前都在途
+            countTransfers(dispatcher, waitingUp, User::isTransferJourney);
+            countTransfers(dispatcher, waitingDown, User::isTransferJourney);
+        }
+        List<Elevator> runningList = new ArrayList<>(elevatorNum);
+        List<Elevator> quitList = new ArrayList<>();
+        for (Elevator elevator : elevatorList) {
+            int id = in.readInt();
+            if (id != elevator.getId()) {
+                throw new IllegalArgumentException("snapshot of elevator " + id + " can't be restored into "
+                        + elevator);
+            }
+            (in.readBoolean() ? runningList : quitList).add(elevator);
+            Floor currFloor = floor(building, in.readShort());
+            ElevatorStatus status = ELEVATOR_STATUSES[ordinal(in.readByte(), ELEVATOR_STATUSES.length)];
+            Task currTask = task(tasks, in.readInt());
+            long version = in.readLong();
+            int idleSteps = in.readInt();
+            int busySteps = in.readInt();
+            int flightStart = in.readShort();
+            int loadCount = in.readShort();
+            if (loadCount > elevator.getMaxLoad()) {
+                throw new IllegalArgumentException("snapshot of " + loadCount + " users in elevator " + id
+                        + " can't be restored into " + elevator.getMaxLoad() + " max load");
+            }
+            List<User> currLoad = new ArrayList<>(loadCount);
+            for (int i = 0; i < loadCount; i++) {
+                String name = in.readUTF();
+                Floor targetFloor = floor(building, in.readShort());
+                long waitStartNanos = in.readLong();
+                Floor destination = floor(building, in.readShort());
+                long journeyStartNanos = in.readLong();
+                int transfers = in.readShort();
+                long rideStartNanos = in.readLong();
+                long waitTime = in.readLong();
+                User user = new User(name, targetFloor, ticker, elevator, waitStartNanos, rideStartNanos, waitTime);
+                user.restoreJourney(destination, journeyStartNanos, transfers);
+                currLoad.add(user);
+            }
+            //车里去换乘楼层的人也在换乘
+            countTransfers(dispatcher, currLoad, user -> !user.isFinalLeg());
+            List<Task> queuedTasks = readTasks(in, tasks, in.readInt());
+            elevator.restore(new ElevatorState(currFloor, status, loadCount, currTask, version), currLoad, queuedTasks,
+                    idleSteps, busySteps, flightStart);
+        }
+        for (Task task : readTasks(in, tasks, in.readInt())) {
+            dispatcher.dispatch(task);
+        }
+        quitList.forEach(Elevator::quit);
+        return runningList;
+    }
+
+    private static void countTransfers(Dispatcher dispatcher, List<User> userList, Predicate<User> transferring) {
+        userList.stream().filter(transferring).forEach(user -> dispatcher.getContext().startTransfer());
+    }
+
+    private static Building building(List<Elevator> elevatorList) {
+        Building building = elevatorList.isEmpty() ? null : elevatorList.get(0).getCurrFloor().getBuilding();
+        if (building == null) {
+            throw new IllegalArgumentException("only elevators in a building can be snapshotted");
+        }
+        return building;
+    }
+
+    private static void writeWaitingUsers(DataOutput out, List<User> userList) throws IOException {
+        out.writeInt(userList.size());
+        for (User user : userList) {
+            writeUser(out, user);
+        }
+    }
+
+    private static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeUTF(user.getName());
+        out.writeShort(user.getTargetFloor().getFloorNo());
+        out.writeLong(user.getWaitStartNanos());
+        out.writeShort(user.getDestination().getFloorNo());
+        out.writeLong(user.getJourneyStartNanos());
+        out.writeShort(user.getTransfers());
+    }
+
+    private static List<User> readWaitingUsers(DataInput in, Building building, Ticker ticker) throws IOException {
+        int size = in.readInt();
+        List<User> userList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = in.readUTF();
+            Floor targetFloor = floor(building, in.readShort());
+            User user = new User(name, targetFloor, ticker, null, in.readLong(), 0, 0);
+            user.restoreJourney(floor(building, in.readShort()), in.readLong(), in.readShort());
+            userList.add(user);
+        }
+        return userList;
+    }
+
+    private static List<Task> readTasks(DataInput in, Task[] tasks, int size) throws IOException {
+        List<Task> taskList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Task task = task(tasks, in.readInt());
+            if (task == null) {
+                throw new IOException("missing task in snapshot");
+            }
+            taskList.add(task);
+        }
+        return taskList;
+    }
+
+    private static Floor floor(Building building, int floorNo) throws IOException {
+        if (floorNo < 1 || floorNo > building.getFloorNum()) {
+            throw new IOException("floor " + floorNo + " in snapshot is out of the building");
+        }
+        return building.getFloor(floorNo);
+    }
+
+    private static Task task(Task[] tasks, int id) throws IOException {
+        if (id == NO_TASK) {
+            return null;
+        }
+        if (id < 0 || id >= tasks.length) {
+            throw new IOException("task " + id + " is not in the snapshot");
+        }
+        return tasks[id];
+    }
+
+    private static int ordinal(int ordinal, int length) throws IOException {
+        if (ordinal < 0 || ordinal >= length) {
+            throw new IOException("unknown ordinal " + ordinal + " in snapshot");
+        }
+        return ordinal;
+    }
+
+    /**
+     * 按第一次出现的顺序给任务编号，按引用区分
+     */
+    private static final class TaskTable {
+        private final Map<Task, Integer> idMap = new IdentityHashMap<>();
+        private final List<Task> taskList = new ArrayList<>();
+
+        void add(Task task) {
+            if (task != null && !idMap.containsKey(task)) {
+                idMap.put(task, taskList.size());
+                taskList.add(task);
+            }
+        }
+
+        int id(Task task) {
+            return task == null ? NO_TASK : idMap.get(task);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationContext;
+import biz.jared.strategy.DispatchStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 单线程引擎使用的任务调度器
+ * 不起线程，任务先积压起来，由引擎在每个时间单位调用 dispatchPending() 统一分配
+ *
+ * @author jared
+ */
+public class SteppedDispatcher extends Dispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SteppedDispatcher.class);
+    /**
+     * 待分配的任务，读写都在引擎线程里，所以不用锁保护
+     */
+    private final Queue<Task> pendingTaskQueue = new ArrayDeque<>();
+
+    public SteppedDispatcher(SimulationContext context, List<Elevator> elevatorList,
+                             DispatchStrategy dispatchStrategy) {
+        super(context, elevatorList, dispatchStrategy, (ExecutorService) null);
+    }
+
+    @Override
+    void dispatch(Task task) {
+        if (task != null) {
+            pendingTaskQueue.add(task);
+        }
+    }
+
+    /**
+     * 分配所有积压的任务，选不出电梯的任务留到下一个时间单位重试
+     * 分配策略是批量策略时，同一个时间单位里积压的任务一起分配
+     */
+    public void dispatchPending() {
+        if (pendingTaskQueue.isEmpty()) {
+            return;
+        }
+        List<Task> taskList = new ArrayList<>(pendingTaskQueue);
+        pendingTaskQueue.clear();
+        List<Task> failList = tryDispatch(taskList);
+        if (!failList.isEmpty()) {
+            LOGGER.warn("dispatcher can't select one elevator, maybe all of them are in max load , retry dispatch...");
+            pendingTaskQueue.addAll(failList);
+        }
+    }
+
+    /**
+     * @return 积压的任务，按到来的顺序
+     */
+    List<Task> getPendingTasks() {
+        return new ArrayList<>(pendingTaskQueue);
+    }
+}
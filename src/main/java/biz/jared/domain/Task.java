@@ -21,14 +21,19 @@ public class Task implements Comparable<Task> {
      * 这是一个想去什么方向的task？
      */
     private Direction direction;
+    /**
+     * 目的层呼叫：乘客在厅外就登记了要去的楼层，普通的方向呼叫和电梯内的任务为null
+     */
+    private Floor targetFloor;
     private TaskStatus status;
     private int priority;
 
-    private Task(int id, Floor srcFloor, Direction direction) {
+    private Task(int id, Floor srcFloor, Direction direction, Floor targetFloor) {
         this.id = id;
         this.srcFloor = srcFloor;
         setStatus(TaskStatus.RUNNABLE);
         this.direction = direction;
+        this.targetFloor = targetFloor;
     }
 
     /**
@@ -39,7 +44,31 @@ public class Task implements Comparable<Task> {
      * @return
      */
     static Task generate(Floor floor, Direction direction) {
-        return new Task(new Random().nextInt(10000), floor, direction);
+        return new Task(new Random().nextInt(10000), floor, direction, null);
+    }
+
+    /**
+     * 楼层产生目的层呼叫，方向由目标楼层决定
+     *
+     * @param floor       出发楼层
+     * @param targetFloor 乘客登记的目标楼层
+     * @return
+     */
+    static Task generate(Floor floor, Floor targetFloor) {
+        return new Task(new Random().nextInt(10000), floor, floor.locate(targetFloor).opposite(), targetFloor);
+    }
+
+    /**
+     * 从快照恢复的任务
+     *
+     * @param targetFloor 目的层呼叫的目标楼层，不是目的层呼叫时为null
+     */
+    static Task restore(int id, Floor floor, Direction direction, Floor targetFloor, TaskStatus status,
+                        int priority) {
+        Task task = new Task(id, floor, direction, targetFloor);
+        task.setStatus(status);
+        task.setPriority(priority);
+        return task;
     }
 
     /**
@@ -68,12 +97,24 @@ public class Task implements Comparable<Task> {
         return direction;
     }
 
+    /**
+     * @return 目的层呼叫的目标楼层，不是目的层呼叫时返回null
+     */
+    public Floor getTargetFloor() {
+        return targetFloor;
+    }
+
+    public boolean isDestinationCall() {
+        return targetFloor != null;
+    }
+
     @Override
     public String toString() {
         return "Task{" +
                 "id=" + id +
                 ", src floor=" + srcFloor.getFloorNo() +
                 ", direction=" + direction +
+                (targetFloor != null ? ", target floor=" + targetFloor.getFloorNo() : "") +
                 '}';
     }
 
@@ -81,6 +122,14 @@ public class Task implements Comparable<Task> {
         this.priority = priority;
     }
 
+    int getId() {
+        return id;
+    }
+
+    int getPriority() {
+        return priority;
+    }
+
     @Override
     public int compareTo(Task o) {
         if (o == null) {
@@ -118,8 +167,9 @@ public class Task implements Comparable<Task> {
         }
 
         Task task = (Task) o;
-        //NONE方向的任务和所有方向的任务都equal
+        //NONE方向的任务和所有方向的任务都equal，但目的层呼叫只和同一目标楼层的目的层呼叫equal
         return (srcFloor != null ? srcFloor.equals(task.srcFloor) : task.srcFloor == null)
+                && (targetFloor != null ? targetFloor.equals(task.targetFloor) : task.targetFloor == null)
                 && (direction.equals(task.direction) || direction.equals(Direction.NONE) || task.direction.equals(
                 Direction.NONE));
     }
@@ -128,6 +178,7 @@ public class Task implements Comparable<Task> {
     public int hashCode() {
         int result = srcFloor != null ? srcFloor.hashCode() : 0;
         result = 31 * result + (direction != null ? direction.hashCode() : 0);
+        result = 31 * result + (targetFloor != null ? targetFloor.hashCode() : 0);
         return result;
 
     }
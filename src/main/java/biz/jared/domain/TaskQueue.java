@@ -0,0 +1,263 @@
+package biz.jared.domain;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * 电梯的任务队列
+ * 任务的优先级依赖电梯当前的楼层和方向，所以不在入队时排好序，而是在取任务时按电梯当前状态现算，取优先级最高（priority最小）的
+ * 入队 O(1)，出队 O(n)，优先级相同时先来的先出
+ *
+ * @author jared
+ */
+class TaskQueue extends AbstractQueue<Task> implements BlockingQueue<Task> {
+    /**
+     * 按入队顺序存放的任务
+     */
+    private final List<Task> taskList = new ArrayList<>();
+    /**
+     * 按楼层索引任务，contains 不用遍历整个队列（同一楼层最多只有两个不相等的方向任务，目的层派梯时每个目标楼层一个）
+     */
+    private final Map<Floor, List<Task>> floorTaskMap = new HashMap<>();
+    /**
+     * 出队时计算任务优先级的方法
+     */
+    private final ToIntFunction<Task> priorityFunction;
+    /**
+     * 任务入队、出队、删除都加一，只在持有lock时写，其它线程不加锁读，判断队列变过没有
+     */
+    private volatile long version;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    TaskQueue(ToIntFunction<Task> priorityFunction) {
+        this.priorityFunction = priorityFunction;
+    }
+
+    @Override
+    public boolean offer(Task task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        lock.lock();
+        try {
+            taskList.add(task);
+            floorTaskMap.computeIfAbsent(task.getSrcFloor(), floor -> new ArrayList<>(2)).add(task);
+            version++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Task task) {
+        offer(task);
+    }
+
+    @Override
+    public boolean offer(Task task, long timeout, TimeUnit unit) {
+        return offer(task);
+    }
+
+    @Override
+    public Task poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Task poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (taskList.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Task take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (taskList.isEmpty()) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Task peek() {
+        lock.lock();
+        try {
+            int index = highestPriorityIndex();
+            return index < 0 ? null : taskList.get(index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Task)) {
+            return false;
+        }
+        lock.lock();
+        try {
+            List<Task> floorTaskList = floorTaskMap.get(((Task) o).getSrcFloor());
+            return floorTaskList != null && floorTaskList.contains(o);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Task)) {
+            return false;
+        }
+        lock.lock();
+        try {
+            //先按楼层索引找到队列里equals的那个任务，再按引用删除
+            List<Task> floorTaskList = floorTaskMap.get(((Task) o).getSrcFloor());
+            int floorIndex = floorTaskList == null ? -1 : floorTaskList.indexOf(o);
+            if (floorIndex < 0) {
+                return false;
+            }
+            Task task = floorTaskList.get(floorIndex);
+            for (int i = 0; i < taskList.size(); i++) {
+                if (taskList.get(i) == task) {
+                    removeAt(i);
+                    break;
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return taskList.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Task> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Task> c, int maxElements) {
+        lock.lock();
+        try {
+            int n = 0;
+            Task task;
+            while (n < maxElements && (task = dequeue()) != null) {
+                c.add(task);
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 队列的快照，不保证顺序
+     */
+    @Override
+    public Iterator<Task> iterator() {
+        return snapshot().iterator();
+    }
+
+    /**
+     * @return 队列的版本，版本相同时队列里的任务没变过
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * @return 队列的快照，按入队顺序
+     */
+    List<Task> snapshot() {
+        lock.lock();
+        try {
+            return new ArrayList<>(taskList);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按电梯当前状态取出优先级最高的任务，调用时必须持有lock
+     */
+    private Task dequeue() {
+        int index = highestPriorityIndex();
+        return index < 0 ? null : removeAt(index);
+    }
+
+    private int highestPriorityIndex() {
+        int best = -1;
+        int bestPriority = Integer.MAX_VALUE;
+        for (int i = 0; i < taskList.size(); i++) {
+            Task task = taskList.get(i);
+            int priority = priorityFunction.applyAsInt(task);
+            task.setPriority(priority);
+            if (best < 0 || priority < bestPriority) {
+                best = i;
+                bestPriority = priority;
+            }
+        }
+        return best;
+    }
+
+    private Task removeAt(int index) {
+        Task task = taskList.remove(index);
+        version++;
+        List<Task> floorTaskList = floorTaskMap.get(task.getSrcFloor());
+        //按引用删除，同楼层的NONE任务和其它方向的任务equals
+        floorTaskList.removeIf(t -> t == task);
+        if (floorTaskList.isEmpty()) {
+            floorTaskMap.remove(task.getSrcFloor());
+        }
+        return task;
+    }
+}
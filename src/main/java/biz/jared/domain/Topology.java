@@ -0,0 +1,210 @@
+package biz.jared.domain;
+
+import biz.jared.domain.enumeration.Direction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分区楼宇的梯群划分：每部电梯属于一个梯群，只停本梯群的楼层；乘客要去的楼层和所在楼层没有一个梯群都停时，
+ * 在两个梯群都停的楼层（比如空中大堂）换乘
+ * 任意两层之间换乘最少的走法预先算好：从所在楼层要去目标楼层，这一程先坐到哪一层，查一次是数组下标运算
+ * <p>
+ * 用字符串描述，梯群之间用分号隔开，每个梯群是逗号隔开的楼层或者楼层段，可以再跟冒号和电梯数，例如
+ * <pre>
+ * 1-40:4;1,40-80:4;1,80-120:4       低、中、高三个区，中高区的电梯从大堂直达
+ * 1,60:2;1-60:6;60-120:6            穿梭梯直达60层的空中大堂，高区的人在那里换乘
+ * </pre>
+ * 电梯按id顺序分给各梯群；都不写电梯数时，电梯按id轮流分给各梯群
+ *
+ * @author jared
+ */
+public final class Topology {
+    private final int floorNum;
+    private final List<Bank> bankList;
+    /**
+     * carBanks[id] 是id为id的电梯所属梯群的下标
+     */
+    private final int[] carBanks;
+    /**
+     * legs[(src - 1) * floorNum + target - 1] 是从 src 层去 target 层这一程要坐到的楼层号
+     */
+    private final int[] legs;
+
+    private Topology(int floorNum, List<Bank> bankList, int[] carBanks) {
+        this.floorNum = floorNum;
+        this.bankList = Collections.unmodifiableList(bankList);
+        this.carBanks = carBanks;
+        this.legs = route();
+    }
+
+    /**
+     * @param spec        梯群描述，格式见类注释
+     * @param floorNum    总楼层数
+     * @param elevatorNum 电梯数，id从0开始
+     * @throws IllegalArgumentException 格式不对、有楼层没有梯群停靠、有楼层之间换乘也去不了、电梯数对不上
+     */
+    public static Topology parse(String spec, int floorNum, int elevatorNum) {
+        String[] parts = spec.split(";");
+        List<Bank> bankList = new ArrayList<>(parts.length);
+        int[] carCounts = new int[parts.length];
+        int countedCars = 0;
+        for (int i = 0; i < parts.length; i++) {
+            String[] floorsAndCars = parts[i].trim().split(":");
+            if (floorsAndCars.length > 2) {
+                throw new IllegalArgumentException("invalid bank '" + parts[i] + "' in " + spec);
+            }
+            bankList.add(new Bank(i, parseFloors(floorsAndCars[0], floorNum, spec), floorNum));
+            if (floorsAndCars.length == 2) {
+                carCounts[i] = Integer.parseInt(floorsAndCars[1].trim());
+                if (carCounts[i] <= 0) {
+                    throw new IllegalArgumentException("bank '" + parts[i] + "' has no elevator in " + spec);
+                }
+                countedCars++;
+            }
+        }
+        int[] carBanks = new int[elevatorNum];
+        if (countedCars == 0) {
+            if (elevatorNum < parts.length) {
+                throw new IllegalArgumentException(elevatorNum + " elevators for " + parts.length + " banks: " + spec);
+            }
+            for (int id = 0; id < elevatorNum; id++) {
+                carBanks[id] = id % parts.length;
+            }
+        } else {
+            if (countedCars != parts.length || Arrays.stream(carCounts).sum() != elevatorNum) {
+                throw new IllegalArgumentException("elevator count of every bank must add up to " + elevatorNum
+                        + ": " + spec);
+            }
+            for (int bank = 0, id = 0; bank < carCounts.length; bank++) {
+                for (int i = 0; i < carCounts[bank]; i++) {
+                    carBanks[id++] = bank;
+                }
+            }
+        }
+        return new Topology(floorNum, bankList, carBanks);
+    }
+
+    /**
+     * @param floors 逗号隔开的楼层或者楼层段，例如 1,40-80
+     */
+    private static BitSet parseFloors(String floors, int floorNum, String spec) {
+        BitSet servedFloors = new BitSet(floorNum);
+        for (String range : floors.split(",")) {
+            String[] bounds = range.trim().split("-");
+            int from = Integer.parseInt(bounds[0].trim());
+            int to = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : from;
+            if (bounds.length > 2 || from < 1 || to > floorNum || from > to) {
+                throw new IllegalArgumentException("invalid floors '" + range + "' of " + floorNum + " floors in "
+                        + spec);
+            }
+            servedFloors.set(from - 1, to);
+        }
+        return servedFloors;
+    }
+
+    /**
+     * 对每个目标楼层，从目标楼层倒着按梯群广度优先，算出每层到目标楼层最少坐几程；
+     * 这一程坐到哪一层：所在楼层的梯群停的楼层里，离目标楼层少一程的，上下走的总层数最少的那层
+     */
+    private int[] route() {
+        BitSet servedFloors = new BitSet(floorNum);
+        for (Bank bank : bankList) {
+            for (int floorNo = bank.getLowestFloor(); floorNo > 0; floorNo = bank.next(floorNo, Direction.UP)) {
+                servedFloors.set(floorNo - 1);
+            }
+        }
+        if (servedFloors.cardinality() != floorNum) {
+            throw new IllegalArgumentException("floor " + (servedFloors.nextClearBit(0) + 1)
+                    + " is not served by any bank: " + bankList);
+        }
+        int[] routes = new int[floorNum * floorNum];
+        int[] legCounts = new int[floorNum + 1];
+        int[] queue = new int[floorNum];
+        for (int target = 1; target <= floorNum; target++) {
+            Arrays.fill(legCounts, -1);
+            legCounts[target] = 0;
+            queue[0] = target;
+            for (int head = 0, tail = 1; head < tail; head++) {
+                int floorNo = queue[head];
+                for (Bank bank : bankList) {
+                    if (!bank.serves(floorNo)) {
+                        continue;
+                    }
+                    for (int other = bank.getLowestFloor(); other > 0; other = bank.next(other, Direction.UP)) {
+                        if (legCounts[other] < 0) {
+                            legCounts[other] = legCounts[floorNo] + 1;
+                            queue[tail++] = other;
+                        }
+                    }
+                }
+            }
+            for (int src = 1; src <= floorNum; src++) {
+                if (legCounts[src] < 0) {
+                    throw new IllegalArgumentException("floor " + target + " can't be reached from floor " + src
+                            + ": " + bankList);
+                }
+                routes[(src - 1) * floorNum + target - 1] = src == target ? target : leg(src, target, legCounts);
+            }
+        }
+        return routes;
+    }
+
+    private int leg(int src, int target, int[] legCounts) {
+        int best = 0;
+        int bestFloors = Integer.MAX_VALUE;
+        for (Bank bank : bankList) {
+            if (!bank.serves(src)) {
+                continue;
+            }
+            for (int floorNo = bank.getLowestFloor(); floorNo > 0; floorNo = bank.next(floorNo, Direction.UP)) {
+                int floors = Math.abs(floorNo - src) + Math.abs(target - floorNo);
+                if (legCounts[floorNo] == legCounts[src] - 1 && floors < bestFloors) {
+                    best = floorNo;
+                    bestFloors = floors;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return 从 srcFloorNo 层去 targetFloorNo 层，这一程要坐到的楼层号，不用换乘时就是 targetFloorNo
+     */
+    public int nextLeg(int srcFloorNo, int targetFloorNo) {
+        return legs[(srcFloorNo - 1) * floorNum + targetFloorNo - 1];
+    }
+
+    /**
+     * @return 某部电梯所属的梯群
+     */
+    public Bank bankOf(int elevatorId) {
+        if (elevatorId < 0 || elevatorId >= carBanks.length) {
+            throw new IllegalArgumentException("elevator " + elevatorId + " is not in " + carBanks.length
+                    + " elevators");
+        }
+        return bankList.get(carBanks[elevatorId]);
+    }
+
+    /**
+     * @return 所有梯群，按描述里的顺序，不可修改
+     */
+    public List<Bank> getBankList() {
+        return bankList;
+    }
+
+    public int getFloorNum() {
+        return floorNum;
+    }
+
+    @Override
+    public String toString() {
+        return "Topology{" +
+                "floorNum=" + floorNum +
+                ", banks=" + bankList +
+                '}';
+    }
+}
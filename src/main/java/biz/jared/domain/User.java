@@ -2,10 +2,12 @@ package biz.jared.domain;
 
 import biz.jared.Env;
 import biz.jared.domain.enumeration.Direction;
-import com.google.common.base.Stopwatch;
+import com.google.common.base.Ticker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author jared
  */
@@ -18,17 +20,81 @@ public class User {
      */
     private Elevator elevator;
     /**
-     * 目标楼层
+     * 这一程的目标楼层，要换乘时是换乘楼层
      */
     private Floor targetFloor;
     /**
-     * 计时器对等待时间计时
+     * 最终要去的楼层
+     */
+    private Floor destination;
+    /**
+     * 计时用的时钟
+     */
+    private final Ticker ticker;
+    /**
+     * 开始等电梯的时刻，单位纳秒，按 ticker 计
+     */
+    private long waitStartNanos;
+    /**
+     * 进入电梯的时刻，单位纳秒，按 ticker 计
+     */
+    private long rideStartNanos;
+    /**
+     * 进入电梯时记下的等待时间
+     */
+    private long waitTime;
+    /**
+     * 第一次到楼层开始等电梯的时刻，换乘时不变，算全程时间用，单位纳秒，按 ticker 计
+     */
+    private long journeyStartNanos;
+    /**
+     * 已经换乘的次数
      */
-    private Stopwatch stopwatch = Stopwatch.createUnstarted();
+    private int transfers;
 
+    /**
+     * 按真实时间计时
+     */
     public User(String name, Floor targetFloor) {
+        this(name, targetFloor, Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker 计时用的时钟，一般是所属模拟的时钟的ticker
+     */
+    public User(String name, Floor targetFloor, Ticker ticker) {
         this.name = name;
         this.targetFloor = targetFloor;
+        this.destination = targetFloor;
+        this.ticker = ticker;
+    }
+
+    /**
+     * 从快照恢复的用户，计时接着快照时的进度
+     *
+     * @param elevator 正在乘坐的电梯，还在楼层等电梯时为null
+     */
+    User(String name, Floor targetFloor, Ticker ticker, Elevator elevator, long waitStartNanos, long rideStartNanos,
+         long waitTime) {
+        this(name, targetFloor, ticker);
+        this.elevator = elevator;
+        this.waitStartNanos = waitStartNanos;
+        this.rideStartNanos = rideStartNanos;
+        this.waitTime = waitTime;
+        this.journeyStartNanos = waitStartNanos;
+    }
+
+    /**
+     * 从快照恢复换乘的进度
+     *
+     * @param destination       最终要去的楼层
+     * @param journeyStartNanos 第一次开始等电梯的时刻
+     * @param transfers         已经换乘的次数
+     */
+    void restoreJourney(Floor destination, long journeyStartNanos, int transfers) {
+        this.destination = destination;
+        this.journeyStartNanos = journeyStartNanos;
+        this.transfers = transfers;
     }
 
     /**
@@ -42,18 +108,112 @@ public class User {
         elevator.receive(task);
     }
 
-    void enterElevator(Elevator elevator) {
+    /**
+     * @return 候梯时间
+     */
+    long enterElevator(Elevator elevator) {
         //进入电梯
         this.elevator = elevator;
-        //总等待时间增加
-        long elapsed = stopwatch.stop().elapsed(Env.TIME_UNIT);
-        Env.TOTAL_USER_WAIT_TIME.addAndGet(elapsed);
+        //记录等待时间，开始乘梯计时
+        waitTime = elapsedSince(waitStartNanos);
+        elevator.getMetrics().getPassengerMetrics().recordWait(waitTime);
+        rideStartNanos = ticker.read();
+        return waitTime;
+    }
+
+    /**
+     * 到了最终要去的楼层时记录乘梯时间和全程时间，全程时间从第一次开始等电梯算起；
+     * 到的是换乘楼层时只记录这一程的乘梯时间
+     *
+     * @return 这一程的乘梯时间
+     */
+    long leaveElevator() {
+        long rideTime = elapsedSince(rideStartNanos);
+        if (!isFinalLeg()) {
+            transfers++;
+            elevator.getMetrics().getPassengerMetrics().recordTransfer(rideTime);
+        } else {
+            elevator.getMetrics().getPassengerMetrics().recordRide(getJourneyWaitTime(rideTime), rideTime);
+        }
+        this.elevator = null;
+        return rideTime;
+    }
+
+    /**
+     * @param rideTime 最后一程的乘梯时间
+     * @return 全程时间里坐上最后一部电梯之前的部分，没换乘过时就是候梯时间
+     */
+    long getJourneyWaitTime(long rideTime) {
+        return transfers == 0 ? waitTime : elapsedSince(journeyStartNanos) - rideTime;
+    }
+
+    /**
+     * 到楼层里开始等电梯，换乘时全程时间接着算
+     */
+    void startWaiting() {
+        waitStartNanos = ticker.read();
+        if (transfers == 0) {
+            journeyStartNanos = waitStartNanos;
+        }
+    }
+
+    /**
+     * 换一程：要去的楼层不变，这一程改为坐到 targetFloor
+     */
+    void route(Floor targetFloor) {
+        this.targetFloor = targetFloor;
+    }
+
+    /**
+     * @return 这一程的目标楼层是不是最终要去的楼层
+     */
+    boolean isFinalLeg() {
+        return targetFloor.equals(destination);
+    }
+
+    /**
+     * @return 这一趟是不是要换乘：已经换乘过，或者这一程到不了最终要去的楼层
+     */
+    boolean isTransferJourney() {
+        return transfers > 0 || !isFinalLeg();
+    }
+
+    private long elapsedSince(long startNanos) {
+        return Env.TIME_UNIT.convert(ticker.read() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    long getWaitTime() {
+        return waitTime;
+    }
+
+    long getWaitStartNanos() {
+        return waitStartNanos;
+    }
+
+    long getRideStartNanos() {
+        return rideStartNanos;
+    }
+
+    String getName() {
+        return name;
     }
 
     Floor getTargetFloor() {
         return targetFloor;
     }
 
+    Floor getDestination() {
+        return destination;
+    }
+
+    long getJourneyStartNanos() {
+        return journeyStartNanos;
+    }
+
+    int getTransfers() {
+        return transfers;
+    }
+
     @Override
     public String toString() {
         return "User{" +
@@ -79,8 +239,4 @@ public class User {
     public int hashCode() {
         return name.hashCode();
     }
-
-    Stopwatch getStopwatch() {
-        return stopwatch;
-    }
 }
@@ -0,0 +1,115 @@
+package biz.jared.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 楼层某个方向上等电梯的人，数组实现的环形队列，先来的先上
+ * 不是线程安全的，由楼层加锁保护
+ *
+ * @author jared
+ */
+final class UserQueue {
+    private static final int INIT_CAPACITY = 4;
+    private User[] elements = new User[INIT_CAPACITY];
+    /**
+     * 队头下标
+     */
+    private int head;
+    private int size;
+
+    void add(User user) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & (elements.length - 1)] = user;
+        size++;
+    }
+
+    /**
+     * @return 队头的人，队列为空时返回null
+     */
+    User poll() {
+        if (size == 0) {
+            return null;
+        }
+        User user = elements[head];
+        elements[head] = null;
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return user;
+    }
+
+    /**
+     * 取出最先来的、要去 targetFloor 的人，后面的人依次往前挪
+     *
+     * @return 队列里没有要去 targetFloor 的人时返回null
+     */
+    User poll(Floor targetFloor) {
+        int mask = elements.length - 1;
+        for (int i = 0; i < size; i++) {
+            User user = elements[(head + i) & mask];
+            if (user.getTargetFloor().equals(targetFloor)) {
+                for (int j = i; j > 0; j--) {
+                    elements[(head + j) & mask] = elements[(head + j - 1) & mask];
+                }
+                elements[head] = null;
+                head = (head + 1) & mask;
+                size--;
+                return user;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 队列里是否有要去 targetFloor 的人
+     */
+    boolean contains(Floor targetFloor) {
+        for (int i = 0; i < size; i++) {
+            if (elements[(head + i) & (elements.length - 1)].getTargetFloor().equals(targetFloor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 队列里的人，按先来后到
+     */
+    List<User> snapshot() {
+        List<User> userList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            userList.add(elements[(head + i) & (elements.length - 1)]);
+        }
+        return userList;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            elements[(head + i) & (elements.length - 1)] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 容量翻倍，保持容量是2的幂，下标取模可以用位运算
+     */
+    private void grow() {
+        User[] newElements = new User[elements.length << 1];
+        for (int i = 0; i < size; i++) {
+            newElements[i] = elements[(head + i) & (elements.length - 1)];
+        }
+        elements = newElements;
+        head = 0;
+    }
+}
@@ -0,0 +1,34 @@
+package biz.jared.domain.enumeration;
+
+/**
+ * 电梯执行任务（或任务的一步）的结果
+ * 取消、抢占、满载在高负载下都是常态，用返回值而不是异常表示，不用每次都填充异常栈
+ *
+ * @author jared
+ */
+public enum TaskOutcome {
+    /**
+     * 还没执行完，继续执行
+     */
+    RUNNING,
+    /**
+     * 执行完成
+     */
+    DONE,
+    /**
+     * 任务已经被取消
+     */
+    CANCELLED,
+    /**
+     * 已经满载且任务楼层没人下，无法执行
+     */
+    CANNOT_EXEC,
+    /**
+     * 电梯内用户的任务被抢占，只能还是当前电梯处理
+     */
+    GRABBED_IN_ELEVATOR,
+    /**
+     * 楼层用户的任务被抢占，可以交给其它电梯
+     */
+    GRABBED_IN_FLOOR
+}
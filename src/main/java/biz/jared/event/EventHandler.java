@@ -0,0 +1,12 @@
+package biz.jared.event;
+
+/**
+ * 消费事件的一方，只在渲染线程里调用，不用考虑并发
+ * 参数都是基本类型，一条事件不产生对象
+ *
+ * @author jared
+ */
+public interface EventHandler {
+
+    void onEvent(long time, EventType type, int elevatorId, int floorNo, int arg, long value);
+}
@@ -0,0 +1,119 @@
+package biz.jared.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 电梯事件流：电梯、调度器把事件写进环形缓冲，后台的渲染线程读出来交给 EventHandler（转成文本日志等）
+ * 热路径上只判断类型开没开、写四个 long，拼字符串、写文件都在渲染线程里
+ * 每种事件类型可以单独开关，关掉的类型连缓冲都不写
+ *
+ * @author jared
+ */
+public class EventLog implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventLog.class);
+    /**
+     * 一个类型都不记录，也没有渲染线程
+     */
+    public static final EventLog DISABLED = new EventLog(EnumSet.noneOf(EventType.class), 2, null);
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /**
+     * 缓冲空了渲染线程歇多久
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * 第i位是 ordinal 为i的类型开着
+     */
+    private final int enabled;
+    private final EventRing ring;
+    private final EventHandler handler;
+    private final Thread renderThread;
+    private volatile boolean closed;
+
+    private EventLog(Set<EventType> types, int capacity, EventHandler handler) {
+        int bits = 0;
+        for (EventType type : types) {
+            bits |= 1 << type.ordinal();
+        }
+        this.enabled = bits;
+        this.ring = new EventRing(capacity);
+        this.handler = handler;
+        this.renderThread = handler == null ? null : new Thread(this::render, "event-render-thread");
+    }
+
+    /**
+     * 开始记录，启动渲染线程
+     *
+     * @param types    要记录的事件类型
+     * @param capacity 缓冲的事件数
+     * @param handler  在渲染线程里消费事件
+     */
+    public static EventLog start(Set<EventType> types, int capacity, EventHandler handler) {
+        if (types.isEmpty()) {
+            return DISABLED;
+        }
+        EventLog eventLog = new EventLog(types, capacity, handler);
+        eventLog.renderThread.setDaemon(true);
+        eventLog.renderThread.start();
+        return eventLog;
+    }
+
+    public boolean isEnabled(EventType type) {
+        return (enabled & 1 << type.ordinal()) != 0;
+    }
+
+    /**
+     * 记一条事件，类型没开时什么都不做
+     */
+    public void record(long time, EventType type, int elevatorId, int floorNo, int arg, long value) {
+        if (isEnabled(type)) {
+            ring.publish(time, type, elevatorId, floorNo, arg, value);
+        }
+    }
+
+    private void render() {
+        while (!closed) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        //关闭前写进来的事件都要渲染完
+        while (ring.backlog() > 0) {
+            if (drain() == 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * 处理一条事件出错时丢掉这条接着处理，渲染线程不能退出，否则缓冲写满后电梯线程会一直等
+     */
+    private int drain() {
+        try {
+            return ring.drain(handler);
+        } catch (RuntimeException e) {
+            LOGGER.error("event handler error:", e);
+            return 1;
+        }
+    }
+
+    /**
+     * 停止记录，等渲染线程把缓冲里的事件都处理完
+     * 调用之后不能再记录
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (renderThread == null || closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(renderThread);
+        renderThread.join();
+    }
+}
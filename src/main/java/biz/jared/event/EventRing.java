@@ -0,0 +1,99 @@
+package biz.jared.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 定长事件记录的环形缓冲，多个电梯线程写、一个渲染线程读
+ * 每条记录占 RECORD_LONGS 个 long，存在一个预先分配好的 long 数组里，写一条事件不产生对象
+ * 写的一方先原子地领一个序号，写完字段后把序号发布到这个槽位；读的一方按序号顺序等槽位发布后再读
+ * 缓冲满了写的一方让出CPU等渲染线程跟上，不丢事件
+ *
+ * @author jared
+ */
+public class EventRing {
+    /**
+     * 时刻；类型和电梯id；楼层号和arg；value
+     */
+    private static final int RECORD_LONGS = 4;
+    private static final EventType[] TYPES = EventType.values();
+
+    private final int mask;
+    private final long[] records;
+    /**
+     * published[i] 是第i个槽位最近一次写完的序号，读的一方看到等于自己要读的序号才读
+     */
+    private final AtomicLongArray published;
+    /**
+     * 下一个要领的序号
+     */
+    private final AtomicLong claimed = new AtomicLong();
+    /**
+     * 下一个要读的序号，只有渲染线程写
+     */
+    private volatile long consumed;
+
+    /**
+     * @param capacity 最多缓存的事件数，向上取整到2的幂
+     */
+    public EventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mask = size - 1;
+        records = new long[size * RECORD_LONGS];
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 写一条事件，缓冲满了时等渲染线程腾出槽位
+     */
+    public void publish(long time, EventType type, int elevatorId, int floorNo, int arg, long value) {
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed > mask) {
+            Thread.yield();
+        }
+        int slot = (int) sequence & mask;
+        int offset = slot * RECORD_LONGS;
+        records[offset] = time;
+        records[offset + 1] = (long) type.ordinal() << 32 | elevatorId & 0xFFFFFFFFL;
+        records[offset + 2] = (long) floorNo << 32 | arg & 0xFFFFFFFFL;
+        records[offset + 3] = value;
+        published.lazySet(slot, sequence);
+    }
+
+    /**
+     * 按写入顺序读出已经发布的事件，遇到还没写完的槽位就停，只能在一个线程里调用
+     *
+     * @return 读出的事件数
+     */
+    public int drain(EventHandler handler) {
+        long sequence = consumed;
+        int drained = 0;
+        while (published.get((int) sequence & mask) == sequence) {
+            int offset = ((int) sequence & mask) * RECORD_LONGS;
+            long time = records[offset];
+            long typeAndId = records[offset + 1];
+            long floorAndArg = records[offset + 2];
+            long value = records[offset + 3];
+            //字段都读出来了就可以让出槽位，handler 抛异常也不会卡住写的一方
+            consumed = ++sequence;
+            drained++;
+            handler.onEvent(time, TYPES[(int) (typeAndId >>> 32)], (int) typeAndId, (int) (floorAndArg >>> 32),
+                    (int) floorAndArg, value);
+        }
+        return drained;
+    }
+
+    /**
+     * @return 领了序号还没读的事件数，包括正在写的
+     */
+    public long backlog() {
+        return claimed.get() - consumed;
+    }
+}
@@ -0,0 +1,220 @@
+package biz.jared.event;
+
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.domain.enumeration.ElevatorStatus;
+import biz.jared.domain.enumeration.TaskOutcome;
+
+import java.util.EnumSet;
+
+/**
+ * 电梯事件类型
+ * 每条事件是定长的：时刻、类型、电梯id、楼层号，外加两个按类型解释的参数 arg、value，见各类型的说明
+ * 楼层的事件没有电梯，电梯id为 NO_ELEVATOR；事件日志文件里按 ordinal 存类型，新类型只能加在最后
+ * 事件只记这些数字，转成文本在渲染线程里按类型拼
+ *
+ * @author jared
+ */
+public enum EventType {
+    /**
+     * 开始执行任务，floorNo 电梯所在楼层，arg 任务楼层，value 任务方向
+     */
+    EXECUTE {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" start to execute task at floor ").append(arg).append(' ')
+                    .append(Direction.values()[(int) value]).append(", now at floor ").append(floorNo);
+        }
+    },
+    /**
+     * 走到下一个停得了的楼层，直达时跨过几层，floorNo 到达的楼层，arg 运行状态，value 负载
+     */
+    MOVE {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" moving ").append(ElevatorStatus.values()[arg]).append(" to floor ").append(floorNo)
+                    .append(", load ").append(value);
+        }
+    },
+    /**
+     * 在任务楼层停靠，arg 上下电梯的人数，value 停靠后的负载
+     */
+    STOP {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" stop at floor ").append(floorNo).append(", transferred ").append(arg)
+                    .append(", load ").append(value);
+        }
+    },
+    /**
+     * 有人上电梯，arg 上电梯的人数，value 上完后的负载
+     */
+    BOARD {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" loading ").append(arg).append(" users at floor ").append(floorNo)
+                    .append(", load ").append(value);
+        }
+    },
+    /**
+     * 有人下电梯，arg 下电梯的人数，value 下完后的负载
+     */
+    ALIGHT {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" unloading ").append(arg).append(" users at floor ").append(floorNo)
+                    .append(", load ").append(value);
+        }
+    },
+    /**
+     * 电梯内用户的任务被抢占，延后执行，arg 任务楼层，value 任务方向
+     */
+    GRAB {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" task at floor ").append(arg).append(' ').append(Direction.values()[(int) value])
+                    .append(" has been grabbed so delay execute, now at floor ").append(floorNo);
+        }
+    },
+    /**
+     * 任务不能执行，交回调度器重新分配，arg 任务楼层，value 不能执行的原因
+     */
+    REDISPATCH {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" can not execute task at floor ").append(arg).append(" caused by ")
+                    .append(TaskOutcome.values()[(int) value]).append(" so re-dispatching, now at floor ")
+                    .append(floorNo);
+        }
+    },
+    /**
+     * 调度器把任务分给电梯，floorNo 任务楼层，arg 任务方向
+     */
+    DISPATCH {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" receive task at floor ").append(floorNo).append(' ').append(Direction.values()[arg]);
+        }
+    },
+    /**
+     * 正在执行的任务被优先级更高的任务抢占，从 RUNNING 回到 RUNNABLE，arg 任务楼层，value 任务方向
+     */
+    YIELD {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" yield task at floor ").append(arg).append(' ').append(Direction.values()[(int) value])
+                    .append(", now at floor ").append(floorNo);
+        }
+    },
+    /**
+     * 一个乘客上电梯，arg 乘客的目标楼层，value 候梯时间
+     */
+    WAIT {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" user to floor ").append(arg).append(" enter at floor ").append(floorNo)
+                    .append(" after waiting ").append(value);
+        }
+    },
+    /**
+     * 一个乘客到了最终要去的楼层下电梯，arg 候梯时间（换乘过的是坐上这部电梯之前的全部时间，超过 int 时取
+     * Integer.MAX_VALUE），value 乘梯时间
+     */
+    RIDE {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" user leave at floor ").append(floorNo).append(" after waiting ").append(arg)
+                    .append(" and riding ").append(value);
+        }
+    },
+    /**
+     * 楼层来了一个乘客，电梯id为-1，arg 目标楼层，value 等候的方向
+     */
+    ARRIVE {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" user to floor ").append(arg).append(" waiting ").append(Direction.values()[(int) value]);
+        }
+    },
+    /**
+     * 楼层登记了一个厅外呼叫，新任务进入 RUNNABLE，电梯id为-1，arg 方向，value 目的层呼叫的目标楼层，否则为0
+     */
+    HALL_CALL {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            renderHallCall(sb, "call ", arg, value);
+        }
+    },
+    /**
+     * 厅外呼叫的任务执行完，电梯id为-1，arg 方向，value 目的层呼叫的目标楼层，否则为0
+     */
+    HALL_DONE {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            renderHallCall(sb, "done ", arg, value);
+        }
+    },
+    /**
+     * 厅外呼叫的任务被取消，进入 CANCELLED，电梯id为-1，arg 方向
+     */
+    CANCEL {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            renderHallCall(sb, "cancel ", arg, value);
+        }
+    },
+    /**
+     * 一个乘客在换乘楼层下电梯，接着在这一层等下一程，arg 乘客最终要去的楼层，value 这一程的乘梯时间
+     */
+    TRANSFER {
+        @Override
+        void render(StringBuilder sb, int floorNo, int arg, long value) {
+            sb.append(" user to floor ").append(arg).append(" transfer at floor ").append(floorNo)
+                    .append(" after riding ").append(value);
+        }
+    };
+
+    /**
+     * 没有电梯的事件
+     */
+    public static final int NO_ELEVATOR = -1;
+
+    /**
+     * 把一条事件拼成一行文本
+     */
+    public void render(StringBuilder sb, long time, int elevatorId, int floorNo, int arg, long value) {
+        sb.append(time).append(' ').append(name());
+        if (elevatorId == NO_ELEVATOR) {
+            sb.append(" Floor{floorNo=").append(floorNo).append('}');
+        } else {
+            sb.append(" Elevator{id=").append(elevatorId).append('}');
+        }
+        render(sb, floorNo, arg, value);
+    }
+
+    private static void renderHallCall(StringBuilder sb, String action, int direction, long targetFloorNo) {
+        sb.append(' ').append(action).append(Direction.values()[direction]);
+        if (targetFloorNo > 0) {
+            sb.append(" to floor ").append(targetFloorNo);
+        }
+    }
+
+    abstract void render(StringBuilder sb, int floorNo, int arg, long value);
+
+    /**
+     * @param types 逗号分隔的事件类型，null 时全部，空串或者 NONE 时一个都不要
+     * @return 要记录的事件类型
+     */
+    public static EnumSet<EventType> parse(String types) {
+        if (types == null) {
+            return EnumSet.allOf(EventType.class);
+        }
+        EnumSet<EventType> set = EnumSet.noneOf(EventType.class);
+        for (String type : types.split(",")) {
+            type = type.trim();
+            if (!type.isEmpty() && !"NONE".equals(type)) {
+                set.add(EventType.valueOf(type));
+            }
+        }
+        return set;
+    }
+}
@@ -0,0 +1,26 @@
+package biz.jared.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 把事件渲染成一行文本写到日志里，代替电梯线程里原来逐条拼字符串的 info 日志
+ * 只在渲染线程里用，拼字符串的 StringBuilder 复用同一个
+ *
+ * @author jared
+ */
+public class LoggingEventHandler implements EventHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggingEventHandler.class);
+
+    private final StringBuilder sb = new StringBuilder(128);
+
+    @Override
+    public void onEvent(long time, EventType type, int elevatorId, int floorNo, int arg, long value) {
+        if (!LOGGER.isInfoEnabled()) {
+            return;
+        }
+        sb.setLength(0);
+        type.render(sb, time, elevatorId, floorNo, arg, value);
+        LOGGER.info(sb.toString());
+    }
+}
@@ -1,10 +0,0 @@
-package biz.jared.exception;
-
-/**
- * 任务无法执行异常，见于满载时
- *
- * @author jared
- * @date 2017/08/30
- */
-public class CannotExecTaskException extends Exception {
-}
@@ -1,10 +0,0 @@
-package biz.jared.exception;
-
-/**
- * 任务被取消异常
- *
- * @author jared
- * @date 2017/08/30
- */
-public class TaskCancelledException extends Exception {
-}
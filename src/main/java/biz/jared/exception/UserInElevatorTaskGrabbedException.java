@@ -1,10 +0,0 @@
-package biz.jared.exception;
-
-/**
- * 电梯里用户的任务被抢占异常
- *
- * @author jared
- * @date 2017/09/05
- */
-public class UserInElevatorTaskGrabbedException extends Exception {
-}
@@ -0,0 +1,40 @@
+package biz.jared.journal;
+
+import java.nio.file.Path;
+
+/**
+ * 事件日志的二进制格式，大端字节序
+ * 日志是一个目录，事件按顺序写进一个个段文件 events-000000.journal、events-000001.journal ...，写满一段换下一段
+ * <pre>
+ * 段头 16字节：magic(int) version(short) recordSize(short) segmentNo(int) 保留(int)
+ * 记录 28字节：type(byte) 保留(byte) floorNo(short) elevatorId(int) time(long) arg(int) value(long)
+ * </pre>
+ * type 是 EventType.ordinal() + 1，0 表示这一段后面没有记录了：段文件按整段大小映射，没写到的地方都是0，
+ * 进程中途退出时已经写进去的记录也能读出来；正常关闭时最后一段截掉没用的部分
+ * 楼层的事件电梯id为 EventType.NO_ELEVATOR，其它字段的含义见 EventType
+ *
+ * @author jared
+ */
+public final class EventJournal {
+    /**
+     * "ELEJ"
+     */
+    static final int MAGIC = 0x454C454A;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 28;
+    static final String SEGMENT_PREFIX = "events-";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private EventJournal() {
+    }
+
+    static Path segment(Path directory, int segmentNo) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentNo, SEGMENT_SUFFIX));
+    }
+
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+}
@@ -0,0 +1,82 @@
+package biz.jared.journal;
+
+import biz.jared.event.EventHandler;
+import biz.jared.event.EventType;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 按写入顺序回放事件日志：逐段只读映射，每条记录直接交给 EventHandler，不创建对象
+ *
+ * @author jared
+ */
+public final class JournalReader {
+    private static final EventType[] TYPES = EventType.values();
+
+    private JournalReader() {
+    }
+
+    /**
+     * @return 回放的事件数
+     * @throws IOException 目录里没有段文件、段头不对、有不认识的事件类型
+     */
+    public static long replay(Path directory, EventHandler handler) throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(EventJournal::isSegment).sorted().collect(Collectors.toList());
+        }
+        if (segments.isEmpty()) {
+            throw new IOException("no event journal segment in " + directory);
+        }
+        long count = 0;
+        for (Path segment : segments) {
+            count += replaySegment(segment, handler);
+        }
+        return count;
+    }
+
+    private static long replaySegment(Path path, EventHandler handler) throws IOException {
+        MappedByteBuffer segment;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (segment.remaining() < EventJournal.HEADER_SIZE || segment.getInt() != EventJournal.MAGIC) {
+            throw new IOException("not an event journal segment: " + path);
+        }
+        short version = segment.getShort();
+        short recordSize = segment.getShort();
+        if (version != EventJournal.VERSION || recordSize != EventJournal.RECORD_SIZE) {
+            throw new IOException("unsupported event journal version " + version + ", record size " + recordSize
+                    + ": " + path);
+        }
+        segment.position(EventJournal.HEADER_SIZE);
+        long count = 0;
+        while (segment.remaining() >= EventJournal.RECORD_SIZE) {
+            int type = segment.get();
+            if (type == 0) {
+                //后面没有写过
+                break;
+            }
+            if (type < 0 || type > TYPES.length) {
+                throw new IOException("unknown event type " + type + " at " + (segment.position() - 1) + ": " + path);
+            }
+            segment.get();
+            int floorNo = segment.getShort();
+            int elevatorId = segment.getInt();
+            long time = segment.getLong();
+            int arg = segment.getInt();
+            long value = segment.getLong();
+            handler.onEvent(time, TYPES[type - 1], elevatorId, floorNo, arg, value);
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,111 @@
+package biz.jared.journal;
+
+import biz.jared.SimulationConfig;
+import biz.jared.event.EventType;
+import biz.jared.metrics.ElevatorMetrics;
+import biz.jared.metrics.LatencyHistogram;
+import biz.jared.metrics.MetricsRegistry;
+import biz.jared.metrics.PassengerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 离线分析事件日志
+ * <p>
+ * 用法：
+ * <pre>
+ * JournalTool metrics {journal} [maxLoad]   重新算出指标，和模拟结束时输出的一样
+ * JournalTool timeline {journal} {elevatorId} 按时间顺序输出一部电梯的所有事件，-1 时输出楼层的事件
+ * JournalTool diff {journal} {journal}        对比两次运行（比如同样的到达流下两种分配策略）的主要指标
+ * </pre>
+ *
+ * @author jared
+ */
+public class JournalTool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalTool.class);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && "metrics".equals(args[0])) {
+            int maxLoad = args.length > 2 ? Integer.parseInt(args[2]) : SimulationConfig.DEFAULT.getMaxLoad();
+            MetricsReplay replay = replay(Paths.get(args[1]));
+            LOGGER.info("events {} arrivals {} redispatches {} cancels {} end time {}", replay.getEventCount(),
+                    replay.getArrivals(), replay.getRedispatches(), replay.getCancels(), replay.getEndTime());
+            replay.getRegistry().show(LOGGER, maxLoad);
+        } else if (args.length >= 3 && "timeline".equals(args[0])) {
+            timeline(Paths.get(args[1]), Integer.parseInt(args[2]));
+        } else if (args.length >= 3 && "diff".equals(args[0])) {
+            diff(replay(Paths.get(args[1])), replay(Paths.get(args[2])));
+        } else {
+            System.err.println("usage: JournalTool metrics {journal} [maxLoad]");
+            System.err.println("       JournalTool timeline {journal} {elevatorId}");
+            System.err.println("       JournalTool diff {journal} {journal}");
+            System.exit(1);
+        }
+    }
+
+    static MetricsReplay replay(Path journal) throws IOException {
+        MetricsReplay replay = new MetricsReplay();
+        JournalReader.replay(journal, replay);
+        return replay;
+    }
+
+    private static void timeline(Path journal, int elevatorId) throws IOException {
+        StringBuilder sb = new StringBuilder(128);
+        JournalReader.replay(journal, (time, type, id, floorNo, arg, value) -> {
+            if (id == elevatorId) {
+                sb.setLength(0);
+                type.render(sb, time, id, floorNo, arg, value);
+                LOGGER.info(sb.toString());
+            }
+        });
+    }
+
+    private static void diff(MetricsReplay a, MetricsReplay b) {
+        Map<String, Double> summaryA = summary(a);
+        Map<String, Double> summaryB = summary(b);
+        LOGGER.info(String.format("%-16s %14s %14s %14s", "", "a", "b", "b - a"));
+        for (Map.Entry<String, Double> entry : summaryA.entrySet()) {
+            double valueA = entry.getValue();
+            double valueB = summaryB.get(entry.getKey());
+            LOGGER.info(String.format("%-16s %14.2f %14.2f %+14.2f", entry.getKey(), valueA, valueB, valueB - valueA));
+        }
+    }
+
+    /**
+     * @return 一次运行的主要指标，按输出顺序排列
+     */
+    static Map<String, Double> summary(MetricsReplay replay) {
+        MetricsRegistry registry = replay.getRegistry();
+        PassengerMetrics passengerMetrics = registry.getPassengerMetrics();
+        LatencyHistogram wait = passengerMetrics.getWaitTime();
+        LatencyHistogram journey = passengerMetrics.getJourneyTime();
+        long stops = 0;
+        long doorCycles = 0;
+        for (ElevatorMetrics metrics : registry.getElevatorMetrics()) {
+            stops += metrics.getStops();
+            doorCycles += metrics.getDoorCycles();
+        }
+        Map<String, Double> summary = new LinkedHashMap<>();
+        summary.put("arrivals", (double) replay.getArrivals());
+        summary.put("served", (double) journey.getCount());
+        summary.put("wait mean", wait.getMean());
+        summary.put("wait p50", (double) wait.getValueAtPercentile(50));
+        summary.put("wait p95", (double) wait.getValueAtPercentile(95));
+        summary.put("wait p99", (double) wait.getValueAtPercentile(99));
+        summary.put("wait max", (double) wait.getMax());
+        summary.put("journey mean", journey.getMean());
+        summary.put("journey p95", (double) journey.getValueAtPercentile(95));
+        summary.put("distance", (double) registry.getTotalMoveDistance());
+        summary.put("stops", (double) stops);
+        summary.put("door cycles", (double) doorCycles);
+        summary.put("redispatches", (double) replay.getRedispatches());
+        summary.put("end time", (double) replay.getEndTime());
+        return summary;
+    }
+}
@@ -0,0 +1,110 @@
+package biz.jared.journal;
+
+import biz.jared.event.EventHandler;
+import biz.jared.event.EventType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+/**
+ * 把事件追加写进内存映射的段文件，写满一段换下一段；作为 EventLog 的 EventHandler 在渲染线程里写
+ * 目录里原来的段文件在打开时删掉
+ *
+ * @author jared
+ */
+public class JournalWriter implements EventHandler, Closeable {
+    /**
+     * 默认每段的记录数，约56MB
+     */
+    static final int DEFAULT_SEGMENT_RECORDS = 1 << 21;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private int segmentNo = -1;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long recordCount;
+
+    public JournalWriter(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    JournalWriter(Path directory, int segmentRecords) throws IOException {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files.filter(EventJournal::isSegment)::iterator) {
+                Files.delete(path);
+            }
+        }
+        roll();
+    }
+
+    @Override
+    public void onEvent(long time, EventType type, int elevatorId, int floorNo, int arg, long value) {
+        try {
+            write(time, type, elevatorId, floorNo, arg, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(long time, EventType type, int elevatorId, int floorNo, int arg, long value)
+            throws IOException {
+        if (segment.remaining() < EventJournal.RECORD_SIZE) {
+            roll();
+        }
+        segment.put((byte) (type.ordinal() + 1))
+                .put((byte) 0)
+                .putShort((short) floorNo)
+                .putInt(elevatorId)
+                .putLong(time)
+                .putInt(arg)
+                .putLong(value);
+        recordCount++;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * 换下一段：新文件按整段大小映射，先写段头
+     */
+    private void roll() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        segmentNo++;
+        channel = FileChannel.open(EventJournal.segment(directory, segmentNo), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                EventJournal.HEADER_SIZE + (long) segmentRecords * EventJournal.RECORD_SIZE);
+        segment.putInt(EventJournal.MAGIC)
+                .putShort(EventJournal.VERSION)
+                .putShort((short) EventJournal.RECORD_SIZE)
+                .putInt(segmentNo)
+                .putInt(0);
+    }
+
+    /**
+     * 把映射的内容刷到磁盘，截掉最后一段没写的部分
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            segment.force();
+            channel.truncate(segment.position());
+        } finally {
+            channel.close();
+        }
+    }
+}
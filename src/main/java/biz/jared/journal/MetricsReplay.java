@@ -0,0 +1,107 @@
+package biz.jared.journal;
+
+import biz.jared.event.EventHandler;
+import biz.jared.event.EventType;
+import biz.jared.metrics.ElevatorMetrics;
+import biz.jared.metrics.MetricsRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 从事件重新算出一轮模拟的指标：走楼层、停靠、乘客上下电梯、换乘的事件按模拟时的方式记进每个电梯的 ElevatorMetrics，
+ * 记录了全部类型事件的日志算出来的结果和模拟时 MetricsRegistry 里的相同
+ * 直达时一次走了几层，按电梯开始执行任务、上一次走到的楼层算
+ *
+ * @author jared
+ */
+public class MetricsReplay implements EventHandler {
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private final Map<Integer, ElevatorMetrics> elevatorMetrics = new HashMap<>();
+    /**
+     * 各电梯开始执行任务、走到的最近一个楼层
+     */
+    private final Map<Integer, Integer> elevatorFloors = new HashMap<>();
+    private long eventCount;
+    private long arrivals;
+    private long redispatches;
+    private long cancels;
+    private long endTime;
+
+    @Override
+    public void onEvent(long time, EventType type, int elevatorId, int floorNo, int arg, long value) {
+        eventCount++;
+        endTime = Math.max(endTime, time);
+        switch (type) {
+            case EXECUTE:
+                elevatorFloors.put(elevatorId, floorNo);
+                break;
+            case MOVE:
+                Integer lastFloorNo = elevatorFloors.put(elevatorId, floorNo);
+                metrics(elevatorId).recordMove((int) value,
+                        lastFloorNo == null ? 1 : Math.max(1, Math.abs(floorNo - lastFloorNo)));
+                break;
+            case STOP:
+                metrics(elevatorId).recordStop(arg);
+                break;
+            case WAIT:
+                metrics(elevatorId).getPassengerMetrics().recordWait(value);
+                break;
+            case RIDE:
+                metrics(elevatorId).getPassengerMetrics().recordRide(arg, value);
+                break;
+            case TRANSFER:
+                metrics(elevatorId).getPassengerMetrics().recordTransfer(value);
+                break;
+            case ARRIVE:
+                arrivals++;
+                break;
+            case REDISPATCH:
+                redispatches++;
+                break;
+            case CANCEL:
+                cancels++;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private ElevatorMetrics metrics(int elevatorId) {
+        return elevatorMetrics.computeIfAbsent(elevatorId, id -> {
+            ElevatorMetrics metrics = new ElevatorMetrics(id);
+            registry.register(metrics);
+            return metrics;
+        });
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return 到达楼层的乘客数
+     */
+    public long getArrivals() {
+        return arrivals;
+    }
+
+    public long getRedispatches() {
+        return redispatches;
+    }
+
+    public long getCancels() {
+        return cancels;
+    }
+
+    /**
+     * @return 最后一条事件的时刻
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+}
@@ -0,0 +1,120 @@
+package biz.jared.metrics;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * 单个电梯的运行指标，只由该电梯的线程写，读的时候再汇总到 MetricsRegistry
+ * 每个电梯写自己的计数，不和其它电梯争同一个缓存行；乘客时长的直方图大，不按电梯分，记到登记处分配的共用的一份里
+ * 只有一个写线程，自增不会丢，用 lazySet 写回，不需要CAS也不需要volatile写的内存屏障
+ *
+ * @author jared
+ */
+public class ElevatorMetrics {
+    private static final AtomicLongFieldUpdater<ElevatorMetrics> MOVE_DISTANCE =
+            AtomicLongFieldUpdater.newUpdater(ElevatorMetrics.class, "moveDistance");
+    private static final AtomicLongFieldUpdater<ElevatorMetrics> PASSENGER_DISTANCE =
+            AtomicLongFieldUpdater.newUpdater(ElevatorMetrics.class, "passengerDistance");
+    private static final AtomicLongFieldUpdater<ElevatorMetrics> STOPS =
+            AtomicLongFieldUpdater.newUpdater(ElevatorMetrics.class, "stops");
+    private static final AtomicLongFieldUpdater<ElevatorMetrics> DOOR_CYCLES =
+            AtomicLongFieldUpdater.newUpdater(ElevatorMetrics.class, "doorCycles");
+
+    private final int elevatorId;
+    /**
+     * 运行里程，单位楼层
+     */
+    private volatile long moveDistance;
+    /**
+     * 载客里程：每走一层累加当时的负载人数
+     */
+    private volatile long passengerDistance;
+    /**
+     * 到达任务楼层停靠的次数
+     */
+    private volatile long stops;
+    /**
+     * 开关门次数：停靠时有人上下才开门
+     */
+    private volatile long doorCycles;
+    /**
+     * 乘坐本电梯的乘客时长记到哪一份，登记到 MetricsRegistry 时分配，几部电梯共用一份，读的时候合并
+     */
+    private volatile PassengerMetrics passengerMetrics;
+
+    public ElevatorMetrics(int elevatorId) {
+        this.elevatorId = elevatorId;
+    }
+
+    /**
+     * 走了一层
+     *
+     * @param loadCount 当前负载人数
+     */
+    public void recordMove(int loadCount) {
+        recordMove(loadCount, 1);
+    }
+
+    /**
+     * 一次走了几层，直达时跨过不停的楼层
+     *
+     * @param loadCount 当前负载人数
+     * @param floors    走的层数
+     */
+    public void recordMove(int loadCount, int floors) {
+        MOVE_DISTANCE.lazySet(this, moveDistance + floors);
+        PASSENGER_DISTANCE.lazySet(this, passengerDistance + (long) loadCount * floors);
+    }
+
+    /**
+     * 到达任务楼层停靠了一次
+     *
+     * @param transferred 本次上下电梯的人数
+     */
+    public void recordStop(int transferred) {
+        STOPS.lazySet(this, stops + 1);
+        if (transferred > 0) {
+            DOOR_CYCLES.lazySet(this, doorCycles + 1);
+        }
+    }
+
+    public int getElevatorId() {
+        return elevatorId;
+    }
+
+    public long getMoveDistance() {
+        return moveDistance;
+    }
+
+    public long getStops() {
+        return stops;
+    }
+
+    public long getDoorCycles() {
+        return doorCycles;
+    }
+
+    /**
+     * @param maxLoad 最大负载人数
+     * @return 平均每走一层的满载率，0 ~ 1
+     */
+    public double getLoadFactor(int maxLoad) {
+        long distance = moveDistance;
+        return distance == 0 ? 0 : passengerDistance / (double) (distance * maxLoad);
+    }
+
+    /**
+     * @return 记乘客时长的那一份，和别的电梯共用，只能往里记，读要从 MetricsRegistry 读合并后的
+     * @throws IllegalStateException 还没登记到 MetricsRegistry
+     */
+    public PassengerMetrics getPassengerMetrics() {
+        PassengerMetrics metrics = passengerMetrics;
+        if (metrics == null) {
+            throw new IllegalStateException("metrics of elevator " + elevatorId + " is not registered");
+        }
+        return metrics;
+    }
+
+    void setPassengerMetrics(PassengerMetrics passengerMetrics) {
+        this.passengerMetrics = passengerMetrics;
+    }
+}
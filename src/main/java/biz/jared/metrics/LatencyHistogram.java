@@ -0,0 +1,146 @@
+package biz.jared.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 时长分布的直方图，按HDR的方式分桶：小于 2 * SUB_BUCKET_HALF 的值一个值一个桶，
+ * 更大的值每翻一倍分 SUB_BUCKET_HALF 个等宽的桶，相对误差不超过 1 / SUB_BUCKET_HALF
+ * 记录只是对桶计数做一次原子加，多个电梯线程同时记录不用加锁；两个直方图可以合并
+ *
+ * @author jared
+ */
+public class LatencyHistogram {
+    /**
+     * 每翻一倍的值域内分的桶数，2的幂
+     */
+    private static final int SUB_BUCKET_HALF_BITS = 5;
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_HALF_BITS;
+    /**
+     * 覆盖 0 ~ Long.MAX_VALUE 需要的桶数
+     */
+    private static final int BUCKET_NUM = (64 - SUB_BUCKET_HALF_BITS) * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_NUM);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个时长，负数按0记
+     *
+     * @param value 时长，单位由调用方决定
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        totalValue.add(value);
+        long currMax = max.get();
+        while (value > currMax && !max.compareAndSet(currMax, value)) {
+            currMax = max.get();
+        }
+    }
+
+    /**
+     * 把另一个直方图的记录加到本直方图上
+     *
+     * @param other
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_NUM; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.add(other.getCount());
+        totalValue.add(other.getTotal());
+        long otherMax = other.getMax();
+        long currMax = max.get();
+        while (otherMax > currMax && !max.compareAndSet(currMax, otherMax)) {
+            currMax = max.get();
+        }
+    }
+
+    /**
+     * 清空记录，和record同时进行时不保证清干净，只在一轮模拟开始前调用
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_NUM; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalValue.reset();
+        max.set(0);
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * @return 所有记录的时长之和
+     */
+    public long getTotal() {
+        return totalValue.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : getTotal() / (double) count;
+    }
+
+    /**
+     * @param percentile 百分位，0 ~ 100
+     * @return 不超过该百分位的记录中最大值所在桶的上界，不超过实际最大值；没有记录时返回0
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_NUM; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d", getCount(), getMean(),
+                getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99), getMax());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_HALF << 1) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_HALF_BITS;
+        return ((shift + 1) << SUB_BUCKET_HALF_BITS) + (int) (value >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    /**
+     * @return 桶内能放的最大值
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_HALF << 1) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_HALF_BITS) - 1;
+        long subBucket = (index & (SUB_BUCKET_HALF - 1)) + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,122 @@
+package biz.jared.metrics;
+
+import org.slf4j.Logger;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一轮模拟的指标登记处：每个电梯登记自己的 ElevatorMetrics，写的时候各写各的，读的时候再汇总
+ * 乘客时长按电梯id分成几份记，份数只和CPU核数有关，一万部电梯也只有几份直方图，读的时候合并
+ *
+ * @author jared
+ */
+public class MetricsRegistry {
+    /**
+     * 按电梯id排序，同id的电梯后登记的覆盖先登记的
+     */
+    private final Map<Integer, ElevatorMetrics> elevatorMetrics = new ConcurrentSkipListMap<>();
+    /**
+     * 乘客时长分的份数，不小于CPU核数的2的幂
+     */
+    private static final int PASSENGER_STRIPES =
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+    /**
+     * id为i的电梯的乘客时长记在 passengerStripes[i & (PASSENGER_STRIPES - 1)]
+     */
+    private volatile PassengerMetrics[] passengerStripes = newPassengerStripes();
+    /**
+     * 没有电梯能接的呼叫数和因此走掉的人数：分区楼宇里能停呼叫楼层的梯群电梯都退出了
+     */
+    private final LongAdder unservedCalls = new LongAdder();
+    private final LongAdder abandonedUsers = new LongAdder();
+
+    private static PassengerMetrics[] newPassengerStripes() {
+        PassengerMetrics[] stripes = new PassengerMetrics[PASSENGER_STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new PassengerMetrics();
+        }
+        return stripes;
+    }
+
+    /**
+     * 登记电梯，同时分给它记乘客时长的那一份
+     */
+    public void register(ElevatorMetrics metrics) {
+        metrics.setPassengerMetrics(passengerStripes[metrics.getElevatorId() & (PASSENGER_STRIPES - 1)]);
+        elevatorMetrics.put(metrics.getElevatorId(), metrics);
+    }
+
+    /**
+     * 清掉所有登记的电梯和乘客时长，一轮模拟开始、创建电梯之前调用
+     */
+    public void reset() {
+        elevatorMetrics.clear();
+        passengerStripes = newPassengerStripes();
+        unservedCalls.reset();
+        abandonedUsers.reset();
+    }
+
+    /**
+     * 记一个没有电梯能接的呼叫
+     *
+     * @param users 等这个呼叫的人数
+     */
+    public void recordUnservedCall(int users) {
+        unservedCalls.increment();
+        abandonedUsers.add(users);
+    }
+
+    public long getUnservedCalls() {
+        return unservedCalls.sum();
+    }
+
+    public long getAbandonedUsers() {
+        return abandonedUsers.sum();
+    }
+
+    public Collection<ElevatorMetrics> getElevatorMetrics() {
+        return elevatorMetrics.values();
+    }
+
+    /**
+     * @return 所有电梯的运行总里程
+     */
+    public long getTotalMoveDistance() {
+        long total = 0;
+        for (ElevatorMetrics metrics : elevatorMetrics.values()) {
+            total += metrics.getMoveDistance();
+        }
+        return total;
+    }
+
+    /**
+     * @return 各份乘客时长合并后的新实例
+     */
+    public PassengerMetrics getPassengerMetrics() {
+        PassengerMetrics total = new PassengerMetrics();
+        for (PassengerMetrics stripe : passengerStripes) {
+            total.add(stripe);
+        }
+        return total;
+    }
+
+    /**
+     * 输出乘客时长分布和每个电梯的运行指标
+     *
+     * @param maxLoad 最大负载人数，算满载率用
+     */
+    public void show(Logger logger, int maxLoad) {
+        getPassengerMetrics().show(logger);
+        if (getUnservedCalls() > 0) {
+            logger.warn("unserved calls={} abandoned users={}", getUnservedCalls(), getAbandonedUsers());
+        }
+        for (ElevatorMetrics metrics : elevatorMetrics.values()) {
+            logger.info("elevator {} distance={} stops={} doorCycles={} loadFactor={}", metrics.getElevatorId(),
+                    metrics.getMoveDistance(), metrics.getStops(), metrics.getDoorCycles(),
+                    String.format("%.2f", metrics.getLoadFactor(maxLoad)));
+        }
+    }
+}
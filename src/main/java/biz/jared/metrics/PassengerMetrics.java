@@ -0,0 +1,89 @@
+package biz.jared.metrics;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 乘客的时长指标：候梯时间（到达楼层到进入电梯）、乘梯时间（进入电梯到走出电梯）、全程时间（两者之和）
+ * 分区楼宇里要换乘的乘客，每一程的候梯、乘梯时间分别记录，全程时间从第一次到达楼层算到最后走出电梯，中间的换乘都算在内
+ * 单位 Env.TIME_UNIT
+ *
+ * @author jared
+ */
+public class PassengerMetrics {
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LatencyHistogram rideTime = new LatencyHistogram();
+    private final LatencyHistogram journeyTime = new LatencyHistogram();
+    /**
+     * 换乘的人次
+     */
+    private final LongAdder transfers = new LongAdder();
+
+    public void recordWait(long wait) {
+        waitTime.record(wait);
+    }
+
+    /**
+     * 乘客走出电梯时记录乘梯时间和全程时间
+     *
+     * @param wait 该乘客的候梯时间，换乘过的乘客是坐上最后一部电梯之前的全部时间
+     * @param ride 该乘客的乘梯时间，换乘过的乘客是最后一程的
+     */
+    public void recordRide(long wait, long ride) {
+        rideTime.record(ride);
+        journeyTime.record(wait + ride);
+    }
+
+    /**
+     * 乘客在换乘楼层走出电梯时记录这一程的乘梯时间，全程时间等到了最终要去的楼层再记
+     *
+     * @param ride 这一程的乘梯时间
+     */
+    public void recordTransfer(long ride) {
+        rideTime.record(ride);
+        transfers.increment();
+    }
+
+    public void add(PassengerMetrics other) {
+        waitTime.add(other.waitTime);
+        rideTime.add(other.rideTime);
+        journeyTime.add(other.journeyTime);
+        transfers.add(other.getTransfers());
+    }
+
+    public void reset() {
+        waitTime.reset();
+        rideTime.reset();
+        journeyTime.reset();
+        transfers.reset();
+    }
+
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    public LatencyHistogram getRideTime() {
+        return rideTime;
+    }
+
+    public LatencyHistogram getJourneyTime() {
+        return journeyTime;
+    }
+
+    /**
+     * @return 换乘的人次
+     */
+    public long getTransfers() {
+        return transfers.sum();
+    }
+
+    public void show(Logger logger) {
+        logger.info("wait time    {}", waitTime);
+        logger.info("ride time    {}", rideTime);
+        logger.info("journey time {}", journeyTime);
+        if (getTransfers() > 0) {
+            logger.info("transfers    {}", getTransfers());
+        }
+    }
+}
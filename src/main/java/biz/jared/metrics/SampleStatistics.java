@@ -0,0 +1,57 @@
+package biz.jared.metrics;
+
+/**
+ * 多轮模拟结果的样本统计：均值、标准差、95%置信区间
+ *
+ * @author jared
+ */
+public final class SampleStatistics {
+    /**
+     * 自由度 1 ~ 30 的t分布97.5%分位数，自由度更大时按正态分布取1.96
+     */
+    private static final double[] T_975 = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+    private static final double Z_975 = 1.96;
+
+    private SampleStatistics() {
+    }
+
+    public static double mean(double[] samples) {
+        if (samples.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (double sample : samples) {
+            sum += sample;
+        }
+        return sum / samples.length;
+    }
+
+    /**
+     * @return 样本标准差（除以 n - 1），样本少于2个时返回0
+     */
+    public static double standardDeviation(double[] samples) {
+        if (samples.length < 2) {
+            return 0;
+        }
+        double mean = mean(samples);
+        double sum = 0;
+        for (double sample : samples) {
+            sum += (sample - mean) * (sample - mean);
+        }
+        return Math.sqrt(sum / (samples.length - 1));
+    }
+
+    /**
+     * @return 均值95%置信区间的半宽，均值 ± 半宽 即置信区间；样本少于2个时返回0
+     */
+    public static double halfWidth95(double[] samples) {
+        int n = samples.length;
+        if (n < 2) {
+            return 0;
+        }
+        double t = n - 1 <= T_975.length ? T_975[n - 2] : Z_975;
+        return t * standardDeviation(samples) / Math.sqrt(n);
+    }
+}
@@ -0,0 +1,97 @@
+package biz.jared.simulation;
+
+import biz.jared.domain.Floor;
+import biz.jared.domain.User;
+import com.google.common.base.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 随机产生用户：随机站在某层，随机想去另一层
+ *
+ * @author jared
+ */
+public class RandomUserGenerator implements UserGenerator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RandomUserGenerator.class);
+    private final List<Floor> floorList;
+    private final int userNum;
+    private Random random;
+    /**
+     * 用户计时用的时钟
+     */
+    private final Ticker ticker;
+    /**
+     * 已经产生的用户数
+     */
+    private int generated;
+
+    /**
+     * @param floorList 所有楼层
+     * @param userNum   总用户数
+     * @param random    随机数发生器，用固定种子可以复现同样的用户序列
+     * @param ticker    用户计时用的时钟，一般是所属模拟的时钟的ticker
+     */
+    public RandomUserGenerator(List<Floor> floorList, int userNum, Random random, Ticker ticker) {
+        this.floorList = floorList;
+        this.userNum = userNum;
+        this.random = random;
+        this.ticker = ticker;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return generated < userNum;
+    }
+
+    /**
+     * 产生下一个用户，并让他到楼层里等电梯
+     */
+    @Override
+    public void next() {
+        int i = generated++;
+        //站在什么楼层
+        int randomSrcFloorNo = random.nextInt(floorList.size());
+        Floor srcFloor = floorList.get(randomSrcFloorNo);
+        //想去什么楼层
+        Floor targetFloor = floorList.get(differentFloorNo(randomSrcFloorNo));
+        User user = new User("lucy" + i, targetFloor, ticker);
+        LOGGER.debug("{} come to src_floorNo={}", user, srcFloor.getFloorNo());
+        //srcFloor.locate(targetFloor).opposite()，结果Direction一定是对的，但是这里也支持传错的，也符合实际
+        srcFloor.add(user, srcFloor.locate(targetFloor).opposite());
+    }
+
+    @Override
+    public void save(DataOutput out) throws IOException {
+        out.writeInt(generated);
+        SimulationSnapshot.writeRandom(out, random);
+    }
+
+    /**
+     * 恢复出来的随机数发生器是一个新的对象，不再和构造时传入的共用
+     */
+    @Override
+    public void restore(DataInput in) throws IOException {
+        generated = in.readInt();
+        random = SimulationSnapshot.readRandom(in);
+    }
+
+    /**
+     * 返回一下不一样的楼层
+     *
+     * @param randomSrcFloorNo
+     * @return
+     */
+    private int differentFloorNo(int randomSrcFloorNo) {
+        int result;
+        do {
+            result = random.nextInt(floorList.size());
+        } while (result == randomSrcFloorNo);
+        return result;
+    }
+}
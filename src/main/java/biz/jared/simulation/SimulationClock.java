@@ -0,0 +1,56 @@
+package biz.jared.simulation;
+
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 模拟时钟，所有"时间流逝"的操作都要经过它
+ * 时间单位统一为 Env.TIME_UNIT
+ *
+ * @author jared
+ */
+public interface SimulationClock {
+    /**
+     * 当前时间
+     *
+     * @return 当前时间，单位 Env.TIME_UNIT
+     */
+    long now();
+
+    /**
+     * 让当前线程流逝一段时间
+     *
+     * @param duration 流逝的时长，单位 Env.TIME_UNIT
+     * @throws InterruptedException 等待过程中被中断
+     */
+    void sleep(long duration) throws InterruptedException;
+
+    /**
+     * 带超时地从队列中取元素，超时按本时钟计算
+     *
+     * @param queue   队列
+     * @param timeout 超时时长，单位 Env.TIME_UNIT
+     * @param <E>     元素类型
+     * @return 取到的元素，超时返回null
+     * @throws InterruptedException 等待过程中被中断
+     */
+    <E> E poll(BlockingQueue<E> queue, long timeout) throws InterruptedException;
+
+    /**
+     * 登记一个活跃的参与者，在它release之前时钟不会向前推进
+     */
+    void hold();
+
+    /**
+     * 注销一个活跃的参与者
+     */
+    void release();
+
+    /**
+     * 按本时钟计时的Ticker，供Stopwatch使用
+     *
+     * @return ticker
+     */
+    Ticker ticker();
+}
@@ -0,0 +1,139 @@
+package biz.jared.simulation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * 单线程引擎在两个时间单位之间的完整状态：时钟、用户产生器产生到哪里、楼层等候的人和呼叫、
+ * 电梯的位置/状态/车里的人/任务列表、调度器积压的任务
+ * 从同一个快照可以恢复出多个模拟，换上不同的分配策略、优先级策略接着跑，之后到达的用户完全一样；
+ * 指标不在快照里，恢复出来的模拟只统计快照之后的
+ * <pre>
+ * 文件头 16字节：magic(int) version(short) 保留(short) time(long)
+ * 之后：arrivalsFinished(byte) 用户产生器的状态 楼宇、电梯、调度器的状态（见 SnapshotCodec）
+ * </pre>
+ * 大端字节序，time 是快照时的模拟时间，单位 Env.TIME_UNIT
+ *
+ * @author jared
+ */
+public final class SimulationSnapshot {
+    /**
+     * "ELSN"
+     */
+    static final int MAGIC = 0x454C534E;
+    static final short VERSION = 3;
+    static final int HEADER_SIZE = 16;
+
+    private final byte[] data;
+    private final long time;
+
+    private SimulationSnapshot(byte[] data) {
+        this.data = data;
+        this.time = ByteBuffer.wrap(data).getLong(8);
+    }
+
+    /**
+     * @return 写好了文件头的输出，写完后用 of() 生成快照
+     */
+    static DataOutputStream newOutput(ByteArrayOutputStream bytes, long time) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(0);
+        out.writeLong(time);
+        return out;
+    }
+
+    static SimulationSnapshot of(ByteArrayOutputStream bytes) {
+        return new SimulationSnapshot(bytes.toByteArray());
+    }
+
+    /**
+     * @throws IOException 不是快照文件或者版本不支持
+     */
+    public static SimulationSnapshot read(Path path) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        ByteBuffer header = ByteBuffer.wrap(data);
+        if (data.length < HEADER_SIZE || header.getInt() != MAGIC) {
+            throw new IOException("not a simulation snapshot: " + path);
+        }
+        short version = header.getShort();
+        if (version != VERSION) {
+            throw new IOException("unsupported simulation snapshot version " + version + ": " + path);
+        }
+        return new SimulationSnapshot(data);
+    }
+
+    public void write(Path path) throws IOException {
+        Files.write(path, data);
+    }
+
+    /**
+     * @return 跳过文件头的输入
+     */
+    DataInputStream newInput() {
+        return new DataInputStream(new ByteArrayInputStream(data, HEADER_SIZE, data.length - HEADER_SIZE));
+    }
+
+    /**
+     * @return 快照时的模拟时间，单位 Env.TIME_UNIT
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return 快照的字节数
+     */
+    public int size() {
+        return data.length;
+    }
+
+    /**
+     * 随机数发生器的状态只能通过序列化取出来，写成 长度(short) 序列化的字节
+     */
+    public static void writeRandom(DataOutput out, Random random) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+            objectOut.writeObject(random);
+        }
+        out.writeShort(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    /**
+     * 快照文件可能来自别处，反序列化时只认 Random 一个类
+     *
+     * @return 和写入时状态相同的新随机数发生器
+     */
+    public static Random readRandom(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                if (!Random.class.getName().equals(desc.getName())) {
+                    throw new InvalidClassException(desc.getName(), "not allowed in snapshot");
+                }
+                return super.resolveClass(desc);
+            }
+        }) {
+            return (Random) objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("bad random state in snapshot", e);
+        }
+    }
+}
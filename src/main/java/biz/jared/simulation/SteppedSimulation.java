@@ -0,0 +1,128 @@
+package biz.jared.simulation;
+
+import biz.jared.SimulationContext;
+import biz.jared.domain.Elevator;
+import biz.jared.domain.SnapshotCodec;
+import biz.jared.domain.SteppedDispatcher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单线程确定性模拟引擎
+ * 所有电梯由一个事件循环按时间单位逐个推进，不起任何线程，同样的种子一定得到同样的运行结果
+ * 每个时间单位内依次：时间流逝、来一个用户、分配积压任务、所有电梯各走一步
+ * 两个时间单位之间可以存快照，新建的模拟从快照恢复后接着往下跑，见 SimulationSnapshot
+ *
+ * @author jared
+ */
+public class SteppedSimulation implements Closeable {
+    private final SimulationContext context;
+    private final List<Elevator> elevatorList;
+    private final SteppedDispatcher dispatcher;
+    private final UserGenerator userGenerator;
+    private final VirtualClock clock;
+    /**
+     * 还没退出的电梯
+     */
+    private final List<Elevator> runningList;
+    /**
+     * 每一步推进的时长
+     */
+    private final int elapsedTime;
+
+    /**
+     * @param context       模拟上下文，时钟必须是虚拟时钟，用户产生器要用这个时钟的ticker计时
+     * @param elevatorList  所有电梯，它们的dispatcher必须是传入的dispatcher
+     * @param dispatcher    单线程调度器
+     * @param userGenerator 用户产生器
+     */
+    public SteppedSimulation(SimulationContext context, List<Elevator> elevatorList, SteppedDispatcher dispatcher,
+                             UserGenerator userGenerator) {
+        if (!(context.getClock() instanceof VirtualClock)) {
+            throw new IllegalArgumentException("stepped simulation needs a VirtualClock: " + context.getClock());
+        }
+        this.context = context;
+        this.elevatorList = elevatorList;
+        this.dispatcher = dispatcher;
+        this.userGenerator = userGenerator;
+        this.clock = (VirtualClock) context.getClock();
+        this.elapsedTime = context.getConfig().getElapsedTime();
+        this.runningList = new ArrayList<>(elevatorList);
+    }
+
+    /**
+     * 一直运行到所有电梯都退出
+     */
+    public void run() {
+        runUntil(Long.MAX_VALUE);
+    }
+
+    /**
+     * 运行到时钟到了 time，或者所有电梯都退出
+     *
+     * @param time 模拟时间，单位 Env.TIME_UNIT
+     * @return 是否还有电梯在运行
+     */
+    public boolean runUntil(long time) {
+        while (!runningList.isEmpty() && clock.now() < time) {
+            clock.elapse(elapsedTime);
+            if (userGenerator.hasNext()) {
+                userGenerator.next();
+            } else {
+                context.finishArrivals();
+            }
+            dispatcher.dispatchPending();
+            runningList.removeIf(elevator -> !elevator.step());
+        }
+        return !runningList.isEmpty();
+    }
+
+    /**
+     * 存下当前的完整状态，要在两次 runUntil 之间调用
+     */
+    public SimulationSnapshot snapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = SimulationSnapshot.newOutput(bytes, clock.now())) {
+            out.writeBoolean(context.isArrivalsFinished());
+            userGenerator.save(out);
+            SnapshotCodec.write(out, elevatorList, dispatcher);
+        }
+        return SimulationSnapshot.of(bytes);
+    }
+
+    /**
+     * 恢复到快照时的状态，之后接着快照往下跑
+     * 要在新建的模拟开始运行前调用，楼宇、电梯、用户产生器要和存快照的那个模拟一样构造，分配策略、优先级策略可以不同
+     *
+     * @throws IOException              快照内容不完整
+     * @throws IllegalArgumentException 楼层数、电梯和快照时的不一样
+     */
+    public void restore(SimulationSnapshot snapshot) throws IOException {
+        if (clock.now() > snapshot.getTime()) {
+            throw new IllegalStateException("can't restore a snapshot at " + snapshot.getTime()
+                    + " after the simulation has run to " + clock.now());
+        }
+        clock.elapse(snapshot.getTime() - clock.now());
+        try (DataInputStream in = snapshot.newInput()) {
+            if (in.readBoolean()) {
+                context.finishArrivals();
+            }
+            userGenerator.restore(in);
+            runningList.retainAll(SnapshotCodec.read(in, elevatorList, dispatcher));
+        }
+    }
+
+    /**
+     * 关闭用户产生器
+     */
+    @Override
+    public void close() throws IOException {
+        userGenerator.close();
+    }
+}
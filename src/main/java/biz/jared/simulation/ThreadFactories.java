@@ -0,0 +1,70 @@
+package biz.jared.simulation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 电梯、dispatcher、用户产生器所用线程的工厂
+ *
+ * @author jared
+ */
+public final class ThreadFactories {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThreadFactories.class);
+    /**
+     * Thread.ofVirtual()，运行时不支持虚拟线程时为null
+     */
+    private static final Method OF_VIRTUAL = findOfVirtual();
+
+    private ThreadFactories() {
+    }
+
+    private static Method findOfVirtual() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            LOGGER.warn("virtual thread is not supported by java {}, use platform thread instead",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    /**
+     * 普通的平台线程
+     *
+     * @param prefix 线程名前缀，后面跟从0开始的序号
+     * @return 线程工厂
+     */
+    public static ThreadFactory platform(String prefix) {
+        AtomicInteger index = new AtomicInteger();
+        return runnable -> new Thread(runnable, prefix + index.getAndIncrement());
+    }
+
+    /**
+     * 虚拟线程，阻塞在 poll/sleep 上时不占用载体线程，一个JVM里可以跑上万个电梯
+     * 项目按 1.8 编译，所以通过反射调用 Thread.ofVirtual()，运行时低于 JDK 21 时退化为平台线程
+     *
+     * @param prefix 线程名前缀，后面跟从0开始的序号
+     * @return 线程工厂
+     */
+    public static ThreadFactory virtual(String prefix) {
+        if (OF_VIRTUAL == null) {
+            return platform(prefix);
+        }
+        try {
+            //实现类不对外开放，方法都要从公开的 Thread.Builder 接口上取
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            //JDK 19、20 没开 --enable-preview 时有 Thread.ofVirtual()，但是调用会抛 UnsupportedOperationException
+            LOGGER.warn("virtual thread is not available on java {}, use platform thread instead: {}",
+                    System.getProperty("java.version"), e.getCause() == null ? e : e.getCause());
+            return platform(prefix);
+        }
+    }
+}
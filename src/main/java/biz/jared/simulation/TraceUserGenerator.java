@@ -0,0 +1,120 @@
+package biz.jared.simulation;
+
+import biz.jared.Env;
+import biz.jared.domain.Floor;
+import biz.jared.domain.User;
+import biz.jared.trace.ArrivalSource;
+import com.google.common.base.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按乘客到达流回放用户：到达时间从产生器创建时算起，时间到了就让那一组人到出发楼层等电梯
+ * 到达流是流式读的（内存映射的到达记录文件、现场产生的交通流），只有已经到达的用户才会创建出来
+ *
+ * @author jared
+ */
+public class TraceUserGenerator implements UserGenerator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceUserGenerator.class);
+    private final List<Floor> floorList;
+    private final ArrivalSource source;
+    private final Ticker ticker;
+    /**
+     * 回放开始的时刻，单位纳秒
+     */
+    private long startNanos;
+    /**
+     * source 当前的记录已经读出来了，但还没到时间
+     */
+    private boolean pending;
+    /**
+     * 已经产生的用户数
+     */
+    private long generated;
+
+    /**
+     * @param floorList 所有楼层，记录里的楼层号不能超过楼层数
+     * @param source    乘客到达流，关闭产生器时一起关闭
+     * @param ticker    用户计时、判断到达时间用的时钟，一般是所属模拟的时钟的ticker
+     */
+    public TraceUserGenerator(List<Floor> floorList, ArrivalSource source, Ticker ticker) {
+        this.floorList = floorList;
+        this.source = source;
+        this.ticker = ticker;
+        this.startNanos = ticker.read();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return pending || source.hasNext();
+    }
+
+    @Override
+    public void next() {
+        long now = Env.TIME_UNIT.convert(ticker.read() - startNanos, TimeUnit.NANOSECONDS);
+        try {
+            while (pending || source.hasNext()) {
+                if (!pending) {
+                    source.next();
+                }
+                if (source.getTime() > now) {
+                    pending = true;
+                    return;
+                }
+                pending = false;
+                arrive(source.getSrcFloorNo(), source.getTargetFloorNo(), source.getGroupSize());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void arrive(int srcFloorNo, int targetFloorNo, int groupSize) {
+        if (srcFloorNo > floorList.size() || targetFloorNo > floorList.size()) {
+            throw new IllegalStateException("arrival from floor " + srcFloorNo + " to " + targetFloorNo
+                    + " is out of the building with " + floorList.size() + " floors");
+        }
+        Floor srcFloor = floorList.get(srcFloorNo - 1);
+        Floor targetFloor = floorList.get(targetFloorNo - 1);
+        for (int i = 0; i < groupSize; i++) {
+            User user = new User("trace" + generated++, targetFloor, ticker);
+            LOGGER.debug("{} come to src_floorNo={}", user, srcFloorNo);
+            srcFloor.add(user, srcFloor.locate(targetFloor).opposite());
+        }
+    }
+
+    @Override
+    public void save(DataOutput out) throws IOException {
+        out.writeLong(startNanos);
+        out.writeBoolean(pending);
+        out.writeLong(generated);
+        source.save(out);
+    }
+
+    @Override
+    public void restore(DataInput in) throws IOException {
+        startNanos = in.readLong();
+        pending = in.readBoolean();
+        generated = in.readLong();
+        source.restore(in);
+    }
+
+    /**
+     * @return 已经产生的用户数
+     */
+    public long getGenerated() {
+        return generated;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
@@ -0,0 +1,39 @@
+package biz.jared.simulation;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 用户产生器，模拟每流逝一个时间单位调用一次 next()
+ *
+ * @author jared
+ */
+public interface UserGenerator extends Closeable {
+
+    /**
+     * @return 后面是否还会有用户到来
+     */
+    boolean hasNext();
+
+    /**
+     * 让这个时间单位里到来的用户到楼层里等电梯
+     */
+    void next();
+
+    /**
+     * 把产生到哪里写进快照
+     */
+    void save(DataOutput out) throws IOException;
+
+    /**
+     * 从快照恢复到 save 时的位置，之后产生的用户和 save 的那个产生器接着产生的一样
+     * 要在同样构造出来的产生器上调用
+     */
+    void restore(DataInput in) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,143 @@
+package biz.jared.simulation;
+
+import biz.jared.Env;
+import com.google.common.base.Ticker;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 虚拟时钟（离散事件驱动）
+ * 每个sleep都是一个唤醒事件，当所有参与者都在等待时，时间直接跳到最近的唤醒事件，不再真的sleep
+ * 参与者：电梯线程、dispatcher里正在执行的分配任务、产生用户的线程，它们都要先hold再release
+ *
+ * @author jared
+ */
+public class VirtualClock implements SimulationClock {
+    /**
+     * 当前虚拟时间
+     */
+    private volatile long now;
+    /**
+     * 正在活动（没有在等待时间流逝）的参与者数
+     */
+    private int busy;
+    /**
+     * 所有在等待中的唤醒时间点
+     */
+    private final PriorityQueue<Long> wakeUpQueue = new PriorityQueue<>();
+    /**
+     * 保护 busy 和 wakeUpQueue
+     */
+    private final Lock lock = new ReentrantLock();
+    private final Condition timeAdvanced = lock.newCondition();
+
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return Env.TIME_UNIT.toNanos(now);
+        }
+    };
+
+    @Override
+    public long now() {
+        return now;
+    }
+
+    @Override
+    public void sleep(long duration) throws InterruptedException {
+        lock.lock();
+        try {
+            long wakeUpTime = now + duration;
+            wakeUpQueue.add(wakeUpTime);
+            busy--;
+            advance();
+            try {
+                //advance时会替被唤醒的参与者把busy加回来
+                while (now < wakeUpTime) {
+                    timeAdvanced.await();
+                }
+            } catch (InterruptedException e) {
+                //还没被唤醒就被中断了，要自己撤销唤醒事件并恢复活动状态
+                if (now < wakeUpTime) {
+                    wakeUpQueue.remove(wakeUpTime);
+                    busy++;
+                }
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public <E> E poll(BlockingQueue<E> queue, long timeout) throws InterruptedException {
+        long deadline = now + timeout;
+        E e = queue.poll();
+        //每流逝一个时间单位看一次队列，虚拟时间下这个轮询不消耗真实时间
+        while (e == null && now < deadline) {
+            sleep(1);
+            e = queue.poll();
+        }
+        return e;
+    }
+
+    @Override
+    public void hold() {
+        lock.lock();
+        try {
+            busy++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release() {
+        lock.lock();
+        try {
+            busy--;
+            advance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 单线程引擎直接推进时间，没有任何参与者在等待
+     *
+     * @param duration 推进的时长，单位 Env.TIME_UNIT
+     */
+    public void elapse(long duration) {
+        lock.lock();
+        try {
+            now += duration;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Ticker ticker() {
+        return ticker;
+    }
+
+    /**
+     * 所有参与者都在等待时，时间跳到最近的唤醒点，并唤醒所有到点的参与者
+     * 调用时必须持有lock
+     */
+    private void advance() {
+        if (busy > 0 || wakeUpQueue.isEmpty()) {
+            return;
+        }
+        now = wakeUpQueue.peek();
+        while (!wakeUpQueue.isEmpty() && wakeUpQueue.peek() <= now) {
+            wakeUpQueue.poll();
+            busy++;
+        }
+        timeAdvanced.signalAll();
+    }
+}
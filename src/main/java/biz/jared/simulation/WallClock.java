@@ -0,0 +1,45 @@
+package biz.jared.simulation;
+
+import biz.jared.Env;
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 真实时钟，时间流逝就是真的sleep
+ *
+ * @author jared
+ */
+public class WallClock implements SimulationClock {
+
+    @Override
+    public long now() {
+        return Env.TIME_UNIT.convert(System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void sleep(long duration) throws InterruptedException {
+        Env.TIME_UNIT.sleep(duration);
+    }
+
+    @Override
+    public <E> E poll(BlockingQueue<E> queue, long timeout) throws InterruptedException {
+        return queue.poll(timeout, Env.TIME_UNIT);
+    }
+
+    @Override
+    public void hold() {
+        //真实时间不会因为谁在活动而停下来
+    }
+
+    @Override
+    public void release() {
+        //真实时间不会因为谁在活动而停下来
+    }
+
+    @Override
+    public Ticker ticker() {
+        return Ticker.systemTicker();
+    }
+}
@@ -0,0 +1,31 @@
+package biz.jared.strategy;
+
+import biz.jared.domain.Elevator;
+import biz.jared.domain.Task;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量任务分配策略：一段时间内积压的任务一起分配，按所有电梯做全局最优，而不是一个一个贪心地选
+ *
+ * @author jared
+ */
+public interface BatchDispatchStrategy extends DispatchStrategy {
+    /**
+     * 一批任务一起分配
+     *
+     * @param elevatorList 备选电梯集合
+     * @param taskList     待分配任务
+     * @return 和 taskList 一一对应的被选电梯，选不出电梯的任务对应null
+     */
+    Elevator[] assign(List<Elevator> elevatorList, List<Task> taskList);
+
+    /**
+     * 单个任务就是只有一个任务的批次
+     */
+    @Override
+    default Elevator select(List<Elevator> elevatorList, Task task) {
+        return assign(elevatorList, Collections.singletonList(task))[0];
+    }
+}
@@ -0,0 +1,82 @@
+package biz.jared.strategy;
+
+import biz.jared.domain.Elevator;
+import biz.jared.domain.ElevatorState;
+import biz.jared.domain.Floor;
+import biz.jared.domain.Task;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 目的层派梯：乘客在厅外登记目标楼层，分配时已经知道每部电梯这一趟要停哪些楼层
+ * 把目的层呼叫分给加上它之后多停的站最少的电梯，去同一片楼层的人尽量坐同一部电梯，每趟停的站少，往返一趟的时间短
+ * 代价 = 电梯接这个任务的优先级 + 多停的站数 * 每停一站的代价；不是目的层呼叫的任务按能给出最好优先级的电梯分配
+ *
+ * @author jared
+ */
+public class DestinationDispatchStrategy implements DispatchStrategy {
+    private final DispatchStrategy fallback = new PriorityFirstDispatchStrategy();
+    /**
+     * 多停一站的代价，和优先级同一量纲（楼层数）
+     */
+    private final int stopPenalty;
+
+    /**
+     * @param stopPenalty 多停一站的代价，按停一站耗费的时间够走几层楼算
+     */
+    public DestinationDispatchStrategy(int stopPenalty) {
+        this.stopPenalty = stopPenalty;
+    }
+
+    @Override
+    public Elevator select(List<Elevator> elevatorList, Task task) {
+        if (elevatorList == null) {
+            return null;
+        }
+        if (!task.isDestinationCall()) {
+            return fallback.select(elevatorList, task);
+        }
+        int cost = Integer.MAX_VALUE;
+        Elevator best = null;
+        for (Elevator elevator : elevatorList) {
+            ElevatorState state = elevator.getState();
+            List<Task> queuedTasks = elevator.getQueuedTasks();
+            //已经答应要停的楼层，以及还没接上的目的层呼叫
+            BitSet stops = new BitSet();
+            int pickups = 0;
+            if (state.getCurrTask() != null) {
+                pickups += addStops(stops, state.getCurrTask());
+            }
+            for (Task queuedTask : queuedTasks) {
+                pickups += addStops(stops, queuedTask);
+            }
+            //车里的人加上每个还没接的呼叫至少一人，已经满了的电梯不再分
+            if (state.getLoadCount() + pickups >= elevator.getMaxLoad()) {
+                continue;
+            }
+            int extraStops = (stops.get(task.getSrcFloor().getFloorNo()) ? 0 : 1)
+                    + (stops.get(task.getTargetFloor().getFloorNo()) ? 0 : 1);
+            int possibleCost = elevator.tryReceive(state, task) + extraStops * stopPenalty;
+            if (cost > possibleCost) {
+                cost = possibleCost;
+                best = elevator;
+            }
+        }
+        //都满了，按原来的方式分给优先级最好的
+        return best != null ? best : fallback.select(elevatorList, task);
+    }
+
+    /**
+     * @return 任务是还没接上的目的层呼叫时返回1，否则返回0
+     */
+    private static int addStops(BitSet stops, Task task) {
+        stops.set(task.getSrcFloor().getFloorNo());
+        Floor targetFloor = task.getTargetFloor();
+        if (targetFloor == null) {
+            return 0;
+        }
+        stops.set(targetFloor.getFloorNo());
+        return 1;
+    }
+}
@@ -0,0 +1,142 @@
+package biz.jared.strategy;
+
+import biz.jared.SimulationConfig;
+import biz.jared.domain.Elevator;
+import biz.jared.domain.ElevatorState;
+import biz.jared.domain.Task;
+import biz.jared.domain.enumeration.Direction;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
+
+/**
+ * 按预计到达时间分配：对每部候选电梯，按它已经答应要停的站模拟接下来的行程（走楼层、开关门、上下人都算时间，
+ * 配置了运动学参数时按速度曲线算），分别算出加上新任务前后所有任务停靠时刻的总和，差值就是新任务的预计到达时间加上给已经分配的乘客带来的延误，取差值最小的电梯
+ * 和按楼层距离打分的优先级不同，排着的站、开关门时间都会算进去
+ * 电梯数达到 parallelThreshold 时各电梯的行程模拟并行算，结果和串行一样，差值相同时取列表里靠前的电梯
+ * 不加新任务的那遍模拟只取决于电梯状态和任务队列，按电梯缓存：电梯走一层、改状态、收发任务之前的多次分配只模拟加新任务的一遍
+ *
+ * @author jared
+ */
+public class EtaDispatchStrategy implements DispatchStrategy {
+    /**
+     * 默认从16部电梯开始并行模拟，单核时并行只有开销，不并行
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD =
+            Runtime.getRuntime().availableProcessors() > 1 ? 16 : Integer.MAX_VALUE;
+
+    private final int parallelThreshold;
+    /**
+     * 行程模拟要用三个楼层数大小的数组，每个线程复用一份，分配一次任务不再产生垃圾
+     */
+    private final ThreadLocal<RouteSimulation> routes;
+    /**
+     * 每部电梯最近一次不加新任务的行程模拟
+     */
+    private final ConcurrentMap<Elevator, Baseline> baselines = new ConcurrentHashMap<>();
+
+    public EtaDispatchStrategy(SimulationConfig config) {
+        this(config, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param parallelThreshold 电梯数达到多少时并行模拟
+     */
+    public EtaDispatchStrategy(SimulationConfig config, int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+        this.routes = ThreadLocal.withInitial(() -> new RouteSimulation(config));
+    }
+
+    @Override
+    public Elevator select(List<Elevator> elevatorList, Task task) {
+        if (elevatorList == null) {
+            return null;
+        }
+        long[] costs = new long[elevatorList.size()];
+        IntStream indexes = IntStream.range(0, costs.length);
+        if (costs.length >= parallelThreshold) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> costs[i] = cost(elevatorList.get(i), task));
+        long cost = Long.MAX_VALUE;
+        Elevator best = null;
+        for (int i = 0; i < costs.length; i++) {
+            if (cost > costs[i]) {
+                cost = costs[i];
+                best = elevatorList.get(i);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return 电梯接下这个任务增加的停靠时刻总和，满载的电梯返回 Long.MAX_VALUE
+     */
+    long cost(Elevator elevator, Task task) {
+        ElevatorState state = elevator.getState();
+        if (state.getLoadCount() >= elevator.getMaxLoad()) {
+            return Long.MAX_VALUE;
+        }
+        Baseline baseline = baseline(elevator, state);
+        return simulate(state, baseline.committed, task) - baseline.cost;
+    }
+
+    /**
+     * 状态快照还是同一个、任务队列版本没变时用缓存，否则重新模拟
+     * 状态快照每次改楼层、状态、负载、当前任务都会换新的，按引用比较就够了
+     */
+    private Baseline baseline(Elevator elevator, ElevatorState state) {
+        Baseline cached = baselines.get(elevator);
+        long queueVersion = elevator.getQueueVersion();
+        if (cached != null && cached.state == state && cached.queueVersion == queueVersion) {
+            return cached;
+        }
+        List<Task> committed = elevator.getQueuedTasks();
+        Baseline baseline = new Baseline(state, queueVersion, committed, simulate(state, committed, null));
+        baselines.put(elevator, baseline);
+        return baseline;
+    }
+
+    private long simulate(ElevatorState state, List<Task> committed, Task task) {
+        RouteSimulation route = routes.get();
+        route.reset();
+        if (state.getCurrTask() != null) {
+            route.add(state.getCurrTask());
+        }
+        committed.forEach(route::add);
+        if (task != null) {
+            route.add(task);
+        }
+        return route.run(state.getCurrFloor().getFloorNo(), direction(state));
+    }
+
+    private static Direction direction(ElevatorState state) {
+        switch (state.getStatus()) {
+            case RUNNING_UP:
+                return Direction.UP;
+            case RUNNING_DOWN:
+                return Direction.DOWN;
+            default:
+                return Direction.NONE;
+        }
+    }
+
+    /**
+     * 一部电梯不加新任务时的行程，创建后不可变，多个分配线程可以共用
+     */
+    private static final class Baseline {
+        private final ElevatorState state;
+        private final long queueVersion;
+        private final List<Task> committed;
+        private final long cost;
+
+        private Baseline(ElevatorState state, long queueVersion, List<Task> committed, long cost) {
+            this.state = state;
+            this.queueVersion = queueVersion;
+            this.committed = committed;
+            this.cost = cost;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package biz.jared.strategy;
+
+import biz.jared.domain.Elevator;
+import biz.jared.domain.ElevatorState;
+import biz.jared.domain.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 匈牙利算法批量分配：以电梯算出的任务优先级为代价矩阵，求一批任务和所有未满载电梯之间总代价最小的匹配
+ * 每个电梯在一轮里最多分到一个任务，任务比电梯多时，剩下的任务进入下一轮再匹配一次，直到全部分完
+ *
+ * @author jared
+ */
+public class HungarianDispatchStrategy implements BatchDispatchStrategy {
+
+    @Override
+    public Elevator[] assign(List<Elevator> elevatorList, List<Task> taskList) {
+        Elevator[] result = new Elevator[taskList.size()];
+        if (elevatorList == null || taskList.isEmpty()) {
+            return result;
+        }
+        //同一批任务都基于同一组状态快照计算代价，满载的电梯不参与
+        List<Elevator> candidateList = new ArrayList<>(elevatorList.size());
+        List<ElevatorState> stateList = new ArrayList<>(elevatorList.size());
+        for (Elevator elevator : elevatorList) {
+            ElevatorState state = elevator.getState();
+            if (state.getLoadCount() < elevator.getMaxLoad()) {
+                candidateList.add(elevator);
+                stateList.add(state);
+            }
+        }
+        if (candidateList.isEmpty()) {
+            return result;
+        }
+        int m = candidateList.size();
+        long[][] cost = new long[taskList.size()][m];
+        for (int i = 0; i < taskList.size(); i++) {
+            for (int j = 0; j < m; j++) {
+                cost[i][j] = candidateList.get(j).tryReceive(stateList.get(j), taskList.get(i));
+            }
+        }
+        //remaining 是还没分到电梯的任务下标
+        int[] remaining = new int[taskList.size()];
+        for (int i = 0; i < remaining.length; i++) {
+            remaining[i] = i;
+        }
+        int remainingNum = remaining.length;
+        while (remainingNum > 0) {
+            int[] taskToElevator = match(cost, remaining, remainingNum, m);
+            int next = 0;
+            for (int k = 0; k < remainingNum; k++) {
+                int i = remaining[k];
+                if (taskToElevator[k] >= 0) {
+                    result[i] = candidateList.get(taskToElevator[k]);
+                } else {
+                    remaining[next++] = i;
+                }
+            }
+            remainingNum = next;
+        }
+        return result;
+    }
+
+    /**
+     * 一轮匹配：每个电梯最多一个任务，每个任务最多一个电梯，总代价最小
+     *
+     * @param cost        任务 x 电梯 的代价矩阵
+     * @param taskIndex   参与本轮匹配的任务在代价矩阵里的行号
+     * @param taskNum     参与本轮匹配的任务数
+     * @param elevatorNum 电梯数
+     * @return 和 taskIndex 对应的电梯下标，本轮没分到的为-1
+     */
+    private static int[] match(long[][] cost, int[] taskIndex, int taskNum, int elevatorNum) {
+        int[] taskToElevator = new int[taskNum];
+        if (taskNum <= elevatorNum) {
+            int[] rowToCol = solve(taskNum, elevatorNum, (row, col) -> cost[taskIndex[row]][col]);
+            System.arraycopy(rowToCol, 0, taskToElevator, 0, taskNum);
+        } else {
+            //任务比电梯多时，转置过来让每个电梯挑一个任务
+            Arrays.fill(taskToElevator, -1);
+            int[] rowToCol = solve(elevatorNum, taskNum, (row, col) -> cost[taskIndex[col]][row]);
+            for (int j = 0; j < elevatorNum; j++) {
+                taskToElevator[rowToCol[j]] = j;
+            }
+        }
+        return taskToElevator;
+    }
+
+    /**
+     * 行数不多于列数的矩形指派问题（带势能的匈牙利算法，O(n^2 * m)）
+     *
+     * @param n    行数
+     * @param m    列数，n <= m
+     * @param cost 代价
+     * @return 每行分到的列
+     */
+    private static int[] solve(int n, int m, Cost cost) {
+        //下标从1开始，0列是虚拟列
+        long[] u = new long[n + 1];
+        long[] v = new long[m + 1];
+        int[] p = new int[m + 1];
+        int[] way = new int[m + 1];
+        long[] minv = new long[m + 1];
+        boolean[] used = new boolean[m + 1];
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Long.MAX_VALUE);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                long delta = Long.MAX_VALUE;
+                int j1 = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (!used[j]) {
+                        long cur = cost.of(i0 - 1, j - 1) - u[i0] - v[j];
+                        if (cur < minv[j]) {
+                            minv[j] = cur;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        int[] rowToCol = new int[n];
+        for (int j = 1; j <= m; j++) {
+            if (p[j] != 0) {
+                rowToCol[p[j] - 1] = j - 1;
+            }
+        }
+        return rowToCol;
+    }
+
+    @FunctionalInterface
+    private interface Cost {
+        long of(int row, int col);
+    }
+}
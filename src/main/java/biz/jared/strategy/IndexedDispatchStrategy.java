@@ -0,0 +1,99 @@
+package biz.jared.strategy;
+
+import biz.jared.domain.Elevator;
+import biz.jared.domain.ElevatorIndex;
+import biz.jared.domain.ElevatorState;
+import biz.jared.domain.Task;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.domain.enumeration.ElevatorStatus;
+
+import java.util.List;
+
+/**
+ * 用电梯位置索引找候选电梯的优先级优先分配，不用逐个计算所有电梯
+ * 按同相距离最近优先的算法，优先级最好的电梯一定在这几层里（x 是任务楼层）：
+ * 空闲的电梯是 x 往上、往下最近的；上行的电梯是 x（含）往下最近的（顺路），或者最高的（不顺路、不同相都是越高越好）；
+ * 下行的电梯反过来。候选楼层上满载的电梯跳过，接着往同一方向找
+ * 候选电梯再按各自的优先级算法比较，优先级相同时取id小的，和按id排好序的电梯列表逐个比较的结果一样
+ * 传入的电梯列表不是索引里的这组电梯时（比如分片只给了一部分电梯），按原来的方式逐个比较
+ *
+ * @author jared
+ */
+public class IndexedDispatchStrategy implements DispatchStrategy {
+    private final DispatchStrategy fallback = new PriorityFirstDispatchStrategy();
+    private final ElevatorIndex index;
+
+    public IndexedDispatchStrategy(ElevatorIndex index) {
+        this.index = index;
+    }
+
+    public ElevatorIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public Elevator select(List<Elevator> elevatorList, Task task) {
+        if (elevatorList == null) {
+            return null;
+        }
+        if (elevatorList.size() != index.size()) {
+            return fallback.select(elevatorList, task);
+        }
+        int floorNo = task.getSrcFloor().getFloorNo();
+        Candidate best = new Candidate(task);
+        best.nearest(ElevatorStatus.IDLE, floorNo, Direction.UP);
+        best.nearest(ElevatorStatus.IDLE, floorNo, Direction.DOWN);
+        best.nearest(ElevatorStatus.RUNNING_UP, floorNo, Direction.DOWN);
+        best.nearest(ElevatorStatus.RUNNING_UP, index.getFloorNum(), Direction.DOWN);
+        best.nearest(ElevatorStatus.RUNNING_DOWN, floorNo, Direction.UP);
+        best.nearest(ElevatorStatus.RUNNING_DOWN, 1, Direction.UP);
+        return best.elevator;
+    }
+
+    /**
+     * 一次分配里比较过的最好的电梯
+     */
+    private final class Candidate {
+        private final Task task;
+        private Elevator elevator;
+        private int priority = Integer.MAX_VALUE;
+
+        private Candidate(Task task) {
+            this.task = task;
+        }
+
+        /**
+         * 从 floorNo（含）开始朝 searchDirection 找最近的有没满载的 status 状态电梯的楼层，比较这一层的电梯
+         */
+        private void nearest(ElevatorStatus status, int floorNo, Direction searchDirection) {
+            int step = Direction.UP.equals(searchDirection) ? 1 : -1;
+            for (int found = index.nearest(status, floorNo, searchDirection); found > 0;
+                 found = index.nearest(status, found + step, searchDirection)) {
+                if (compare(index.elevatorsAt(status, found))) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return 有没有没满载的电梯
+         */
+        private boolean compare(List<Elevator> elevators) {
+            boolean available = false;
+            for (Elevator candidate : elevators) {
+                ElevatorState state = candidate.getState();
+                if (state.getLoadCount() >= candidate.getMaxLoad()) {
+                    continue;
+                }
+                available = true;
+                int possiblePriority = candidate.tryReceive(state, task);
+                if (possiblePriority < priority
+                        || possiblePriority == priority && candidate.getId() < elevator.getId()) {
+                    priority = possiblePriority;
+                    elevator = candidate;
+                }
+            }
+            return available;
+        }
+    }
+}
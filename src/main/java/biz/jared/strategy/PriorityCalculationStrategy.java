@@ -1,6 +1,7 @@
 package biz.jared.strategy;
 
 import biz.jared.domain.Elevator;
+import biz.jared.domain.ElevatorState;
 import biz.jared.domain.Task;
 
 /**
@@ -12,9 +13,20 @@ public interface PriorityCalculationStrategy {
     /**
      * 计算权重的逻辑
      *
+     * @param state 电梯状态快照
+     * @param task
+     * @return
+     */
+    int calcPriority(ElevatorState state, Task task);
+
+    /**
+     * 基于电梯当前状态计算权重
+     *
      * @param elevator
      * @param task
      * @return
      */
-    int calcPriority(Elevator elevator, Task task);
+    default int calcPriority(Elevator elevator, Task task) {
+        return calcPriority(elevator.getState(), task);
+    }
 }
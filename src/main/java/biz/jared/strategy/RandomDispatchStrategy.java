@@ -13,7 +13,18 @@ import java.util.Random;
  * @date 2017/08/30
  */
 public class RandomDispatchStrategy implements DispatchStrategy {
-    private Random random = new Random();
+    private Random random;
+
+    public RandomDispatchStrategy() {
+        this(new Random());
+    }
+
+    /**
+     * @param random 指定随机数发生器，用固定种子可以复现同样的分配结果
+     */
+    public RandomDispatchStrategy(Random random) {
+        this.random = random;
+    }
 
     @Override
     public Elevator select(List<Elevator> elevatorList, Task task) {
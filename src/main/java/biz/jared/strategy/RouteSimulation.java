@@ -0,0 +1,171 @@
+package biz.jared.strategy;
+
+import biz.jared.SimulationConfig;
+import biz.jared.domain.Task;
+import biz.jared.domain.enumeration.Direction;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 按集选控制模拟一部电梯接下来的行程：顺着当前方向把沿途该停的站停完，前方没有要停的站了再掉头
+ * 车内乘客的目标楼层（NONE任务）哪个方向经过都停，厅外呼叫只在朝呼叫方向走或者掉头时停，目的层呼叫接上人之后才有目标楼层要停
+ * 两站之间的耗时按 SimulationConfig.flightTime 查表，每停一站的耗时按这一站完成的任务数当作上下的人数，按 dwellTime 算；
+ * 有任务的楼层记在位图里，两站之间直接跳过去，不逐层走
+ * 不是线程安全的，一个线程一个实例，每次模拟前 reset
+ *
+ * @author jared
+ */
+final class RouteSimulation {
+    private final int floorNum;
+    private final SimulationConfig config;
+    /**
+     * 每层车内乘客要停的任务数，下标是楼层号
+     */
+    private final int[] carCalls;
+    private final int[] upCalls;
+    private final int[] downCalls;
+    /**
+     * 还没接上人的目的层呼叫，接上之后目标楼层变成车内的呼叫
+     */
+    private final List<Task> pendingDestinations = new ArrayList<>();
+    /**
+     * 还没停的任务数
+     */
+    private int remaining;
+    /**
+     * 还有任务要停的楼层，第i位是i层
+     */
+    private final BitSet stops;
+    /**
+     * 每个任务停靠时刻的总和
+     */
+    private long totalArrivalTime;
+
+    RouteSimulation(SimulationConfig config) {
+        this.floorNum = config.getFloorNum();
+        this.config = config;
+        carCalls = new int[floorNum + 1];
+        upCalls = new int[floorNum + 1];
+        downCalls = new int[floorNum + 1];
+        stops = new BitSet(floorNum + 1);
+    }
+
+    /**
+     * 清掉上一次模拟剩下的任务，完整跑完的模拟只剩空数组，只需要清位图里还有的楼层
+     */
+    void reset() {
+        for (int floorNo = stops.nextSetBit(0); floorNo >= 0; floorNo = stops.nextSetBit(floorNo + 1)) {
+            carCalls[floorNo] = 0;
+            upCalls[floorNo] = 0;
+            downCalls[floorNo] = 0;
+        }
+        stops.clear();
+        pendingDestinations.clear();
+        remaining = 0;
+        totalArrivalTime = 0;
+    }
+
+    /**
+     * 电梯已经答应要停的任务
+     */
+    void add(Task task) {
+        int floorNo = task.getSrcFloor().getFloorNo();
+        switch (task.getDirection()) {
+            case UP:
+                upCalls[floorNo]++;
+                break;
+            case DOWN:
+                downCalls[floorNo]++;
+                break;
+            default:
+                carCalls[floorNo]++;
+                break;
+        }
+        remaining++;
+        stops.set(floorNo);
+        if (task.isDestinationCall()) {
+            pendingDestinations.add(task);
+        }
+    }
+
+    /**
+     * 从 startFloor 出发把所有任务停完
+     *
+     * @param direction 电梯当前的运行方向，空闲时为NONE，朝最近的任务出发
+     * @return 每个任务停靠时刻的总和，目的层呼叫的目标楼层也算一个任务
+     */
+    long run(int startFloor, Direction direction) {
+        int floorNo = startFloor;
+        Direction dir = direction == Direction.NONE ? nearestDirection(startFloor) : direction;
+        long time = 0;
+        //最多走一个来回再加半程就能停完，每层最多经过三次，防止数据不一致时死循环
+        int maxMoves = 3 * floorNum;
+        while (remaining > 0 && maxMoves-- > 0) {
+            int served = serve(floorNo, dir, time);
+            if (!hasCallAhead(floorNo, dir)) {
+                //前方没有要停的站，掉头，反方向的厅外呼叫这时也可以接
+                dir = dir.opposite();
+                served += serve(floorNo, dir, time);
+            }
+            time += config.dwellTime(served);
+            if (remaining > 0) {
+                //前方一定还有要停的站
+                int next = nextStop(floorNo, dir);
+                time += config.flightTime(Math.abs(next - floorNo));
+                floorNo = next;
+            }
+        }
+        return totalArrivalTime;
+    }
+
+    /**
+     * 在 floorNo 层停下，放下车内乘客，接上朝 direction 方向走的人
+     *
+     * @return 这一站完成的任务数
+     */
+    private int serve(int floorNo, Direction direction, long time) {
+        int[] hallCalls = direction == Direction.UP ? upCalls : downCalls;
+        int served = carCalls[floorNo] + hallCalls[floorNo];
+        if (served == 0) {
+            return 0;
+        }
+        carCalls[floorNo] = 0;
+        if (hallCalls[floorNo] > 0) {
+            hallCalls[floorNo] = 0;
+            for (int i = pendingDestinations.size() - 1; i >= 0; i--) {
+                Task task = pendingDestinations.get(i);
+                if (task.getSrcFloor().getFloorNo() == floorNo && task.getDirection() == direction) {
+                    pendingDestinations.remove(i);
+                    carCalls[task.getTargetFloor().getFloorNo()]++;
+                    remaining++;
+                    stops.set(task.getTargetFloor().getFloorNo());
+                }
+            }
+        }
+        remaining -= served;
+        if (carCalls[floorNo] + upCalls[floorNo] + downCalls[floorNo] == 0) {
+            stops.clear(floorNo);
+        }
+        totalArrivalTime += time * served;
+        return served;
+    }
+
+    /**
+     * @return floorNo 朝 direction 方向最近的有任务的楼层，没有时返回-1
+     */
+    private int nextStop(int floorNo, Direction direction) {
+        return direction == Direction.UP ? stops.nextSetBit(floorNo + 1) : stops.previousSetBit(floorNo - 1);
+    }
+
+    private boolean hasCallAhead(int floorNo, Direction direction) {
+        return nextStop(floorNo, direction) > 0;
+    }
+
+    private Direction nearestDirection(int floorNo) {
+        int up = stops.nextSetBit(floorNo + 1);
+        int down = stops.previousSetBit(floorNo - 1);
+        return down > 0 && (up < 0 || floorNo - down < up - floorNo) ? Direction.DOWN : Direction.UP;
+    }
+}
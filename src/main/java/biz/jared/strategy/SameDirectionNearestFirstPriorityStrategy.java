@@ -1,8 +1,7 @@
 package biz.jared.strategy;
 
 import biz.jared.Calc;
-import biz.jared.Env;
-import biz.jared.domain.Elevator;
+import biz.jared.domain.ElevatorState;
 import biz.jared.domain.Task;
 
 /**
@@ -13,7 +12,17 @@ import biz.jared.domain.Task;
  */
 public class SameDirectionNearestFirstPriorityStrategy implements PriorityCalculationStrategy {
 
-    private static final int MAX_PRIORITY = 2 * Env.FLOOR_NUM;
+    /**
+     * 2倍楼层总数
+     */
+    private final int maxPriority;
+
+    /**
+     * @param floorNum 总楼层数
+     */
+    public SameDirectionNearestFirstPriorityStrategy(int floorNum) {
+        this.maxPriority = 2 * floorNum;
+    }
 
     /**
      * x = 任务所处楼层号
@@ -29,19 +38,17 @@ public class SameDirectionNearestFirstPriorityStrategy implements PriorityCalcul
      * 2、同向、不顺路 -> p = 2 * e - x + y
      * 3、不同向 -> p = x + y
      *
-     * @param elevator 参与计算的电梯
-     * @param task     参与计算的任务
+     * @param state 参与计算的电梯状态快照
+     * @param task  参与计算的任务
      * @return 任务优先级
      */
     @Override
-    public int calcPriority(Elevator elevator, Task task) {
+    public int calcPriority(ElevatorState state, Task task) {
         int x = task.getSrcFloor().getFloorNo();
-        int y = elevator.getCurrFloor().getFloorNo();
+        int y = state.getCurrFloor().getFloorNo();
         int priority;
-        //elevator.Status can not be changed when this code block is running
-        elevator.getStatusLock().readLock().lock();
-        boolean isSameDirection = Calc.isSameDirection(elevator, task);
-        switch (elevator.getStatus()) {
+        boolean isSameDirection = Calc.isSameDirection(state, task);
+        switch (state.getStatus()) {
             case RUNNING_UP:
                 priority = calcPriorityOnRunningUp(x, y, isSameDirection);
                 break;
@@ -57,9 +64,8 @@ public class SameDirectionNearestFirstPriorityStrategy implements PriorityCalcul
             default:
                 throw new IllegalArgumentException();
         }
-        elevator.getStatusLock().readLock().unlock();
         //priority已经是2倍楼层总数了，优先级要循环
-        //        if (priority == MAX_PRIORITY) {
+        //        if (priority == maxPriority) {
         //            priority = 0;
         //        }
         return priority;
@@ -71,7 +77,7 @@ public class SameDirectionNearestFirstPriorityStrategy implements PriorityCalcul
         if (isOnTheWay && isSameDirection) {
             priority = y - x;
         } else if (!isOnTheWay && isSameDirection) {
-            priority = MAX_PRIORITY - x + y;
+            priority = maxPriority - x + y;
         } else {
             priority = x + y;
         }
@@ -84,9 +90,9 @@ public class SameDirectionNearestFirstPriorityStrategy implements PriorityCalcul
         if (isOnTheWay && isSameDirection) {
             priority = x - y;
         } else if (!isOnTheWay && isSameDirection) {
-            priority = MAX_PRIORITY - y + x;
+            priority = maxPriority - y + x;
         } else {
-            priority = MAX_PRIORITY - x - y;
+            priority = maxPriority - x - y;
         }
         return priority;
     }
@@ -0,0 +1,56 @@
+package biz.jared.trace;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 按到达时间排好序的乘客到达流，游标式读取：next() 移到下一条后用 getXxx() 取字段
+ * 可以是到达记录文件，也可以是现场产生的交通流
+ *
+ * @author jared
+ */
+public interface ArrivalSource extends Closeable {
+
+    boolean hasNext();
+
+    /**
+     * 移到下一条到达
+     */
+    void next() throws IOException;
+
+    /**
+     * @return 到达时间，单位 Env.TIME_UNIT，从到达流开始时算起
+     */
+    long getTime();
+
+    /**
+     * @return 出发楼层号，从1开始
+     */
+    int getSrcFloorNo();
+
+    /**
+     * @return 目标楼层号，从1开始
+     */
+    int getTargetFloorNo();
+
+    /**
+     * @return 一起到的人数
+     */
+    int getGroupSize();
+
+    /**
+     * 把读到哪一条写进快照，当前这条也要能恢复出来
+     */
+    void save(DataOutput out) throws IOException;
+
+    /**
+     * 从快照恢复到 save 时的位置，要在同样构造出来的到达流上调用
+     */
+    void restore(DataInput in) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,44 @@
+package biz.jared.trace;
+
+/**
+ * 乘客到达记录的二进制格式，大端字节序
+ * <pre>
+ * 文件头 16字节：magic(int) version(short) recordSize(short) recordCount(long)
+ * 记录   16字节：time(long) srcFloorNo(short) targetFloorNo(short) groupSize(short) 保留(short)
+ * </pre>
+ * time 是相对第一条记录的到达时间，单位 Env.TIME_UNIT，记录按 time 非递减排列；楼层号从1开始
+ *
+ * @author jared
+ */
+public final class ArrivalTrace {
+    /**
+     * "ELTR"
+     */
+    static final int MAGIC = 0x454C5452;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+    /**
+     * 文件头里记录数的位置
+     */
+    static final int RECORD_COUNT_OFFSET = 8;
+    /**
+     * 楼层号、人数都存成short
+     */
+    static final int MAX_SHORT_VALUE = Short.MAX_VALUE;
+
+    private ArrivalTrace() {
+    }
+
+    /**
+     * 检查一条记录能否写进文件
+     */
+    static void check(long time, int srcFloorNo, int targetFloorNo, int groupSize) {
+        if (time < 0 || srcFloorNo <= 0 || srcFloorNo > MAX_SHORT_VALUE || targetFloorNo <= 0
+                || targetFloorNo > MAX_SHORT_VALUE || srcFloorNo == targetFloorNo || groupSize <= 0
+                || groupSize > MAX_SHORT_VALUE) {
+            throw new IllegalArgumentException("invalid arrival: time=" + time + ", srcFloorNo=" + srcFloorNo
+                    + ", targetFloorNo=" + targetFloorNo + ", groupSize=" + groupSize);
+        }
+    }
+}
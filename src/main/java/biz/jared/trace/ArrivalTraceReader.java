@@ -0,0 +1,165 @@
+package biz.jared.trace;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * 流式读乘客到达记录：文件按窗口逐段内存映射，每次只映射一个窗口，记录不会整体读进堆里
+ * 游标式读取，next() 移到下一条记录后用 getXxx() 取字段，不为每条记录创建对象
+ *
+ * @author jared
+ */
+public class ArrivalTraceReader implements ArrivalSource {
+    /**
+     * 默认每个窗口映射的记录数，16MB
+     */
+    static final int DEFAULT_WINDOW_RECORDS = 1 << 20;
+
+    private final FileChannel channel;
+    private final long recordCount;
+    private final int windowRecords;
+    /**
+     * 当前映射的窗口，以及窗口里第一条记录的序号
+     */
+    private MappedByteBuffer window;
+    private long windowStart;
+    /**
+     * 下一条要读的记录序号
+     */
+    private long index;
+
+    private long time;
+    private int srcFloorNo;
+    private int targetFloorNo;
+    private int groupSize;
+
+    public ArrivalTraceReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_RECORDS);
+    }
+
+    ArrivalTraceReader(Path path, int windowRecords) throws IOException {
+        this.windowRecords = windowRecords;
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            recordCount = readHeader(path);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private long readHeader(Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ArrivalTrace.HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("not an arrival trace, file too short: " + path);
+            }
+        }
+        header.flip();
+        if (header.getInt() != ArrivalTrace.MAGIC) {
+            throw new IOException("not an arrival trace, bad magic: " + path);
+        }
+        short version = header.getShort();
+        short recordSize = header.getShort();
+        if (version != ArrivalTrace.VERSION || recordSize != ArrivalTrace.RECORD_SIZE) {
+            throw new IOException("unsupported arrival trace version " + version + ", record size " + recordSize
+                    + ": " + path);
+        }
+        long count = header.getLong();
+        if (count < 0 || channel.size() < ArrivalTrace.HEADER_SIZE + count * ArrivalTrace.RECORD_SIZE) {
+            throw new IOException("truncated arrival trace, " + count + " records expected: " + path);
+        }
+        return count;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return index < recordCount;
+    }
+
+    /**
+     * 移到下一条记录
+     *
+     * @throws NoSuchElementException 已经没有记录了
+     */
+    @Override
+    public void next() throws IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (window == null || index - windowStart >= windowRecords) {
+            map(index);
+        }
+        int offset = (int) (index - windowStart) * ArrivalTrace.RECORD_SIZE;
+        time = window.getLong(offset);
+        srcFloorNo = window.getShort(offset + 8);
+        targetFloorNo = window.getShort(offset + 10);
+        groupSize = window.getShort(offset + 12);
+        index++;
+    }
+
+    /**
+     * 只写下一条要读的记录序号，当前记录恢复时重新读一次
+     */
+    @Override
+    public void save(DataOutput out) throws IOException {
+        out.writeLong(index);
+    }
+
+    @Override
+    public void restore(DataInput in) throws IOException {
+        long position = in.readLong();
+        if (position < 0 || position > recordCount) {
+            throw new IOException("arrival trace position " + position + " out of " + recordCount + " records");
+        }
+        window = null;
+        index = Math.max(position - 1, 0);
+        if (position > 0) {
+            next();
+        }
+    }
+
+    private void map(long start) throws IOException {
+        long records = Math.min(windowRecords, recordCount - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY,
+                ArrivalTrace.HEADER_SIZE + start * ArrivalTrace.RECORD_SIZE, records * ArrivalTrace.RECORD_SIZE);
+        windowStart = start;
+    }
+
+    @Override
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public int getSrcFloorNo() {
+        return srcFloorNo;
+    }
+
+    @Override
+    public int getTargetFloorNo() {
+        return targetFloorNo;
+    }
+
+    @Override
+    public int getGroupSize() {
+        return groupSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
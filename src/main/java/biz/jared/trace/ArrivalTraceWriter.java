@@ -0,0 +1,88 @@
+package biz.jared.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 顺序写乘客到达记录，记录先攒在缓冲区里批量写，关闭时补上文件头里的记录数
+ *
+ * @author jared
+ */
+public class ArrivalTraceWriter implements Closeable {
+    private static final int BUFFER_RECORDS = 4096;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * ArrivalTrace.RECORD_SIZE);
+    private long recordCount;
+    private long lastTime;
+
+    public ArrivalTraceWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        //先写一个记录数为0的文件头，关闭时再改
+        writeHeader();
+    }
+
+    /**
+     * @param time          到达时间，单位 Env.TIME_UNIT，不能比上一条早
+     * @param srcFloorNo    从哪层出发
+     * @param targetFloorNo 想去哪层
+     * @param groupSize     一起到的人数
+     */
+    public void write(long time, int srcFloorNo, int targetFloorNo, int groupSize) throws IOException {
+        ArrivalTrace.check(time, srcFloorNo, targetFloorNo, groupSize);
+        if (time < lastTime) {
+            throw new IllegalArgumentException("arrival time goes backwards: " + time + " < " + lastTime);
+        }
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.putLong(time)
+                .putShort((short) srcFloorNo)
+                .putShort((short) targetFloorNo)
+                .putShort((short) groupSize)
+                .putShort((short) 0);
+        lastTime = time;
+        recordCount++;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ArrivalTrace.HEADER_SIZE)
+                .putInt(ArrivalTrace.MAGIC)
+                .putShort(ArrivalTrace.VERSION)
+                .putShort((short) ArrivalTrace.RECORD_SIZE)
+                .putLong(recordCount);
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        channel.position(Math.max(channel.position(), ArrivalTrace.HEADER_SIZE));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            writeHeader();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package biz.jared.trace;
+
+import biz.jared.Env;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把CSV格式的刷卡/呼梯日志转成二进制的乘客到达记录
+ * 每行 time,srcFloorNo,targetFloorNo[,groupSize]，groupSize 默认1
+ * time 可以是毫秒数，也可以是 2017-09-06T08:30:00.250 这样的本地时间；行必须按时间排好序
+ * 第一行不是数字开头时当作表头跳过，空行和 # 开头的行也跳过
+ * <p>
+ * 用法：TraceConverter {csv} {trace}
+ *
+ * @author jared
+ */
+public class TraceConverter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceConverter.class);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: TraceConverter {csv} {trace}");
+            System.exit(1);
+        }
+        long recordCount = convert(Paths.get(args[0]), Paths.get(args[1]));
+        LOGGER.info("{} arrivals written to {}", recordCount, args[1]);
+    }
+
+    /**
+     * @return 写入的记录数
+     * @throws IllegalArgumentException 某一行格式不对、楼层不合法、时间倒退
+     */
+    public static long convert(Path csv, Path trace) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             ArrivalTraceWriter writer = new ArrivalTraceWriter(trace)) {
+            long firstTime = -1;
+            int lineNo = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || lineNo == 1 && !Character.isDigit(line.charAt(0))) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length < 3) {
+                    throw new IllegalArgumentException("line " + lineNo + ": expect time,src,target[,group]: " + line);
+                }
+                try {
+                    long time = parseTime(fields[0].trim());
+                    if (firstTime < 0) {
+                        firstTime = time;
+                    }
+                    int groupSize = fields.length > 3 ? Integer.parseInt(fields[3].trim()) : 1;
+                    writer.write(time - firstTime, Integer.parseInt(fields[1].trim()),
+                            Integer.parseInt(fields[2].trim()), groupSize);
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    throw new IllegalArgumentException("line " + lineNo + ": " + e.getMessage(), e);
+                }
+            }
+            return writer.getRecordCount();
+        }
+    }
+
+    /**
+     * @return 毫秒数换算成 Env.TIME_UNIT
+     */
+    private static long parseTime(String value) {
+        long millis;
+        if (value.indexOf('-') > 0) {
+            millis = LocalDateTime.parse(value.replace(' ', 'T')).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } else {
+            millis = Long.parseLong(value);
+        }
+        return Env.TIME_UNIT.convert(millis, TimeUnit.MILLISECONDS);
+    }
+}
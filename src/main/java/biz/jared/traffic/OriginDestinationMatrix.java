@@ -0,0 +1,74 @@
+package biz.jared.traffic;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 起止楼层矩阵：每一对 (出发楼层, 目标楼层) 的出行权重，按权重抽样一次出行
+ * 权重按行展开成累积数组，抽样是一次二分查找
+ *
+ * @author jared
+ */
+public class OriginDestinationMatrix {
+    private final int floorNum;
+    /**
+     * cumulative[(src - 1) * floorNum + (target - 1)] 是这一对及之前所有对的权重和
+     */
+    private final double[] cumulative;
+
+    /**
+     * @param weights weights[src - 1][target - 1] 是从 src 层去 target 层的相对权重，同层的权重必须是0
+     */
+    public OriginDestinationMatrix(double[][] weights) {
+        floorNum = weights.length;
+        cumulative = new double[floorNum * floorNum];
+        double sum = 0;
+        for (int i = 0; i < floorNum; i++) {
+            if (weights[i].length != floorNum) {
+                throw new IllegalArgumentException("origin destination matrix must be square: row " + (i + 1));
+            }
+            for (int j = 0; j < floorNum; j++) {
+                double weight = weights[i][j];
+                if (weight < 0 || i == j && weight != 0) {
+                    throw new IllegalArgumentException("invalid weight " + weight + " from floor " + (i + 1)
+                            + " to " + (j + 1));
+                }
+                sum += weight;
+                cumulative[i * floorNum + j] = sum;
+            }
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("origin destination matrix has no trip");
+        }
+    }
+
+    public int getFloorNum() {
+        return floorNum;
+    }
+
+    /**
+     * @return 抽中的一对楼层，编码为 (src - 1) * floorNum + (target - 1)，用 srcFloorNo/targetFloorNo 解码
+     */
+    public int sample(Random random) {
+        double value = random.nextDouble() * cumulative[cumulative.length - 1];
+        int index = Arrays.binarySearch(cumulative, value);
+        //找不到时返回 -(插入点) - 1，插入点就是第一个大于value的累积值；权重为0的格子和前一格累积值相同，不会被抽中
+        index = index < 0 ? -index - 1 : index + 1;
+        while (index < cumulative.length - 1 && weightAt(index) == 0) {
+            index++;
+        }
+        return Math.min(index, cumulative.length - 1);
+    }
+
+    private double weightAt(int index) {
+        return index == 0 ? cumulative[0] : cumulative[index] - cumulative[index - 1];
+    }
+
+    public int srcFloorNo(int trip) {
+        return trip / floorNum + 1;
+    }
+
+    public int targetFloorNo(int trip) {
+        return trip % floorNum + 1;
+    }
+}
@@ -0,0 +1,106 @@
+package biz.jared.traffic;
+
+import biz.jared.Env;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 随时间变化的到达率：分段常数，第i段从 startTimes[i] 开始，到下一段开始或者 endTime 结束
+ * 时间单位 Env.TIME_UNIT，到达率是每分钟到达的人数
+ *
+ * @author jared
+ */
+public class RateProfile {
+    private final long[] startTimes;
+    /**
+     * 每个时间单位的到达率
+     */
+    private final double[] rates;
+    private final long endTime;
+    private final double maxRate;
+
+    /**
+     * @param startTimes     每一段的开始时间，第一段从0开始，严格递增
+     * @param ratesPerMinute 每一段每分钟到达的人数
+     * @param endTime        最后一段的结束时间
+     */
+    public RateProfile(long[] startTimes, double[] ratesPerMinute, long endTime) {
+        if (startTimes.length == 0 || startTimes.length != ratesPerMinute.length || startTimes[0] != 0
+                || endTime <= startTimes[startTimes.length - 1]) {
+            throw new IllegalArgumentException("invalid rate profile: startTimes=" + Arrays.toString(startTimes)
+                    + ", ratesPerMinute=" + Arrays.toString(ratesPerMinute) + ", endTime=" + endTime);
+        }
+        this.startTimes = startTimes.clone();
+        this.rates = new double[ratesPerMinute.length];
+        double max = 0;
+        for (int i = 0; i < ratesPerMinute.length; i++) {
+            if (i > 0 && startTimes[i] <= startTimes[i - 1] || ratesPerMinute[i] < 0) {
+                throw new IllegalArgumentException("invalid rate profile segment " + i);
+            }
+            rates[i] = ratesPerMinute[i] / unitsPerMinute();
+            max = Math.max(max, rates[i]);
+        }
+        this.endTime = endTime;
+        this.maxRate = max;
+    }
+
+    /**
+     * 整段时间到达率不变
+     */
+    public static RateProfile constant(double ratePerMinute, long duration) {
+        return new RateProfile(new long[]{0}, new double[]{ratePerMinute}, duration);
+    }
+
+    /**
+     * 先升后降的高峰：五等分，到达率依次是峰值的 30%、70%、100%、70%、30%
+     */
+    public static RateProfile peak(double peakRatePerMinute, long duration) {
+        double[] factors = {0.3, 0.7, 1.0, 0.7, 0.3};
+        long[] startTimes = new long[factors.length];
+        double[] rates = new double[factors.length];
+        for (int i = 0; i < factors.length; i++) {
+            startTimes[i] = duration * i / factors.length;
+            rates[i] = peakRatePerMinute * factors[i];
+        }
+        return new RateProfile(startTimes, rates, duration);
+    }
+
+    private static double unitsPerMinute() {
+        return Env.TIME_UNIT.convert(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @return time 时刻每个时间单位的到达率，time 超出范围时为0
+     */
+    public double rateAt(long time) {
+        if (time < 0 || time >= endTime) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(startTimes, time);
+        return rates[index >= 0 ? index : -index - 2];
+    }
+
+    /**
+     * @return 每个时间单位的最大到达率
+     */
+    public double getMaxRate() {
+        return maxRate;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * @return 整段时间期望到达的人数
+     */
+    public double expectedArrivals() {
+        double sum = 0;
+        for (int i = 0; i < startTimes.length; i++) {
+            long end = i + 1 < startTimes.length ? startTimes[i + 1] : endTime;
+            sum += rates[i] * (end - startTimes[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,160 @@
+package biz.jared.traffic;
+
+import biz.jared.Env;
+import biz.jared.simulation.SimulationSnapshot;
+import biz.jared.trace.ArrivalSource;
+import biz.jared.trace.ArrivalTraceWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按交通模式现场产生的乘客到达流：到达是到达率随时间变化的泊松过程，每次到达按起止楼层矩阵抽一次出行
+ * 到达时间用 thinning 方法产生：按最大到达率产生候选到达，再按当时到达率/最大到达率的概率保留
+ * 只保存下一次到达，多长的时间段都不占额外内存；同样的种子产生同样的到达流
+ * <p>
+ * 用法：TrafficGenerator {pattern} {floorNum} {peakRatePerMinute} {minutes} {seed} {trace}，按高峰到达率写成到达记录
+ *
+ * @author jared
+ */
+public class TrafficGenerator implements ArrivalSource {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrafficGenerator.class);
+
+    private final OriginDestinationMatrix matrix;
+    private final RateProfile rateProfile;
+    private Random random;
+    /**
+     * 候选到达的时间，连续值
+     */
+    private double candidateTime;
+    /**
+     * 下一次到达，没有下一次时 nextTime 为 -1
+     */
+    private long nextTime;
+    private int nextTrip;
+
+    private long time;
+    private int srcFloorNo;
+    private int targetFloorNo;
+
+    public TrafficGenerator(OriginDestinationMatrix matrix, RateProfile rateProfile, Random random) {
+        this.matrix = matrix;
+        this.rateProfile = rateProfile;
+        this.random = random;
+        advance();
+    }
+
+    public TrafficGenerator(TrafficPattern pattern, int floorNum, RateProfile rateProfile, Random random) {
+        this(pattern.matrix(floorNum), rateProfile, random);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 6) {
+            System.err.println("usage: TrafficGenerator {pattern} {floorNum} {peakRatePerMinute} {minutes} {seed}"
+                    + " {trace}");
+            System.exit(1);
+        }
+        long duration = Env.TIME_UNIT.convert(Long.parseLong(args[3]), TimeUnit.MINUTES);
+        TrafficGenerator generator = new TrafficGenerator(TrafficPattern.valueOf(args[0]),
+                Integer.parseInt(args[1]), RateProfile.peak(Double.parseDouble(args[2]), duration),
+                new Random(Long.parseLong(args[4])));
+        try (ArrivalTraceWriter writer = new ArrivalTraceWriter(Paths.get(args[5]))) {
+            while (generator.hasNext()) {
+                generator.next();
+                writer.write(generator.getTime(), generator.getSrcFloorNo(), generator.getTargetFloorNo(), 1);
+            }
+            LOGGER.info("{} arrivals written to {}", writer.getRecordCount(), args[5]);
+        }
+    }
+
+    /**
+     * 产生下一次到达
+     */
+    private void advance() {
+        double maxRate = rateProfile.getMaxRate();
+        nextTime = -1;
+        if (maxRate <= 0) {
+            return;
+        }
+        while (true) {
+            candidateTime += -Math.log(1 - random.nextDouble()) / maxRate;
+            if (candidateTime >= rateProfile.getEndTime()) {
+                return;
+            }
+            long candidate = (long) candidateTime;
+            if (random.nextDouble() * maxRate < rateProfile.rateAt(candidate)) {
+                nextTime = candidate;
+                nextTrip = matrix.sample(random);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextTime >= 0;
+    }
+
+    @Override
+    public void next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        time = nextTime;
+        srcFloorNo = matrix.srcFloorNo(nextTrip);
+        targetFloorNo = matrix.targetFloorNo(nextTrip);
+        advance();
+    }
+
+    @Override
+    public void save(DataOutput out) throws IOException {
+        out.writeDouble(candidateTime);
+        out.writeLong(nextTime);
+        out.writeInt(nextTrip);
+        out.writeLong(time);
+        out.writeInt(srcFloorNo);
+        out.writeInt(targetFloorNo);
+        SimulationSnapshot.writeRandom(out, random);
+    }
+
+    /**
+     * 恢复出来的随机数发生器是一个新的对象，不再和构造时传入的共用
+     */
+    @Override
+    public void restore(DataInput in) throws IOException {
+        candidateTime = in.readDouble();
+        nextTime = in.readLong();
+        nextTrip = in.readInt();
+        time = in.readLong();
+        srcFloorNo = in.readInt();
+        targetFloorNo = in.readInt();
+        random = SimulationSnapshot.readRandom(in);
+    }
+
+    @Override
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public int getSrcFloorNo() {
+        return srcFloorNo;
+    }
+
+    @Override
+    public int getTargetFloorNo() {
+        return targetFloorNo;
+    }
+
+    @Override
+    public int getGroupSize() {
+        return 1;
+    }
+}
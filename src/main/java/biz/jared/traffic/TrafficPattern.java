@@ -0,0 +1,79 @@
+package biz.jared.traffic;
+
+/**
+ * 标准交通模式，1楼是大堂
+ * 各模式下 进大堂上楼 / 下楼去大堂 / 楼层之间 的出行占比参考办公楼的典型客流
+ *
+ * @author jared
+ */
+public enum TrafficPattern {
+    /**
+     * 任意两层之间均匀出行，原来随机产生用户的方式
+     */
+    UNIFORM(0, 0, 0),
+    /**
+     * 早高峰：大多从大堂上楼
+     */
+    UP_PEAK(0.85, 0.05, 0.10),
+    /**
+     * 晚高峰：大多下楼去大堂
+     */
+    DOWN_PEAK(0.05, 0.85, 0.10),
+    /**
+     * 午餐：下楼去大堂和从大堂回来的差不多一样多
+     */
+    LUNCH(0.45, 0.45, 0.10),
+    /**
+     * 平峰：楼层之间的出行为主
+     */
+    INTER_FLOOR(0.10, 0.10, 0.80);
+
+    /**
+     * 从大堂上楼的占比
+     */
+    private final double incoming;
+    /**
+     * 下楼去大堂的占比
+     */
+    private final double outgoing;
+    /**
+     * 非大堂楼层之间的占比
+     */
+    private final double interFloor;
+
+    TrafficPattern(double incoming, double outgoing, double interFloor) {
+        this.incoming = incoming;
+        this.outgoing = outgoing;
+        this.interFloor = interFloor;
+    }
+
+    /**
+     * @param floorNum 总楼层数，至少3层
+     * @return 这个模式下的起止楼层矩阵，同一类出行在各楼层间均匀分布
+     */
+    public OriginDestinationMatrix matrix(int floorNum) {
+        if (floorNum < 3) {
+            throw new IllegalArgumentException("traffic pattern needs at least 3 floors: " + floorNum);
+        }
+        double[][] weights = new double[floorNum][floorNum];
+        if (this == UNIFORM) {
+            for (int i = 0; i < floorNum; i++) {
+                for (int j = 0; j < floorNum; j++) {
+                    weights[i][j] = i == j ? 0 : 1;
+                }
+            }
+            return new OriginDestinationMatrix(weights);
+        }
+        int upperNum = floorNum - 1;
+        for (int i = 1; i < floorNum; i++) {
+            weights[0][i] = incoming / upperNum;
+            weights[i][0] = outgoing / upperNum;
+            for (int j = 1; j < floorNum; j++) {
+                if (i != j) {
+                    weights[i][j] = interFloor / (upperNum * (upperNum - 1));
+                }
+            }
+        }
+        return new OriginDestinationMatrix(weights);
+    }
+}
@@ -0,0 +1,33 @@
+package biz.jared;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExperimentRunnerTest {
+
+    @Test
+    public void testParallelRunsAreIsolated() throws Exception {
+        //并行跑出来的每一轮，和单独跑同样种子的那一轮结果一样
+        List<ExperimentRunner.Experiment> experimentList = ExperimentRunner.run(SimulationConfig.DEFAULT, 4, 7, 3);
+        assertThat(experimentList).hasSize(
+                ExperimentRunner.DISPATCH_STRATEGIES.length * ExperimentRunner.PRIORITY_STRATEGIES.length);
+        for (ExperimentRunner.Experiment experiment : experimentList) {
+            assertThat(experiment.runList).hasSize(4);
+            for (ExperimentRunner.Run run : experiment.runList) {
+                ExperimentRunner.Run alone = ExperimentRunner.runOnce(SimulationConfig.DEFAULT,
+                        experiment.dispatchStrategyStr,
+                        experiment.priorityStrategyStr, run.seed);
+                assertThat(run.moveDistance).isEqualTo(alone.moveDistance);
+                assertThat(run.passengerMetrics.getWaitTime().getTotal())
+                        .isEqualTo(alone.passengerMetrics.getWaitTime().getTotal());
+                assertThat(run.passengerMetrics.getJourneyTime().getTotal())
+                        .isEqualTo(alone.passengerMetrics.getJourneyTime().getTotal());
+            }
+            assertThat(experiment.passengerMetrics.getWaitTime().getCount()).isEqualTo(experiment.runList.stream()
+                    .mapToLong(run -> run.passengerMetrics.getWaitTime().getCount()).sum());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package biz.jared;
+
+import biz.jared.domain.Building;
+import biz.jared.domain.Elevator;
+import biz.jared.domain.SteppedDispatcher;
+import biz.jared.domain.User;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.metrics.PassengerMetrics;
+import biz.jared.simulation.RandomUserGenerator;
+import biz.jared.simulation.SteppedSimulation;
+import biz.jared.simulation.VirtualClock;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class KinematicsTest {
+    /**
+     * 层高4米、额定速度2米/秒、加速度1米/秒²、加加速度1米/秒³：加速到额定速度要3秒、走3米
+     */
+    private static final Kinematics KINEMATICS = new Kinematics(31, 4.0, 2.0, 1.0, 1.0, 2000, 3000, 1000);
+
+    @Test
+    public void testFlightTime() {
+        //40米升得到额定速度：加速3秒、匀速17秒、减速3秒
+        assertThat(KINEMATICS.flightTime(10)).isCloseTo(23000L, within(1L));
+        //4米升不到额定速度，最高速度 v 满足 v * (v + 1) = 4
+        assertThat(KINEMATICS.flightTime(1)).isCloseTo(5123L, within(2L));
+        assertThat(KINEMATICS.passTime(10, 0)).isZero();
+        for (int passed = 1; passed <= 10; passed++) {
+            assertThat(KINEMATICS.passTime(10, passed)).isGreaterThan(KINEMATICS.passTime(10, passed - 1));
+            //一趟走得远，过同一层时速度更快
+            assertThat(KINEMATICS.passTime(20, passed)).isLessThanOrEqualTo(KINEMATICS.passTime(10, passed));
+        }
+        assertThat(KINEMATICS.dwellTime(0)).isZero();
+        assertThat(KINEMATICS.dwellTime(2)).isEqualTo(7000);
+        //多停一站：多一次加速、减速3秒，开关门和一个人上下6秒，额定速度下够走4.5层
+        assertThat(KINEMATICS.stopCostFloors()).isEqualTo(5);
+    }
+
+    @Test
+    public void testFromProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("floorNum", "31");
+        assertThat(SimulationConfig.fromProperties(properties).getKinematics()).isNull();
+        properties.setProperty("ratedSpeed", "2.5");
+        properties.setProperty("doorOpenTime", "1500");
+        SimulationConfig config = SimulationConfig.fromProperties(properties);
+        Kinematics kinematics = config.getKinematics();
+        assertThat(kinematics.getFloorNum()).isEqualTo(31);
+        assertThat(kinematics.getRatedSpeed()).isEqualTo(2.5);
+        assertThat(kinematics.getDoorOpenTime()).isEqualTo(1500);
+        assertThat(kinematics.getFloorHeight()).isEqualTo(Kinematics.DEFAULT_FLOOR_HEIGHT);
+        assertThat(config.flightTime(3)).isEqualTo(kinematics.flightTime(3));
+        assertThat(config.dwellTime(1)).isEqualTo(1500 + Kinematics.DEFAULT_DOOR_CLOSE_TIME
+                + Kinematics.DEFAULT_TRANSFER_TIME);
+        //没有运动学参数时每层一个操作的时间，有人上下才开门
+        SimulationConfig fixed = new SimulationConfig(31, 1, 2, 0, 10, 30);
+        assertThat(fixed.passTime(10, 4)).isEqualTo(40);
+        assertThat(fixed.dwellTime(0)).isZero();
+        assertThat(fixed.dwellTime(3)).isEqualTo(30);
+
+        assertThatThrownBy(() -> new SimulationConfig(30, 1, 2, 0, 10, 0, null, KINEMATICS))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Kinematics(31, 4.0, 0, 1.0, 1.0, 0, 0, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testSteppedRide() {
+        VirtualClock clock = new VirtualClock();
+        SimulationContext context = new SimulationContext(
+                new SimulationConfig(31, 1, 2, 0, 100, 0, null, KINEMATICS), clock);
+        Building building = new Building(31);
+        Elevator elevator = new Elevator(0, building.getFloor(1), new SameDirectionNearestFirstPriorityStrategy(31),
+                context);
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, Collections.singletonList(elevator),
+                new PriorityFirstDispatchStrategy());
+        elevator.setDispatcher(dispatcher);
+        building.setDispatcher(dispatcher);
+        building.getFloor(1).add(new User("lucy0", building.getFloor(11), clock.ticker()), Direction.UP);
+        new SteppedSimulation(context, Collections.singletonList(elevator), dispatcher,
+                new RandomUserGenerator(building.getFloorList(), 0, new Random(1), clock.ticker())).run();
+
+        //一层一层走的十站是一趟，按一条速度曲线算，不是十次起步停下；上电梯那一站开关门、一个人上，单线程引擎停靠的那个时间单位另算
+        assertThat(elevator.getMetrics().getMoveDistance()).isEqualTo(10);
+        PassengerMetrics passengerMetrics = context.getMetrics().getPassengerMetrics();
+        assertThat(passengerMetrics.getRideTime().getCount()).isEqualTo(1);
+        assertThat(passengerMetrics.getRideTime().getTotal())
+                .isBetween(KINEMATICS.dwellTime(1) + KINEMATICS.flightTime(10),
+                        KINEMATICS.dwellTime(1) + KINEMATICS.flightTime(10) + 2 * 100);
+    }
+}
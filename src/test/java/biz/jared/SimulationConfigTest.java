@@ -0,0 +1,57 @@
+package biz.jared;
+
+import biz.jared.simulation.WallClock;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SimulationConfigTest {
+
+    @Test
+    public void testLoad() throws IOException {
+        Path path = Files.createTempFile("simulation", ".properties");
+        try {
+            Files.write(path, Arrays.asList("floorNum = 12", "elevatorNum=4", "doorTime=30", "# 其它取默认值"),
+                    StandardCharsets.UTF_8);
+            SimulationConfig config = SimulationConfig.load(path.toString());
+            assertThat(config.getFloorNum()).isEqualTo(12);
+            assertThat(config.getElevatorNum()).isEqualTo(4);
+            assertThat(config.getMaxLoad()).isEqualTo(SimulationConfig.DEFAULT.getMaxLoad());
+            assertThat(config.getUserNum()).isEqualTo(SimulationConfig.DEFAULT.getUserNum());
+            assertThat(config.getElapsedTime()).isEqualTo(SimulationConfig.DEFAULT.getElapsedTime());
+            assertThat(config.getDoorTime()).isEqualTo(30);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testLoadDefault() throws IOException {
+        assertThat(SimulationConfig.load(null)).isSameAs(SimulationConfig.DEFAULT);
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThatThrownBy(() -> new SimulationConfig(1, 2, 2, 22, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SimulationConfig(30, 0, 2, 22, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testContextsAreIndependent() {
+        //两个上下文各有自己的latch和指标
+        SimulationContext first = new SimulationContext(new SimulationConfig(10, 3, 2, 0, 10), new WallClock());
+        SimulationContext second = new SimulationContext(SimulationConfig.DEFAULT, new WallClock());
+        first.getLatch().countDown();
+        assertThat(first.getLatch().getCount()).isEqualTo(2);
+        assertThat(second.getLatch().getCount()).isEqualTo(2);
+        assertThat(first.getMetrics()).isNotSameAs(second.getMetrics());
+    }
+}
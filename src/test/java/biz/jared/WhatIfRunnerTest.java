@@ -0,0 +1,52 @@
+package biz.jared;
+
+import biz.jared.metrics.MetricsRegistry;
+import biz.jared.metrics.PassengerMetrics;
+import biz.jared.simulation.SimulationSnapshot;
+import biz.jared.simulation.VirtualClock;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WhatIfRunnerTest {
+
+    @Test
+    public void testForksContinueFromSnapshot() throws Exception {
+        SimulationConfig config = new SimulationConfig(20, 3, 4, 120, 10, 20);
+        long seed = 11;
+        SimulationContext before = new SimulationContext(config, new VirtualClock());
+        SimulationSnapshot snapshot = WhatIfRunner.fastForward(before, seed, 600);
+        assertThat(snapshot.getTime()).isEqualTo(600);
+        long servedBefore = before.getMetrics().getPassengerMetrics().getWaitTime().getCount();
+
+        List<WhatIfRunner.Fork> forkList = WhatIfRunner.fork(config, snapshot, ExperimentRunner.DISPATCH_STRATEGIES,
+                seed, 3);
+        assertThat(forkList).hasSize(ExperimentRunner.DISPATCH_STRATEGIES.length);
+        for (WhatIfRunner.Fork fork : forkList) {
+            //分叉之前已经上了电梯的人不会再算一次
+            assertThat(fork.metrics.getPassengerMetrics().getWaitTime().getCount())
+                    .as(fork.dispatchStrategyStr).isPositive().isLessThanOrEqualTo(config.getUserNum() - servedBefore);
+            assertThat(fork.endTime).as(fork.dispatchStrategyStr).isGreaterThan(snapshot.getTime());
+        }
+
+        //换上同一个分配策略的分叉，和不分叉一口气跑完的结果一样
+        WhatIfRunner.Fork same = forkList.stream()
+                .filter(fork -> WhatIfRunner.BASE_DISPATCH_STRATEGY.equals(fork.dispatchStrategyStr))
+                .findFirst().get();
+        SimulationContext whole = new SimulationContext(config, new VirtualClock());
+        App.steppedEpoch(whole, WhatIfRunner.BASE_DISPATCH_STRATEGY, WhatIfRunner.PRIORITY_STRATEGY, seed);
+        MetricsRegistry wholeMetrics = whole.getMetrics();
+        PassengerMetrics wholePassenger = wholeMetrics.getPassengerMetrics();
+        PassengerMetrics beforePassenger = before.getMetrics().getPassengerMetrics();
+        PassengerMetrics afterPassenger = same.metrics.getPassengerMetrics();
+        assertThat(same.endTime).isEqualTo(whole.getClock().now());
+        assertThat(before.getMetrics().getTotalMoveDistance() + same.metrics.getTotalMoveDistance())
+                .isEqualTo(wholeMetrics.getTotalMoveDistance());
+        assertThat(beforePassenger.getWaitTime().getTotal() + afterPassenger.getWaitTime().getTotal())
+                .isEqualTo(wholePassenger.getWaitTime().getTotal());
+        assertThat(beforePassenger.getJourneyTime().getTotal() + afterPassenger.getJourneyTime().getTotal())
+                .isEqualTo(wholePassenger.getJourneyTime().getTotal());
+    }
+}
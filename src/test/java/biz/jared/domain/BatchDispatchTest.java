@@ -0,0 +1,61 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.simulation.VirtualClock;
+import biz.jared.strategy.HungarianDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchDispatchTest {
+    private List<Floor> floorList;
+    private Elevator e1;
+    private Elevator e5;
+    private SteppedDispatcher dispatcher;
+
+    @BeforeMethod
+    public void setUp() {
+        SimulationContext context = new SimulationContext(new SimulationConfig(10, 2, 2, 0, 10), new VirtualClock());
+        floorList = new Building(10).getFloorList();
+        e1 = new Elevator(1, floorList.get(0), new SameDirectionNearestFirstPriorityStrategy(10), context);
+        e5 = new Elevator(5, floorList.get(4), new SameDirectionNearestFirstPriorityStrategy(10), context);
+        dispatcher = new SteppedDispatcher(context, Arrays.asList(e1, e5), new HungarianDispatchStrategy());
+    }
+
+    @Test
+    public void testGlobalMinimumCost() {
+        //逐个贪心分配时，4楼的任务先占走5楼的电梯，6楼的任务只能让1楼的电梯跑5层，总代价 1 + 5
+        //一起分配时，1楼的电梯去4楼、5楼的电梯去6楼，总代价 3 + 1
+        Task t4 = Task.generate(floorList.get(3), Direction.UP);
+        Task t6 = Task.generate(floorList.get(5), Direction.UP);
+        dispatcher.dispatch(t4);
+        dispatcher.dispatch(t6);
+        dispatcher.dispatchPending();
+
+        assertThat(e1.getTaskQueue()).containsExactly(t4);
+        assertThat(e5.getTaskQueue()).containsExactly(t6);
+    }
+
+    @Test
+    public void testMoreTasksThanElevators() {
+        List<Task> taskList = new ArrayList<>();
+        for (int floorNo : new int[]{2, 3, 7, 9}) {
+            Task task = Task.generate(floorList.get(floorNo - 1), Direction.UP);
+            taskList.add(task);
+            dispatcher.dispatch(task);
+        }
+        dispatcher.dispatchPending();
+
+        //每轮每个电梯分一个任务，两轮分完
+        assertThat(e1.getTaskQueue()).hasSize(2).contains(taskList.get(0));
+        assertThat(e5.getTaskQueue()).hasSize(2);
+    }
+}
@@ -0,0 +1,52 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.simulation.VirtualClock;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BuildingTest {
+
+    @Test
+    public void testNext() {
+        Building building = new Building(10);
+        Floor floor5 = building.getFloor(5);
+        assertThat(floor5.next(Direction.UP)).isSameAs(building.getFloor(6));
+        assertThat(floor5.next(Direction.DOWN)).isSameAs(building.getFloor(4));
+        assertThat(building.getFloor(10).next(Direction.UP)).isNull();
+        assertThat(building.getFloor(1).next(Direction.DOWN)).isNull();
+    }
+
+    @Test
+    public void testHallCall() {
+        Building building = new Building(10);
+        building.setDispatcher(new SteppedDispatcher(
+                new SimulationContext(SimulationConfig.DEFAULT, new VirtualClock()), Collections.emptyList(),
+                new PriorityFirstDispatchStrategy()));
+        building.getFloor(3).add(new User("lucy0", building.getFloor(8)), Direction.UP);
+        building.getFloor(7).add(new User("lucy1", building.getFloor(1)), Direction.DOWN);
+        building.getFloor(7).add(new User("lucy2", building.getFloor(2)), Direction.DOWN);
+
+        assertThat(building.hallCallCount()).isEqualTo(2);
+        assertThat(building.hasHallCall(3, Direction.UP)).isTrue();
+        assertThat(building.hasHallCall(3, Direction.DOWN)).isFalse();
+        assertThat(building.nextHallCall(4, Direction.UP)).isEqualTo(7);
+        assertThat(building.nextHallCall(6, Direction.DOWN)).isEqualTo(3);
+        assertThat(building.nextHallCall(8, Direction.UP)).isEqualTo(-1);
+
+        //电梯只带走了一个人，下行呼叫还在
+        assertThat(building.getFloor(7).reduce(Direction.DOWN, 1)).hasSize(1);
+        building.getFloor(7).done(Direction.DOWN);
+        assertThat(building.hasHallCall(7, Direction.DOWN)).isTrue();
+        building.getFloor(7).reduce(Direction.DOWN, 1);
+        building.getFloor(7).done(Direction.DOWN);
+        assertThat(building.hasHallCall(7, Direction.DOWN)).isFalse();
+        assertThat(building.hallCallCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,113 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.metrics.ElevatorMetrics;
+import biz.jared.simulation.SteppedSimulation;
+import biz.jared.simulation.TraceUserGenerator;
+import biz.jared.simulation.VirtualClock;
+import biz.jared.strategy.DestinationDispatchStrategy;
+import biz.jared.strategy.DispatchStrategy;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import biz.jared.traffic.OriginDestinationMatrix;
+import biz.jared.traffic.RateProfile;
+import biz.jared.traffic.TrafficGenerator;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DestinationDispatchTest {
+    private static final int FLOOR_NUM = 16;
+
+    @Test
+    public void testOneCallPerDestination() {
+        VirtualClock clock = new VirtualClock();
+        SimulationContext context = new SimulationContext(new SimulationConfig(10, 2, 8, 0, 10), clock);
+        Building building = new Building(10);
+        building.setDestinationDispatch(true);
+        Elevator lobby = new Elevator(1, building.getFloor(1), new SameDirectionNearestFirstPriorityStrategy(10),
+                context);
+        Elevator top = new Elevator(2, building.getFloor(10), new SameDirectionNearestFirstPriorityStrategy(10),
+                context);
+        List<Elevator> elevatorList = new ArrayList<>();
+        elevatorList.add(lobby);
+        elevatorList.add(top);
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList,
+                new DestinationDispatchStrategy(2));
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+        building.setDispatcher(dispatcher);
+
+        Floor floor = building.getFloor(1);
+        //厅外按错方向也按目标楼层算
+        floor.add(new User("a", building.getFloor(5), clock.ticker()), Direction.DOWN);
+        floor.add(new User("b", building.getFloor(5), clock.ticker()), Direction.UP);
+        floor.add(new User("c", building.getFloor(8), clock.ticker()), Direction.UP);
+        dispatcher.dispatchPending();
+
+        //去同一层的人只有一个呼叫，两个呼叫都分给了大堂的电梯
+        List<Task> taskList = lobby.getQueuedTasks();
+        assertThat(taskList).hasSize(2).allMatch(Task::isDestinationCall);
+        assertThat(taskList).extracting(task -> task.getTargetFloor().getFloorNo()).containsOnly(5, 8);
+        assertThat(top.getQueuedTasks()).isEmpty();
+        assertThat(building.hasHallCall(1, Direction.UP)).isTrue();
+
+        //一站接走两个呼叫的人
+        lobby.step();
+        assertThat(lobby.getState().getLoadCount()).isEqualTo(3);
+        assertThat(lobby.getMetrics().getStops()).isEqualTo(1);
+        assertThat(building.hasHallCall(1, Direction.UP)).isFalse();
+    }
+
+    @Test
+    public void testUpPeakHandlingCapacity() {
+        long[] conventional = simulate(new PriorityFirstDispatchStrategy());
+        long[] destination = simulate(new DestinationDispatchStrategy(7));
+        //到达的人都送到了
+        assertThat(destination[0]).isEqualTo(conventional[0]).isPositive();
+        //每趟停的站少，同样的到达率下排队等的时间短得多
+        assertThat(destination[1]).isLessThan(conventional[1]);
+        assertThat(destination[2] * 2).isLessThan(conventional[2]);
+    }
+
+    /**
+     * 早高峰全部从大堂上楼，每分钟2000人，持续20秒
+     *
+     * @return {送到的人数, 停靠次数, 总等待时间}
+     */
+    private long[] simulate(DispatchStrategy dispatchStrategy) {
+        VirtualClock clock = new VirtualClock();
+        SimulationContext context = new SimulationContext(new SimulationConfig(FLOOR_NUM, 4, 12, 0, 10, 60), clock);
+        Building building = new Building(FLOOR_NUM);
+        building.setDestinationDispatch(dispatchStrategy instanceof DestinationDispatchStrategy);
+        List<Elevator> elevatorList = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            elevatorList.add(new Elevator(i, building.getFloor(1),
+                    new SameDirectionNearestFirstPriorityStrategy(FLOOR_NUM), context));
+        }
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList, dispatchStrategy);
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+        building.setDispatcher(dispatcher);
+
+        double[][] weights = new double[FLOOR_NUM][FLOOR_NUM];
+        for (int i = 1; i < FLOOR_NUM; i++) {
+            weights[0][i] = 1;
+        }
+        TrafficGenerator source = new TrafficGenerator(new OriginDestinationMatrix(weights),
+                RateProfile.constant(2000, 20_000), new Random(7));
+        new SteppedSimulation(context, elevatorList, dispatcher,
+                new TraceUserGenerator(building.getFloorList(), source, clock.ticker())).run();
+
+        long stops = 0;
+        for (ElevatorMetrics metrics : context.getMetrics().getElevatorMetrics()) {
+            stops += metrics.getStops();
+        }
+        return new long[]{context.getMetrics().getPassengerMetrics().getJourneyTime().getCount(), stops,
+                context.getMetrics().getPassengerMetrics().getWaitTime().getTotal()};
+    }
+}
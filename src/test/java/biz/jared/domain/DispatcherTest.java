@@ -1,7 +1,9 @@
 package biz.jared.domain;
 
-import biz.jared.Env;
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
 import biz.jared.domain.enumeration.Direction;
+import biz.jared.simulation.WallClock;
 import biz.jared.strategy.DispatchStrategy;
 import biz.jared.strategy.PriorityFirstDispatchStrategy;
 import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
@@ -15,8 +17,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 public class DispatcherTest {
     private Dispatcher dispatcher;
-    private Elevator e1 = new Elevator(1, new Floor(1), new SameDirectionNearestFirstPriorityStrategy());
-    private Elevator e2 = new Elevator(2, new Floor(5), new SameDirectionNearestFirstPriorityStrategy());
+    private SimulationContext context = new SimulationContext(SimulationConfig.DEFAULT, new WallClock());
+    private Elevator e1 = new Elevator(1, new Floor(1), new SameDirectionNearestFirstPriorityStrategy(30), context);
+    private Elevator e2 = new Elevator(2, new Floor(5), new SameDirectionNearestFirstPriorityStrategy(30), context);
 
     @BeforeMethod
     public void setUp() {
@@ -27,7 +30,7 @@ public class DispatcherTest {
                 add(e2);
             }
         };
-        dispatcher = new Dispatcher(elist, dispatchStategy);
+        dispatcher = new Dispatcher(context, elist, dispatchStategy);
     }
 
     @Test
@@ -39,13 +42,13 @@ public class DispatcherTest {
     @Test(dependsOnMethods = "testQuit")
     public void testQuit2() {
         dispatcher.quit(e1);
-        assertThat(Env.LATCH.getCount()).isZero();
+        assertThat(context.getLatch().getCount()).isZero();
     }
 
     @Test
     public void testQuit() throws Exception {
         dispatcher.quit(e2);
-        assertThat(Env.LATCH.getCount()).isOne();
+        assertThat(context.getLatch().getCount()).isOne();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package biz.jared.domain;
+
+import biz.jared.Kinematics;
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.event.EventHandler;
+import biz.jared.event.EventLog;
+import biz.jared.event.EventType;
+import biz.jared.simulation.RandomUserGenerator;
+import biz.jared.simulation.SteppedSimulation;
+import biz.jared.simulation.VirtualClock;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 配置了运动学参数时，单线程引擎下电梯走楼层、停靠的时刻：按 Kinematics 的表算出来的一趟的时间向上取整成步数
+ */
+public class ElevatorFlightTest {
+    /**
+     * 层高4米、额定速度2米/秒、加速度1米/秒²、加加速度1米/秒³，开门2秒、关门3秒、每人上下1秒
+     */
+    private static final Kinematics KINEMATICS = new Kinematics(31, 4.0, 2.0, 1.0, 1.0, 2000, 3000, 1000);
+
+    private int elapsedTime;
+    private VirtualClock clock;
+    private SimulationContext context;
+    private EventLog eventLog;
+    private final List<long[]> events = new ArrayList<>();
+    private Building building;
+    private List<Elevator> elevatorList;
+    private SteppedSimulation simulation;
+
+    @AfterMethod
+    public void close() throws InterruptedException {
+        if (eventLog != null) {
+            eventLog.close();
+        }
+    }
+
+    @Test
+    public void testMultiStopRun() throws InterruptedException {
+        //300 不整除表里的时间，逐站取整会越走越多；7000 比匀速走一层的时间长，一步里能走完好几站
+        for (int step : new int[]{300, 7000}) {
+            start(step, 1, null);
+            add(1, 6, Direction.UP);
+            add(1, 11, Direction.UP);
+            finish();
+
+            long stop1 = time(EventType.STOP, 1);
+            long depart6 = time(EventType.EXECUTE, 6);
+            long stop6 = time(EventType.STOP, 6);
+            long depart11 = time(EventType.EXECUTE, 11);
+            long stop11 = time(EventType.STOP, 11);
+            //两个人上，开关门之外单线程引擎停靠的那一步另算
+            assertThat(depart6 - stop1).isEqualTo(ceil(KINEMATICS.dwellTime(2)) + step);
+            //1到6层一层一层走的五站是一趟，每站出发的时刻都在同一条速度曲线上
+            for (int passed = 0; passed < 5; passed++) {
+                assertThat(time(EventType.MOVE, 2 + passed)).isEqualTo(depart6 + ceil(KINEMATICS.passTime(5, passed)));
+            }
+            //各站取整的误差不累加，到站正好是整趟时间向上取整
+            assertThat(stop6 - depart6).isEqualTo(ceil(KINEMATICS.flightTime(5)));
+            assertThat(depart11 - stop6).isEqualTo(ceil(KINEMATICS.dwellTime(1)) + step);
+            assertThat(stop11 - depart11).isEqualTo(ceil(KINEMATICS.flightTime(5)));
+            close();
+        }
+        //逐站取整的话300的时间单位会多出来
+        long perStop = 0;
+        for (int passed = 1; passed <= 5; passed++) {
+            perStop += ceil(KINEMATICS.passTime(5, passed) - KINEMATICS.passTime(5, passed - 1));
+        }
+        assertThat(perStop).isGreaterThan(ceil(KINEMATICS.flightTime(5)));
+    }
+
+    @Test
+    public void testGrabRetargetsFlight() throws InterruptedException {
+        start(300, 1, null);
+        add(21, 25, Direction.UP);
+        //出发去21层，走到半路15层来了人，更近、同方向，抢占21层的任务
+        simulation.runUntil(10 * elapsedTime + KINEMATICS.passTime(20, 8));
+        add(15, 20, Direction.UP);
+        finish();
+
+        long depart = time(EventType.EXECUTE, 21);
+        long[] retarget = event(EventType.EXECUTE, 15);
+        int passed = (int) retarget[3] - 1;
+        assertThat(passed).isBetween(1, 13);
+        //抢占之前按去21层的一趟算，之后中途没停，按从1层起步去15层的一趟接着算，不重新起步
+        assertThat(retarget[0] - depart).isEqualTo(ceil(KINEMATICS.passTime(20, passed)));
+        assertThat(time(EventType.STOP, 15) - retarget[0])
+                .isEqualTo(ceil(KINEMATICS.flightTime(14)) - ceil(KINEMATICS.passTime(14, passed)));
+    }
+
+    @Test
+    public void testReverseRestartsFlight() throws InterruptedException {
+        start(300, 1, null);
+        add(21, 25, Direction.UP);
+        simulation.runUntil(10 * elapsedTime + KINEMATICS.passTime(20, 8));
+        //往上走的半路3层有人要下去，顺路的21层的呼叫又取消了，电梯掉头
+        add(3, 1, Direction.DOWN);
+        building.getFloor(21).cancel(Direction.UP);
+        finish();
+
+        long[] reverse = event(EventType.EXECUTE, 3);
+        int reverseFloor = (int) reverse[3];
+        assertThat(reverseFloor).isGreaterThan(4);
+        //掉头从当前楼层重新起步
+        assertThat(time(EventType.STOP, 3) - reverse[0]).isEqualTo(ceil(KINEMATICS.flightTime(reverseFloor - 3)));
+    }
+
+    @Test
+    public void testExpressRun() throws InterruptedException {
+        //只停1层和21层的穿梭梯，中间二十层一站直达
+        start(300, 1, "1,21:1;1-31:1");
+        add(1, 21, Direction.UP);
+        finish();
+
+        assertThat(events.stream().filter(e -> e[1] == EventType.MOVE.ordinal() && e[2] == 0)
+                .mapToLong(e -> e[3])).containsExactly(21L);
+        assertThat(time(EventType.STOP, 21) - time(EventType.EXECUTE, 21))
+                .isEqualTo(ceil(KINEMATICS.flightTime(20)));
+    }
+
+    private void start(int elapsedTime, int elevatorNum, String banks) {
+        this.elapsedTime = elapsedTime;
+        events.clear();
+        EventHandler handler = (time, type, elevatorId, floorNo, arg, value) ->
+                events.add(new long[]{time, type.ordinal(), elevatorId, floorNo, arg});
+        eventLog = EventLog.start(EnumSet.of(EventType.EXECUTE, EventType.MOVE, EventType.STOP),
+                EventLog.DEFAULT_CAPACITY, handler);
+        clock = new VirtualClock();
+        context = new SimulationContext(new SimulationConfig(31, banks == null ? elevatorNum : 2, 8, 0, elapsedTime,
+                0, banks, KINEMATICS), clock, eventLog);
+        building = new Building(31);
+        Topology topology = null;
+        if (banks != null) {
+            topology = Topology.parse(banks, 31, 2);
+            building.setTopology(topology);
+        }
+        elevatorList = new ArrayList<>();
+        for (int i = 0; i < context.getConfig().getElevatorNum(); i++) {
+            Bank bank = topology == null ? null : topology.bankOf(i);
+            Elevator elevator = new Elevator(i, building.getFloor(bank == null ? 1 : bank.getLowestFloor()),
+                    new SameDirectionNearestFirstPriorityStrategy(31), context);
+            if (bank != null) {
+                elevator.setBank(bank);
+            }
+            elevatorList.add(elevator);
+        }
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList,
+                new PriorityFirstDispatchStrategy());
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+        building.setDispatcher(dispatcher);
+        simulation = new SteppedSimulation(context, elevatorList, dispatcher,
+                new RandomUserGenerator(building.getFloorList(), 0, new Random(1), clock.ticker()));
+    }
+
+    private void add(int floorNo, int targetFloorNo, Direction direction) {
+        building.getFloor(floorNo).add(new User("lucy" + floorNo, building.getFloor(targetFloorNo), clock.ticker()),
+                direction);
+    }
+
+    private void finish() throws InterruptedException {
+        simulation.run();
+        eventLog.close();
+        eventLog = null;
+    }
+
+    /**
+     * @return 一段时间向上取整成整步
+     */
+    private long ceil(long duration) {
+        return (duration + elapsedTime - 1) / elapsedTime * elapsedTime;
+    }
+
+    /**
+     * @param floorNo EXECUTE 是任务楼层，MOVE、STOP 是到达的楼层
+     * @return 0号电梯第一条这样的事件：时刻、类型、电梯、所在楼层、参数
+     */
+    private long[] event(EventType type, int floorNo) {
+        for (long[] event : events) {
+            if (event[1] == type.ordinal() && event[2] == 0
+                    && (type == EventType.EXECUTE ? event[4] : event[3]) == floorNo) {
+                return event;
+            }
+        }
+        throw new AssertionError("no " + type + " at floor " + floorNo);
+    }
+
+    private long time(EventType type, int floorNo) {
+        return event(type, floorNo)[0];
+    }
+}
@@ -0,0 +1,86 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.simulation.VirtualClock;
+import biz.jared.strategy.EtaDispatchStrategy;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EtaDispatchTest {
+    private static final int FLOOR_NUM = 20;
+    private final SimulationConfig config = new SimulationConfig(FLOOR_NUM, 16, 8, 0, 10, 40);
+    private final SimulationContext context = new SimulationContext(config, new VirtualClock());
+    private final Building building = new Building(FLOOR_NUM);
+
+    @Test
+    public void testQueuedStopsDelayArrival() {
+        Elevator busy = newElevator(1, 5);
+        Elevator idle = newElevator(2, 1);
+        for (int floorNo = 6; floorNo <= 9; floorNo++) {
+            busy.receive(Task.generate(building.getFloor(floorNo), Direction.NONE));
+        }
+        List<Elevator> elevatorList = new ArrayList<>();
+        elevatorList.add(busy);
+        elevatorList.add(idle);
+        Task task = Task.generate(building.getFloor(10), Direction.UP);
+
+        //按楼层距离 busy 更近，但它要先停4站：4 * 40 + 5 * 10 > 9 * 10
+        assertThat(new PriorityFirstDispatchStrategy().select(elevatorList, task)).isSameAs(busy);
+        assertThat(new EtaDispatchStrategy(config).select(elevatorList, task)).isSameAs(idle);
+    }
+
+    @Test
+    public void testCachedRouteInvalidatedOnReceive() {
+        Elevator first = newElevator(3, 8);
+        Elevator second = newElevator(4, 12);
+        List<Elevator> elevatorList = new ArrayList<>();
+        elevatorList.add(first);
+        elevatorList.add(second);
+        EtaDispatchStrategy strategy = new EtaDispatchStrategy(config);
+        Task task = Task.generate(building.getFloor(10), Direction.UP);
+        //一样近时取靠前的，再分配一次用的是缓存的行程
+        assertThat(strategy.select(elevatorList, task)).isSameAs(first);
+        assertThat(strategy.select(elevatorList, task)).isSameAs(first);
+        //收到新任务后队列变了，要重新模拟
+        first.receive(Task.generate(building.getFloor(9), Direction.NONE));
+        first.receive(Task.generate(building.getFloor(7), Direction.NONE));
+        assertThat(strategy.select(elevatorList, task)).isSameAs(second);
+    }
+
+    @Test
+    public void testParallelSameAsSequential() {
+        Random random = new Random(7);
+        List<Elevator> elevatorList = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Elevator elevator = newElevator(i, 1 + random.nextInt(FLOOR_NUM));
+            for (int j = 0; j < 6; j++) {
+                elevator.receive(Task.generate(randomFloor(random), Direction.values()[random.nextInt(3)]));
+            }
+            elevatorList.add(elevator);
+        }
+        EtaDispatchStrategy sequential = new EtaDispatchStrategy(config, Integer.MAX_VALUE);
+        EtaDispatchStrategy parallel = new EtaDispatchStrategy(config, 1);
+        for (int i = 0; i < 200; i++) {
+            Task task = Task.generate(randomFloor(random), random.nextBoolean() ? Direction.UP : Direction.DOWN);
+            assertThat(parallel.select(elevatorList, task)).isSameAs(sequential.select(elevatorList, task));
+        }
+    }
+
+    private Elevator newElevator(int id, int floorNo) {
+        return new Elevator(id, building.getFloor(floorNo), new SameDirectionNearestFirstPriorityStrategy(FLOOR_NUM),
+                context);
+    }
+
+    private Floor randomFloor(Random random) {
+        return building.getFloor(1 + random.nextInt(FLOOR_NUM));
+    }
+}
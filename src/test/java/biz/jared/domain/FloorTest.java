@@ -1,24 +1,30 @@
 package biz.jared.domain;
 
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
 import biz.jared.domain.enumeration.Direction;
+import biz.jared.simulation.WallClock;
 import biz.jared.strategy.DispatchStrategy;
 import biz.jared.strategy.PriorityFirstDispatchStrategy;
 import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import com.google.common.base.Ticker;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class FloorTest {
 
     private Floor floor = new Floor(1);
-    private Elevator e1 = new Elevator(1, new Floor(1), new SameDirectionNearestFirstPriorityStrategy());
-    private Elevator e2 = new Elevator(2, new Floor(5), new SameDirectionNearestFirstPriorityStrategy());
+    private User first = new User("lhy", new Floor(3));
+    private User second = new User("lhy1", new Floor(6));
+    private SimulationContext context = new SimulationContext(SimulationConfig.DEFAULT, new WallClock());
+    private Elevator e1 = new Elevator(1, new Floor(1), new SameDirectionNearestFirstPriorityStrategy(30), context);
+    private Elevator e2 = new Elevator(2, new Floor(5), new SameDirectionNearestFirstPriorityStrategy(30), context);
 
     DispatchStrategy dispatchStategy = new PriorityFirstDispatchStrategy();
     List<Elevator> elist = new ArrayList<Elevator>() {
@@ -27,26 +33,50 @@ public class FloorTest {
             add(e2);
         }
     };
-    Dispatcher dispatcher = new Dispatcher(elist, dispatchStategy);
+    Dispatcher dispatcher = new Dispatcher(context, elist, dispatchStategy);
 
     @BeforeClass
     public void init() {
         floor.setDispatcher(dispatcher);
-        floor.add(new User("lhy", new Floor(3)), Direction.UP);
-        floor.add(new User("lhy", new Floor(6)), Direction.UP);
+        floor.add(first, Direction.UP);
+        floor.add(second, Direction.UP);
     }
 
     @Test
     public void testReduce() throws Exception {
-        Set<User> reduce = floor.reduce(Direction.UP, 1);
-        assertThat(reduce).hasSize(1);
+        //先来的先上
+        List<User> reduce = floor.reduce(Direction.UP, 1);
+        assertThat(reduce).containsExactly(first);
     }
 
     @Test(dependsOnMethods = "testReduce")
     public void testCancel() throws Exception {
         floor.cancel(Direction.UP);
-        Set<User> reduce = floor.reduce(Direction.UP, 1);
-        assertThat(reduce).hasSize(0);
+        //取消的是任务，等候的人还在
+        List<User> reduce = floor.reduce(Direction.UP, 1);
+        assertThat(reduce).containsExactly(second);
+        assertThat(floor.reduce(Direction.UP, 1)).isEmpty();
+    }
+
+    @Test
+    public void testStartWaitingBeforeDispatch() {
+        //分配任务时电梯线程可能马上来接人，这时已经要开始计时了
+        long[] waitStartNanos = new long[1];
+        User user = new User("lhy2", new Floor(8), new Ticker() {
+            @Override
+            public long read() {
+                return 42;
+            }
+        });
+        Floor other = new Floor(2);
+        other.setDispatcher(new Dispatcher(context, elist, dispatchStategy) {
+            @Override
+            void dispatch(Task task) {
+                waitStartNanos[0] = user.getWaitStartNanos();
+            }
+        });
+        other.add(user, Direction.UP);
+        assertThat(waitStartNanos[0]).isEqualTo(42);
     }
 
     @Test
@@ -0,0 +1,104 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.domain.enumeration.ElevatorStatus;
+import biz.jared.simulation.VirtualClock;
+import biz.jared.strategy.IndexedDispatchStrategy;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IndexedDispatchTest {
+    private static final int FLOOR_NUM = 30;
+    private final SimulationContext context =
+            new SimulationContext(new SimulationConfig(FLOOR_NUM, 64, 2, 0, 10), new VirtualClock());
+    private final Building building = new Building(FLOOR_NUM);
+
+    @Test
+    public void testSameAsPriorityFirst() {
+        Random random = new Random(11);
+        ElevatorIndex index = new ElevatorIndex(FLOOR_NUM);
+        IndexedDispatchStrategy indexed = new IndexedDispatchStrategy(index);
+        List<Elevator> elevatorList = newElevatorList(random, 64, index);
+        PriorityFirstDispatchStrategy linear = new PriorityFirstDispatchStrategy();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                Task task = Task.generate(randomFloor(random), random.nextBoolean() ? Direction.UP : Direction.DOWN);
+                assertThat(indexed.select(elevatorList, task)).isSameAs(linear.select(elevatorList, task));
+            }
+            elevatorList.forEach(Elevator::step);
+            assertIndexed(index, elevatorList);
+        }
+    }
+
+    @Test
+    public void testFallbackOnPartialList() {
+        Random random = new Random(13);
+        ElevatorIndex index = new ElevatorIndex(FLOOR_NUM);
+        List<Elevator> elevatorList = newElevatorList(random, 8, index);
+        List<Elevator> shard = elevatorList.subList(0, 3);
+        Task task = Task.generate(randomFloor(random), Direction.UP);
+        //分片只给了一部分电梯，不能从索引里选到分片外的电梯
+        assertThat(new IndexedDispatchStrategy(index).select(shard, task))
+                .isSameAs(new PriorityFirstDispatchStrategy().select(shard, task));
+    }
+
+    /**
+     * 每部电梯都在自己当前楼层、当前状态的桶里
+     */
+    private void assertIndexed(ElevatorIndex index, List<Elevator> elevatorList) {
+        assertThat(index.size()).isEqualTo(elevatorList.size());
+        for (Elevator elevator : elevatorList) {
+            ElevatorState state = elevator.getState();
+            int floorNo = state.getCurrFloor().getFloorNo();
+            assertThat(index.elevatorsAt(state.getStatus(), floorNo)).contains(elevator);
+            assertThat(index.nearest(state.getStatus(), floorNo, Direction.UP)).isEqualTo(floorNo);
+        }
+        int indexed = 0;
+        for (ElevatorStatus status : ElevatorStatus.values()) {
+            for (int floorNo = 1; floorNo <= FLOOR_NUM; floorNo++) {
+                indexed += index.elevatorsAt(status, floorNo).size();
+            }
+        }
+        assertThat(indexed).isEqualTo(elevatorList.size());
+    }
+
+    /**
+     * 电梯随机停在某层，各自排上几个任务并出发，上行、下行、空闲的都有
+     */
+    private List<Elevator> newElevatorList(Random random, int num, ElevatorIndex index) {
+        List<Elevator> elevatorList = new ArrayList<>(num);
+        for (int i = 0; i < num; i++) {
+            Elevator elevator = new Elevator(i, randomFloor(random),
+                    new SameDirectionNearestFirstPriorityStrategy(FLOOR_NUM), context);
+            elevator.setIndex(index);
+            elevatorList.add(elevator);
+        }
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList,
+                new IndexedDispatchStrategy(index));
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+        building.setDispatcher(dispatcher);
+        for (Elevator elevator : elevatorList) {
+            if (elevator.getId() % 4 == 0) {
+                continue;
+            }
+            for (int j = 0; j < 3; j++) {
+                elevator.receive(Task.generate(randomFloor(random), Direction.values()[random.nextInt(3)]));
+            }
+            elevator.step();
+        }
+        return elevatorList;
+    }
+
+    private Floor randomFloor(Random random) {
+        return building.getFloor(1 + random.nextInt(FLOOR_NUM));
+    }
+}
@@ -0,0 +1,87 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.simulation.ThreadFactories;
+import biz.jared.simulation.WallClock;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedDispatcherTest {
+    private SimulationContext context;
+    private List<Floor> floorList;
+    private List<Elevator> elevatorList;
+    private ShardedDispatcher dispatcher;
+
+    @BeforeMethod
+    public void setUp() {
+        context = new SimulationContext(new SimulationConfig(10, 4, 2, 0, 10), new WallClock());
+
+        floorList = new Building(10).getFloorList();
+        elevatorList = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            elevatorList.add(new Elevator(i, floorList.get(0), new SameDirectionNearestFirstPriorityStrategy(10),
+                    context));
+        }
+        //两个分片：1~5楼归电梯0、2，6~10楼归电梯1、3
+        dispatcher = new ShardedDispatcher(context, elevatorList, new PriorityFirstDispatchStrategy(), 2,
+                ThreadFactories.platform("test-dispatcher-thread-"));
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        dispatcher.onNoElevatorLeft();
+    }
+
+    @Test
+    public void testDispatchInsideShard() throws Exception {
+        Task low = Task.generate(floorList.get(1), Direction.UP);
+        Task high = Task.generate(floorList.get(8), Direction.UP);
+        dispatcher.dispatch(low);
+        dispatcher.dispatch(high);
+
+        assertThat(awaitReceiver(low).getId()).isIn(0, 2);
+        assertThat(awaitReceiver(high).getId()).isIn(1, 3);
+    }
+
+    @Test
+    public void testFallbackToOtherShard() throws Exception {
+        dispatcher.quit(elevatorList.get(0));
+        dispatcher.quit(elevatorList.get(2));
+        Task low = Task.generate(floorList.get(1), Direction.UP);
+        dispatcher.dispatch(low);
+
+        assertThat(awaitReceiver(low).getId()).isIn(1, 3);
+    }
+
+    @Test
+    public void testQuitAll() {
+        elevatorList.forEach(dispatcher::quit);
+        assertThat(context.getLatch().getCount()).isZero();
+        //所有电梯都退出后不再接收任务
+        dispatcher.dispatch(Task.generate(floorList.get(1), Direction.UP));
+        assertThat(elevatorList).allMatch(elevator -> elevator.getTaskQueue().isEmpty());
+    }
+
+    private Elevator awaitReceiver(Task task) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            for (Elevator elevator : elevatorList) {
+                if (elevator.getTaskQueue().contains(task)) {
+                    return elevator;
+                }
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("task not dispatched: " + task);
+    }
+}
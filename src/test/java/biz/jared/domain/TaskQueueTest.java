@@ -0,0 +1,42 @@
+package biz.jared.domain;
+
+import biz.jared.domain.enumeration.Direction;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TaskQueueTest {
+    /**
+     * 模拟电梯所在楼层，优先级 = 任务楼层和电梯楼层的距离
+     */
+    private int elevatorFloorNo = 1;
+    private TaskQueue taskQueue = new TaskQueue(task -> Math.abs(task.getSrcFloor().getFloorNo() - elevatorFloorNo));
+
+    @Test
+    public void testPollByCurrentPriority() throws Exception {
+        Task t3 = Task.generate(new Floor(3), Direction.UP);
+        Task t8 = Task.generate(new Floor(8), Direction.UP);
+        taskQueue.offer(t8);
+        taskQueue.offer(t3);
+        //电梯已经到9楼了，优先级要按取任务时的楼层算
+        elevatorFloorNo = 9;
+        assertThat(taskQueue.poll()).isSameAs(t8);
+        assertThat(taskQueue.poll(1, TimeUnit.MILLISECONDS)).isSameAs(t3);
+        assertThat(taskQueue.poll(1, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    public void testContains() {
+        Floor floor = new Floor(5);
+        taskQueue.offer(Task.generate(floor, Direction.UP));
+        assertThat(taskQueue.contains(Task.generate(floor, Direction.UP))).isTrue();
+        //NONE方向的任务和所有方向的任务都equal
+        assertThat(taskQueue.contains(Task.generate(floor, Direction.NONE))).isTrue();
+        assertThat(taskQueue.contains(Task.generate(floor, Direction.DOWN))).isFalse();
+        assertThat(taskQueue.remove(Task.generate(floor, Direction.UP))).isTrue();
+        assertThat(taskQueue.contains(Task.generate(floor, Direction.UP))).isFalse();
+        assertThat(taskQueue).isEmpty();
+    }
+}
@@ -0,0 +1,193 @@
+package biz.jared.domain;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.metrics.ElevatorMetrics;
+import biz.jared.metrics.PassengerMetrics;
+import biz.jared.simulation.RandomUserGenerator;
+import biz.jared.simulation.SteppedSimulation;
+import biz.jared.simulation.VirtualClock;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TopologyTest {
+
+    @Test
+    public void testParse() {
+        Topology topology = Topology.parse("1,60:2; 1-60:3; 60-120:3", 120, 8);
+        assertThat(topology.getBankList()).hasSize(3);
+        assertThat(topology.getBankList().get(0).toString()).isEqualTo("Bank{index=0, floors=1,60}");
+        assertThat(topology.bankOf(1).getIndex()).isEqualTo(0);
+        assertThat(topology.bankOf(2).getIndex()).isEqualTo(1);
+        assertThat(topology.bankOf(7).getIndex()).isEqualTo(2);
+        //不写电梯数时轮流分
+        assertThat(Topology.parse("1-60;60-120", 120, 5).bankOf(3).getIndex()).isEqualTo(1);
+
+        Bank shuttle = topology.bankOf(0);
+        assertThat(shuttle.next(1, Direction.UP)).isEqualTo(60);
+        assertThat(shuttle.next(30, Direction.DOWN)).isEqualTo(1);
+        assertThat(shuttle.next(60, Direction.UP)).isEqualTo(0);
+        Bank high = topology.bankOf(7);
+        assertThat(high.getLowestFloor()).isEqualTo(60);
+        assertThat(high.next(60, Direction.DOWN)).isEqualTo(0);
+        assertThat(high.next(80, Direction.UP)).isEqualTo(81);
+    }
+
+    @Test
+    public void testRoute() {
+        Topology topology = Topology.parse("1,60:2;1-60:3;60-120:3", 120, 8);
+        //不用换乘
+        assertThat(topology.nextLeg(1, 30)).isEqualTo(30);
+        assertThat(topology.nextLeg(1, 60)).isEqualTo(60);
+        assertThat(topology.nextLeg(70, 120)).isEqualTo(120);
+        //在空中大堂换乘
+        assertThat(topology.nextLeg(1, 100)).isEqualTo(60);
+        assertThat(topology.nextLeg(30, 100)).isEqualTo(60);
+        assertThat(topology.nextLeg(100, 1)).isEqualTo(60);
+        assertThat(topology.nextLeg(60, 100)).isEqualTo(100);
+        //中区从大堂直达，去低区要在两个区都停的40层换乘，比回大堂近
+        Topology zoned = Topology.parse("1-40;1,40-80", 80, 2);
+        assertThat(zoned.nextLeg(60, 30)).isEqualTo(40);
+        assertThat(zoned.nextLeg(60, 1)).isEqualTo(1);
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThatThrownBy(() -> Topology.parse("1-50;60-120", 120, 2))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("floor 51 is not served");
+        assertThatThrownBy(() -> Topology.parse("1-60;61-120", 120, 2))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("can't be reached");
+        assertThatThrownBy(() -> Topology.parse("1-60:2;60-120:2", 120, 5))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("add up to 5");
+        assertThatThrownBy(() -> Topology.parse("1-60;60-121", 120, 2))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("invalid floors");
+        assertThatThrownBy(() -> Topology.parse("1;1-120", 120, 2))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("at least 2");
+    }
+
+    @Test
+    public void testCandidates() {
+        Building building = new Building(120);
+        building.setTopology(Topology.parse("1,60:1;1-60:1;60-120:1", 120, 3));
+        SimulationContext context = new SimulationContext(new SimulationConfig(120, 3, 10, 0, 10), new VirtualClock());
+        List<Elevator> elevatorList = elevators(building, context);
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList,
+                new PriorityFirstDispatchStrategy());
+
+        //大堂去空中大堂，穿梭梯和低区都能去
+        assertThat(dispatcher.candidates(Task.generate(building.getFloor(1), building.getFloor(60))))
+                .containsExactly(elevatorList.get(0), elevatorList.get(1));
+        assertThat(dispatcher.candidates(Task.generate(building.getFloor(1), building.getFloor(30))))
+                .containsExactly(elevatorList.get(1));
+        assertThat(dispatcher.candidates(Task.generate(building.getFloor(90), Direction.DOWN)))
+                .containsExactly(elevatorList.get(2));
+        //穿梭梯退出后只剩低区
+        dispatcher.quit(elevatorList.get(0));
+        assertThat(dispatcher.candidates(Task.generate(building.getFloor(1), building.getFloor(60))))
+                .containsExactly(elevatorList.get(1));
+    }
+
+    @Test
+    public void testTransferJourney() {
+        VirtualClock clock = new VirtualClock();
+        SimulationContext context = new SimulationContext(new SimulationConfig(120, 3, 10, 0, 10), clock);
+        Building building = new Building(120);
+        //大堂只有穿梭梯停
+        building.setTopology(Topology.parse("1,60:1;2-60:1;60-120:1", 120, 3));
+        List<Elevator> elevatorList = elevators(building, context);
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList,
+                new PriorityFirstDispatchStrategy());
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+        building.setDispatcher(dispatcher);
+        building.getFloor(1).add(new User("lucy0", building.getFloor(100), clock.ticker()), Direction.UP);
+        new SteppedSimulation(context, elevatorList, dispatcher,
+                new RandomUserGenerator(building.getFloorList(), 0, new Random(1), clock.ticker())).run();
+
+        //穿梭梯一次直达空中大堂，高区电梯等着换乘的人来，不会先退出
+        ElevatorMetrics shuttle = elevatorList.get(0).getMetrics();
+        assertThat(shuttle.getMoveDistance()).isEqualTo(59);
+        assertThat(shuttle.getStops()).isEqualTo(2);
+        assertThat(elevatorList.get(1).getMetrics().getMoveDistance()).isZero();
+        assertThat(elevatorList.get(2).getMetrics().getMoveDistance()).isEqualTo(40);
+        PassengerMetrics passengerMetrics = context.getMetrics().getPassengerMetrics();
+        assertThat(passengerMetrics.getTransfers()).isEqualTo(1);
+        assertThat(passengerMetrics.getWaitTime().getCount()).isEqualTo(2);
+        assertThat(passengerMetrics.getRideTime().getCount()).isEqualTo(2);
+        //直达跨过的楼层照样每层耗一个时间单位，全程从第一次等电梯算到最后走出电梯
+        assertThat(passengerMetrics.getJourneyTime().getCount()).isEqualTo(1);
+        assertThat(passengerMetrics.getJourneyTime().getTotal())
+                .isEqualTo(passengerMetrics.getWaitTime().getTotal() + passengerMetrics.getRideTime().getTotal())
+                .isGreaterThanOrEqualTo((59 + 40) * 10);
+    }
+
+    @Test(timeOut = 60_000)
+    public void testTransferBatches() {
+        VirtualClock clock = new VirtualClock();
+        SimulationContext context = new SimulationContext(new SimulationConfig(120, 3, 10, 0, 10), clock);
+        Building building = new Building(120);
+        building.setTopology(Topology.parse("1,60:1;2-60:1;60-120:1", 120, 3));
+        List<Elevator> elevatorList = elevators(building, context);
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList,
+                new PriorityFirstDispatchStrategy());
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+        building.setDispatcher(dispatcher);
+        for (int i = 0; i < 25; i++) {
+            building.getFloor(1).add(new User("lucy" + i, building.getFloor(100), clock.ticker()), Direction.UP);
+        }
+        new SteppedSimulation(context, elevatorList, dispatcher,
+                new RandomUserGenerator(building.getFloorList(), 0, new Random(1), clock.ticker())).run();
+
+        //穿梭梯要跑三趟，大堂还有人排着时高区电梯不能先退出
+        PassengerMetrics passengerMetrics = context.getMetrics().getPassengerMetrics();
+        assertThat(passengerMetrics.getTransfers()).isEqualTo(25);
+        assertThat(passengerMetrics.getJourneyTime().getCount()).isEqualTo(25);
+        assertThat(elevatorList.get(0).getMetrics().getStops()).isGreaterThanOrEqualTo(6);
+    }
+
+    @Test(timeOut = 60_000)
+    public void testUnservedCall() {
+        VirtualClock clock = new VirtualClock();
+        SimulationContext context = new SimulationContext(new SimulationConfig(120, 3, 10, 0, 10), clock);
+        Building building = new Building(120);
+        building.setTopology(Topology.parse("1,60:1;2-60:1;60-120:1", 120, 3));
+        List<Elevator> elevatorList = elevators(building, context);
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList,
+                new PriorityFirstDispatchStrategy());
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+        building.setDispatcher(dispatcher);
+        //高区唯一的电梯已经退出
+        elevatorList.get(2).quit();
+        building.getFloor(1).add(new User("lucy0", building.getFloor(100), clock.ticker()), Direction.UP);
+        building.getFloor(1).add(new User("lucy1", building.getFloor(30), clock.ticker()), Direction.UP);
+        new SteppedSimulation(context, elevatorList.subList(0, 2), dispatcher,
+                new RandomUserGenerator(building.getFloorList(), 0, new Random(1), clock.ticker())).run();
+
+        //到了空中大堂没有电梯去高区，这个呼叫记下来、人走掉，模拟照样结束
+        assertThat(context.getMetrics().getUnservedCalls()).isEqualTo(1);
+        assertThat(context.getMetrics().getAbandonedUsers()).isEqualTo(1);
+        assertThat(building.getFloor(60).getWaitingUsers(Direction.UP)).isEmpty();
+        assertThat(context.getMetrics().getPassengerMetrics().getJourneyTime().getCount()).isEqualTo(1);
+    }
+
+    private static List<Elevator> elevators(Building building, SimulationContext context) {
+        Topology topology = building.getTopology();
+        List<Elevator> elevatorList = new ArrayList<>();
+        for (int i = 0; i < context.getConfig().getElevatorNum(); i++) {
+            Bank bank = topology.bankOf(i);
+            Elevator elevator = new Elevator(i, building.getFloor(bank.getLowestFloor()),
+                    new SameDirectionNearestFirstPriorityStrategy(building.getFloorNum()), context);
+            elevator.setBank(bank);
+            elevatorList.add(elevator);
+        }
+        return elevatorList;
+    }
+}
@@ -1,5 +1,8 @@
 package biz.jared.domain;
 
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.simulation.WallClock;
 import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
 import org.testng.annotations.Test;
 
@@ -12,9 +15,10 @@ public class UserTest {
 //    @Test(dependsOnMethods = "testSelect")
     public void testEnterElevator() throws Exception {
         System.out.println("EnterElevator");
-        user.getStopwatch().start();
+        user.startWaiting();
 
-        Elevator elevator = new Elevator(1, new Floor(3), new SameDirectionNearestFirstPriorityStrategy());
+        Elevator elevator = new Elevator(1, new Floor(3), new SameDirectionNearestFirstPriorityStrategy(30),
+                new SimulationContext(SimulationConfig.DEFAULT, new WallClock()));
         user.enterElevator(elevator);
     }
 
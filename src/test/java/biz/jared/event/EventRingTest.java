@@ -0,0 +1,77 @@
+package biz.jared.event;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventRingTest {
+
+    @Test
+    public void testRecordLayout() {
+        EventRing ring = new EventRing(3);
+        assertThat(ring.capacity()).isEqualTo(4);
+        ring.publish(Long.MAX_VALUE, EventType.REDISPATCH, 7, 30, -1, Long.MIN_VALUE);
+        List<String> events = new ArrayList<>();
+        assertThat(ring.drain((time, type, elevatorId, floorNo, arg, value) ->
+                events.add(time + " " + type + " " + elevatorId + " " + floorNo + " " + arg + " " + value)))
+                .isEqualTo(1);
+        assertThat(events).containsExactly(Long.MAX_VALUE + " REDISPATCH 7 30 -1 " + Long.MIN_VALUE);
+        assertThat(ring.drain((time, type, elevatorId, floorNo, arg, value) -> events.add("")))
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void testConcurrentPublish() throws InterruptedException {
+        int producerNum = 4;
+        int eventNum = 20000;
+        //缓冲比事件少得多，写的一方要反复等渲染线程腾出槽位
+        EventRing ring = new EventRing(64);
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < producerNum; i++) {
+            int elevatorId = i;
+            Thread producer = new Thread(() -> {
+                for (int j = 0; j < eventNum; j++) {
+                    ring.publish(j, EventType.MOVE, elevatorId, j % 30, j, j);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        //每部电梯的事件按写入顺序读出，一条不少
+        long[] next = new long[producerNum];
+        EventHandler handler = (time, type, elevatorId, floorNo, arg, value) -> {
+            assertThat(time).isEqualTo(next[elevatorId]);
+            assertThat(floorNo).isEqualTo((int) (time % 30));
+            next[elevatorId]++;
+        };
+        long drained = 0;
+        while (drained < (long) producerNum * eventNum) {
+            drained += ring.drain(handler);
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertThat(next).containsOnly(eventNum);
+        assertThat(ring.backlog()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCloseRendersEnabledTypes() throws InterruptedException {
+        List<EventType> types = new ArrayList<>();
+        EventLog eventLog = EventLog.start(EventType.parse("STOP, BOARD"), 16,
+                (time, type, elevatorId, floorNo, arg, value) -> types.add(type));
+        for (int i = 0; i < 100; i++) {
+            eventLog.record(i, EventType.MOVE, 1, i, 0, 0);
+            eventLog.record(i, EventType.STOP, 1, i, 0, 0);
+            eventLog.record(i, EventType.BOARD, 1, i, 0, 0);
+        }
+        eventLog.close();
+        assertThat(types).hasSize(200).doesNotContain(EventType.MOVE);
+        assertThat(EventLog.start(EventType.parse("NONE"), 16, null)).isSameAs(EventLog.DISABLED);
+        assertThat(EventType.parse(null)).isEqualTo(EnumSet.allOf(EventType.class));
+    }
+}
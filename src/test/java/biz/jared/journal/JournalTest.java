@@ -0,0 +1,101 @@
+package biz.jared.journal;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.Building;
+import biz.jared.domain.Elevator;
+import biz.jared.domain.Floor;
+import biz.jared.domain.SteppedDispatcher;
+import biz.jared.event.EventLog;
+import biz.jared.event.EventType;
+import biz.jared.metrics.ElevatorMetrics;
+import biz.jared.metrics.MetricsRegistry;
+import biz.jared.metrics.PassengerMetrics;
+import biz.jared.simulation.RandomUserGenerator;
+import biz.jared.simulation.SteppedSimulation;
+import biz.jared.simulation.VirtualClock;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JournalTest {
+
+    @Test
+    public void testSegmentRoll() throws IOException {
+        Path directory = Files.createTempDirectory("journal");
+        EventType[] types = EventType.values();
+        List<String> replayed = new ArrayList<>();
+        try (JournalWriter writer = new JournalWriter(directory, 5)) {
+            for (int i = 0; i < 23; i++) {
+                writer.write(i * 10L, types[i % types.length], i % 3 - 1, i + 1, -i, Long.MAX_VALUE - i);
+            }
+            //还没关闭时已经写进去的记录也能读出来
+            assertThat(JournalReader.replay(directory, (time, type, elevatorId, floorNo, arg, value) -> {
+            })).isEqualTo(23);
+        }
+        assertThat(JournalReader.replay(directory, (time, type, elevatorId, floorNo, arg, value) ->
+                replayed.add(time + " " + type + " " + elevatorId + " " + floorNo + " " + arg + " " + value)))
+                .isEqualTo(23);
+        assertThat(replayed.get(22)).isEqualTo("220 " + types[22 % types.length] + " 0 23 -22 "
+                + (Long.MAX_VALUE - 22));
+        //5段，最后一段截掉没写的部分
+        assertThat(Files.size(EventJournal.segment(directory, 4)))
+                .isEqualTo(EventJournal.HEADER_SIZE + 3 * EventJournal.RECORD_SIZE);
+        assertThat(Files.exists(EventJournal.segment(directory, 5))).isFalse();
+    }
+
+    @Test
+    public void testReplayMatchesSimulation() throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("journal");
+        VirtualClock clock = new VirtualClock();
+        MetricsRegistry live;
+        try (JournalWriter writer = new JournalWriter(directory)) {
+            EventLog eventLog = EventLog.start(EnumSet.allOf(EventType.class), 64, writer);
+            SimulationContext context = new SimulationContext(new SimulationConfig(10, 3, 2, 40, 10, 20), clock,
+                    eventLog);
+            List<Floor> floorList = new Building(10).getFloorList();
+            List<Elevator> elevatorList = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                elevatorList.add(new Elevator(i, floorList.get(0), new SameDirectionNearestFirstPriorityStrategy(10),
+                        context));
+            }
+            SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList,
+                    new PriorityFirstDispatchStrategy());
+            elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+            floorList.forEach(floor -> floor.setDispatcher(dispatcher));
+            new SteppedSimulation(context, elevatorList, dispatcher,
+                    new RandomUserGenerator(floorList, 40, new Random(3), clock.ticker())).run();
+            eventLog.close();
+            live = context.getMetrics();
+        }
+
+        MetricsReplay replay = JournalTool.replay(directory);
+        assertThat(replay.getArrivals()).isEqualTo(40);
+        MetricsRegistry replayed = replay.getRegistry();
+        assertThat(replayed.getElevatorMetrics()).hasSameSizeAs(live.getElevatorMetrics());
+        for (ElevatorMetrics metrics : live.getElevatorMetrics()) {
+            ElevatorMetrics other = replayed.getElevatorMetrics().stream()
+                    .filter(m -> m.getElevatorId() == metrics.getElevatorId()).findFirst().get();
+            assertThat(other.getMoveDistance()).isEqualTo(metrics.getMoveDistance());
+            assertThat(other.getStops()).isEqualTo(metrics.getStops());
+            assertThat(other.getDoorCycles()).isEqualTo(metrics.getDoorCycles());
+            assertThat(other.getLoadFactor(2)).isEqualTo(metrics.getLoadFactor(2));
+        }
+        PassengerMetrics expected = live.getPassengerMetrics();
+        PassengerMetrics actual = replayed.getPassengerMetrics();
+        assertThat(actual.getWaitTime().getCount()).isEqualTo(expected.getWaitTime().getCount()).isPositive();
+        assertThat(actual.getWaitTime().getTotal()).isEqualTo(expected.getWaitTime().getTotal());
+        assertThat(actual.getJourneyTime().getTotal()).isEqualTo(expected.getJourneyTime().getTotal());
+        assertThat(replay.getEndTime()).isLessThanOrEqualTo(clock.now());
+    }
+}
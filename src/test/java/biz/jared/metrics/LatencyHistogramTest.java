@@ -0,0 +1,55 @@
+package biz.jared.metrics;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucket() {
+        //每个值都落在自己桶的范围内，相邻桶首尾相接
+        for (long value : new long[]{0, 1, 63, 64, 65, 127, 128, 1000, 123456789L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertThat(LatencyHistogram.highestValueOf(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(LatencyHistogram.highestValueOf(index - 1)).isLessThan(value);
+            }
+        }
+        assertThat(LatencyHistogram.indexOf(Long.MAX_VALUE)).isEqualTo(59 * 32 - 1);
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getMean()).isEqualTo(500.5);
+        assertThat(histogram.getMax()).isEqualTo(1000);
+        //相对误差不超过 1/32
+        assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(500, within(500 / 32.0));
+        assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(990, within(990 / 32.0));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(1000);
+    }
+
+    @Test
+    public void testAdd() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(20);
+        b.record(3000);
+        a.add(b);
+        assertThat(a.getCount()).isEqualTo(3);
+        assertThat(a.getTotal()).isEqualTo(3030);
+        assertThat(a.getMax()).isEqualTo(3000);
+        assertThat(a.getValueAtPercentile(50)).isEqualTo(20);
+
+        a.reset();
+        assertThat(a.getCount()).isZero();
+        assertThat(a.getValueAtPercentile(99)).isZero();
+    }
+}
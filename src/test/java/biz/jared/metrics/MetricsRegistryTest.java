@@ -0,0 +1,62 @@
+package biz.jared.metrics;
+
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testAggregate() {
+        MetricsRegistry registry = new MetricsRegistry();
+        ElevatorMetrics e0 = new ElevatorMetrics(0);
+        ElevatorMetrics e1 = new ElevatorMetrics(1);
+        registry.register(e0);
+        registry.register(e1);
+
+        e0.recordMove(0);
+        e0.recordMove(2);
+        e0.recordStop(1);
+        e0.recordStop(0);
+        e0.getPassengerMetrics().recordWait(30);
+        e1.recordMove(1);
+        e1.getPassengerMetrics().recordWait(10);
+        e1.getPassengerMetrics().recordRide(10, 20);
+
+        assertThat(registry.getTotalMoveDistance()).isEqualTo(3);
+        assertThat(e0.getStops()).isEqualTo(2);
+        assertThat(e0.getDoorCycles()).isEqualTo(1);
+        assertThat(e0.getLoadFactor(2)).isEqualTo(0.5);
+        PassengerMetrics passengerMetrics = registry.getPassengerMetrics();
+        assertThat(passengerMetrics.getWaitTime().getTotal()).isEqualTo(40);
+        assertThat(passengerMetrics.getJourneyTime().getMax()).isEqualTo(30);
+
+        registry.reset();
+        assertThat(registry.getElevatorMetrics()).isEmpty();
+        assertThat(registry.getTotalMoveDistance()).isZero();
+        assertThat(registry.getPassengerMetrics().getWaitTime().getCount()).isZero();
+    }
+
+    @Test
+    public void testPassengerStripes() {
+        //乘客时长不按电梯分，一万部电梯共用的份数不超过CPU核数的两倍
+        MetricsRegistry registry = new MetricsRegistry();
+        Set<PassengerMetrics> stripes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int id = 0; id < 10_000; id++) {
+            ElevatorMetrics metrics = new ElevatorMetrics(id);
+            registry.register(metrics);
+            stripes.add(metrics.getPassengerMetrics());
+            metrics.getPassengerMetrics().recordWait(id);
+        }
+        assertThat(stripes.size()).isLessThanOrEqualTo(Math.max(1, Runtime.getRuntime().availableProcessors() * 2));
+        assertThat(registry.getPassengerMetrics().getWaitTime().getCount()).isEqualTo(10_000);
+        assertThat(registry.getPassengerMetrics().getWaitTime().getMax()).isEqualTo(9_999);
+        assertThatThrownBy(() -> new ElevatorMetrics(0).getPassengerMetrics())
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,19 @@
+package biz.jared.metrics;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class SampleStatisticsTest {
+
+    @Test
+    public void testConfidenceInterval() {
+        double[] samples = {2, 4, 4, 4, 5, 5, 7, 9};
+        assertThat(SampleStatistics.mean(samples)).isEqualTo(5);
+        assertThat(SampleStatistics.standardDeviation(samples)).isCloseTo(2.138, within(0.001));
+        //自由度7的t分位数 2.365
+        assertThat(SampleStatistics.halfWidth95(samples)).isCloseTo(2.365 * 2.138 / Math.sqrt(8), within(0.001));
+        assertThat(SampleStatistics.halfWidth95(new double[]{1})).isZero();
+    }
+}
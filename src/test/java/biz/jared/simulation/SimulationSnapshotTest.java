@@ -0,0 +1,136 @@
+package biz.jared.simulation;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.Building;
+import biz.jared.domain.Elevator;
+import biz.jared.domain.ElevatorIndex;
+import biz.jared.domain.SteppedDispatcher;
+import biz.jared.metrics.MetricsRegistry;
+import biz.jared.strategy.DispatchStrategy;
+import biz.jared.strategy.IndexedDispatchStrategy;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import biz.jared.traffic.RateProfile;
+import biz.jared.traffic.TrafficGenerator;
+import biz.jared.traffic.TrafficPattern;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SimulationSnapshotTest {
+    private static final SimulationConfig CONFIG = new SimulationConfig(15, 3, 4, 0, 10, 20);
+    private static final long FORK_TIME = 40_000;
+
+    @Test
+    public void testRestoreFromFileContinuesTraffic() throws IOException {
+        SimulationContext whole = new SimulationContext(CONFIG, new VirtualClock());
+        try (SteppedSimulation simulation = newSimulation(whole, new PriorityFirstDispatchStrategy())) {
+            simulation.run();
+        }
+
+        SimulationContext before = new SimulationContext(CONFIG, new VirtualClock());
+        Path path = Files.createTempFile("simulation", ".snapshot");
+        try {
+            try (SteppedSimulation simulation = newSimulation(before, new PriorityFirstDispatchStrategy())) {
+                assertThat(simulation.runUntil(FORK_TIME)).isTrue();
+                simulation.snapshot().write(path);
+            }
+            SimulationSnapshot snapshot = SimulationSnapshot.read(path);
+            assertThat(snapshot.getTime()).isEqualTo(FORK_TIME);
+
+            SimulationContext after = new SimulationContext(CONFIG, new VirtualClock());
+            try (SteppedSimulation simulation = newSimulation(after, new PriorityFirstDispatchStrategy())) {
+                simulation.restore(snapshot);
+                simulation.run();
+            }
+            assertThat(after.getClock().now()).isEqualTo(whole.getClock().now());
+            assertSum(before.getMetrics(), after.getMetrics(), whole.getMetrics());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testForkUnderIndexedDispatch() throws IOException {
+        SimulationContext before = new SimulationContext(CONFIG, new VirtualClock());
+        SimulationSnapshot snapshot;
+        try (SteppedSimulation simulation = newSimulation(before, new PriorityFirstDispatchStrategy())) {
+            simulation.runUntil(FORK_TIME);
+            snapshot = simulation.snapshot();
+        }
+        SimulationContext whole = new SimulationContext(CONFIG, new VirtualClock());
+        try (SteppedSimulation simulation = newSimulation(whole, new PriorityFirstDispatchStrategy())) {
+            simulation.run();
+        }
+
+        //位置索引要跟着恢复出来的电梯位置走，否则分不出电梯、模拟跑不完
+        SimulationContext after = new SimulationContext(CONFIG, new VirtualClock());
+        try (SteppedSimulation simulation = newSimulation(after,
+                new IndexedDispatchStrategy(new ElevatorIndex(CONFIG.getFloorNum())))) {
+            simulation.restore(snapshot);
+            simulation.run();
+        }
+        assertThat(before.getMetrics().getPassengerMetrics().getWaitTime().getCount()
+                + after.getMetrics().getPassengerMetrics().getWaitTime().getCount())
+                .isEqualTo(whole.getMetrics().getPassengerMetrics().getWaitTime().getCount());
+    }
+
+    @Test
+    public void testRestoreAfterRunning() throws IOException {
+        SimulationContext context = new SimulationContext(CONFIG, new VirtualClock());
+        try (SteppedSimulation simulation = newSimulation(context, new PriorityFirstDispatchStrategy())) {
+            simulation.runUntil(100);
+            SimulationSnapshot snapshot = simulation.snapshot();
+            simulation.runUntil(200);
+            assertThatThrownBy(() -> simulation.restore(snapshot)).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    /**
+     * 15层3部电梯，早高峰交通流跑2分钟，每次都用同样的种子
+     */
+    private SteppedSimulation newSimulation(SimulationContext context, DispatchStrategy dispatchStrategy) {
+        Building building = new Building(CONFIG.getFloorNum());
+        List<Elevator> elevatorList = new ArrayList<>();
+        for (int i = 0; i < CONFIG.getElevatorNum(); i++) {
+            elevatorList.add(new Elevator(i, building.getFloor(1),
+                    new SameDirectionNearestFirstPriorityStrategy(CONFIG.getFloorNum()), context));
+        }
+        if (dispatchStrategy instanceof IndexedDispatchStrategy) {
+            ElevatorIndex index = ((IndexedDispatchStrategy) dispatchStrategy).getIndex();
+            elevatorList.forEach(elevator -> elevator.setIndex(index));
+        }
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList, dispatchStrategy);
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+        building.setDispatcher(dispatcher);
+        TrafficGenerator traffic = new TrafficGenerator(TrafficPattern.UP_PEAK, CONFIG.getFloorNum(),
+                RateProfile.peak(40, 120_000), new Random(5));
+        return new SteppedSimulation(context, elevatorList, dispatcher,
+                new TraceUserGenerator(building.getFloorList(), traffic, context.getClock().ticker()));
+    }
+
+    /**
+     * 快照前后的指标加起来和一口气跑完的一样
+     */
+    private static void assertSum(MetricsRegistry before, MetricsRegistry after, MetricsRegistry whole) {
+        assertThat(before.getTotalMoveDistance() + after.getTotalMoveDistance())
+                .isEqualTo(whole.getTotalMoveDistance());
+        assertThat(before.getPassengerMetrics().getWaitTime().getCount()).isPositive();
+        assertThat(after.getPassengerMetrics().getWaitTime().getCount()).isPositive();
+        assertThat(before.getPassengerMetrics().getWaitTime().getTotal()
+                + after.getPassengerMetrics().getWaitTime().getTotal())
+                .isEqualTo(whole.getPassengerMetrics().getWaitTime().getTotal());
+        assertThat(before.getPassengerMetrics().getRideTime().getTotal()
+                + after.getPassengerMetrics().getRideTime().getTotal())
+                .isEqualTo(whole.getPassengerMetrics().getRideTime().getTotal());
+    }
+}
@@ -0,0 +1,51 @@
+package biz.jared.simulation;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.Building;
+import biz.jared.domain.Elevator;
+import biz.jared.domain.Floor;
+import biz.jared.domain.SteppedDispatcher;
+import biz.jared.metrics.PassengerMetrics;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.strategy.SameDirectionNearestFirstPriorityStrategy;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SteppedSimulationTest {
+    @Test
+    public void testSameSeedSameResult() {
+        long[] first = simulate(7);
+        long[] second = simulate(7);
+        assertThat(first[0]).isPositive();
+        assertThat(second).containsExactly(first);
+    }
+
+    private long[] simulate(long seed) {
+        Random random = new Random(seed);
+        VirtualClock clock = new VirtualClock();
+        SimulationContext context = new SimulationContext(new SimulationConfig(10, 3, 2, 20, 10), clock);
+
+        List<Floor> floorList = new Building(10).getFloorList();
+        List<Elevator> elevatorList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            elevatorList.add(new Elevator(i, floorList.get(0), new SameDirectionNearestFirstPriorityStrategy(10),
+                    context));
+        }
+        SteppedDispatcher dispatcher = new SteppedDispatcher(context, elevatorList,
+                new PriorityFirstDispatchStrategy());
+        elevatorList.forEach(elevator -> elevator.setDispatcher(dispatcher));
+        floorList.forEach(floor -> floor.setDispatcher(dispatcher));
+
+        new SteppedSimulation(context, elevatorList, dispatcher,
+                new RandomUserGenerator(floorList, 20, random, clock.ticker())).run();
+        PassengerMetrics passengerMetrics = context.getMetrics().getPassengerMetrics();
+        return new long[]{context.getMetrics().getTotalMoveDistance(), passengerMetrics.getWaitTime().getTotal(),
+                passengerMetrics.getRideTime().getTotal(), clock.now()};
+    }
+}
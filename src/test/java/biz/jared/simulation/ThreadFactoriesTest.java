@@ -0,0 +1,34 @@
+package biz.jared.simulation;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThreadFactoriesTest {
+
+    @Test
+    public void testPlatform() throws InterruptedException {
+        assertRunnable(ThreadFactories.platform("platform-thread-"), "platform-thread-");
+    }
+
+    @Test
+    public void testVirtual() throws InterruptedException {
+        //不支持虚拟线程的运行时退化为平台线程，照样按前缀命名
+        assertRunnable(ThreadFactories.virtual("virtual-thread-"), "virtual-thread-");
+    }
+
+    private static void assertRunnable(ThreadFactory factory, String prefix) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        Thread first = factory.newThread(latch::countDown);
+        Thread second = factory.newThread(latch::countDown);
+        assertThat(first.getName()).isEqualTo(prefix + 0);
+        assertThat(second.getName()).isEqualTo(prefix + 1);
+        first.start();
+        second.start();
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+}
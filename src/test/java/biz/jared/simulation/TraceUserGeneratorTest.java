@@ -0,0 +1,107 @@
+package biz.jared.simulation;
+
+import biz.jared.SimulationConfig;
+import biz.jared.SimulationContext;
+import biz.jared.domain.Building;
+import biz.jared.domain.SteppedDispatcher;
+import biz.jared.domain.enumeration.Direction;
+import biz.jared.strategy.PriorityFirstDispatchStrategy;
+import biz.jared.trace.ArrivalTraceReader;
+import biz.jared.trace.ArrivalTraceWriter;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TraceUserGeneratorTest {
+
+    @Test
+    public void testReplayOnTime() throws IOException {
+        Path trace = Files.createTempFile("arrivals", ".trace");
+        try {
+            try (ArrivalTraceWriter writer = new ArrivalTraceWriter(trace)) {
+                writer.write(0, 3, 8, 2);
+                writer.write(25, 7, 1, 1);
+            }
+            VirtualClock clock = new VirtualClock();
+            Building building = new Building(10);
+            building.setDispatcher(new SteppedDispatcher(new SimulationContext(SimulationConfig.DEFAULT, clock),
+                    Collections.emptyList(), new PriorityFirstDispatchStrategy()));
+
+            try (TraceUserGenerator generator = new TraceUserGenerator(building.getFloorList(),
+                    new ArrivalTraceReader(trace), clock.ticker())) {
+                generator.next();
+                assertThat(generator.getGenerated()).isEqualTo(2);
+                assertThat(building.hasHallCall(3, Direction.UP)).isTrue();
+                assertThat(building.hasHallCall(7, Direction.DOWN)).isFalse();
+
+                //还没到第二条记录的时间
+                clock.elapse(20);
+                generator.next();
+                assertThat(generator.getGenerated()).isEqualTo(2);
+                assertThat(generator.hasNext()).isTrue();
+
+                clock.elapse(10);
+                generator.next();
+                assertThat(generator.getGenerated()).isEqualTo(3);
+                assertThat(building.hasHallCall(7, Direction.DOWN)).isTrue();
+                assertThat(generator.hasNext()).isFalse();
+            }
+        } finally {
+            Files.delete(trace);
+        }
+    }
+
+    @Test
+    public void testRestorePendingArrival() throws IOException {
+        Path trace = Files.createTempFile("arrivals", ".trace");
+        try {
+            try (ArrivalTraceWriter writer = new ArrivalTraceWriter(trace)) {
+                writer.write(0, 3, 8, 2);
+                writer.write(25, 7, 1, 1);
+            }
+            VirtualClock clock = new VirtualClock();
+            Building building = newBuilding(clock);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (TraceUserGenerator generator = new TraceUserGenerator(building.getFloorList(),
+                    new ArrivalTraceReader(trace), clock.ticker())) {
+                clock.elapse(20);
+                //第二条已经读出来了，但还没到时间
+                generator.next();
+                generator.save(new DataOutputStream(bytes));
+            }
+
+            VirtualClock other = new VirtualClock();
+            other.elapse(20);
+            Building otherBuilding = newBuilding(other);
+            try (TraceUserGenerator generator = new TraceUserGenerator(otherBuilding.getFloorList(),
+                    new ArrivalTraceReader(trace), other.ticker())) {
+                generator.restore(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+                assertThat(generator.getGenerated()).isEqualTo(2);
+                other.elapse(10);
+                generator.next();
+                assertThat(generator.getGenerated()).isEqualTo(3);
+                assertThat(otherBuilding.hasHallCall(7, Direction.DOWN)).isTrue();
+                assertThat(otherBuilding.hasHallCall(3, Direction.UP)).isFalse();
+                assertThat(generator.hasNext()).isFalse();
+            }
+        } finally {
+            Files.delete(trace);
+        }
+    }
+
+    private static Building newBuilding(VirtualClock clock) {
+        Building building = new Building(10);
+        building.setDispatcher(new SteppedDispatcher(new SimulationContext(SimulationConfig.DEFAULT, clock),
+                Collections.emptyList(), new PriorityFirstDispatchStrategy()));
+        return building;
+    }
+}
@@ -0,0 +1,59 @@
+package biz.jared.simulation;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VirtualClockTest {
+
+    @Test
+    public void testSleep() throws Exception {
+        VirtualClock clock = new VirtualClock();
+        clock.hold();
+        long start = System.nanoTime();
+        clock.sleep(100_000);
+        assertThat(clock.now()).isEqualTo(100_000);
+        //虚拟时间不会真的sleep
+        assertThat(System.nanoTime() - start).isLessThan(1_000_000_000L);
+        clock.release();
+    }
+
+    @Test
+    public void testWaitForAllParticipants() throws Exception {
+        VirtualClock clock = new VirtualClock();
+        clock.hold();
+        clock.hold();
+        CountDownLatch done = new CountDownLatch(1);
+        long[] wakeUpTime = new long[1];
+        new Thread(() -> {
+            try {
+                clock.sleep(30);
+                wakeUpTime[0] = clock.now();
+            } catch (InterruptedException ignored) {
+            } finally {
+                clock.release();
+                done.countDown();
+            }
+        }).start();
+        clock.sleep(10);
+        //另一个参与者还在等30，先到期的先醒
+        assertThat(clock.now()).isEqualTo(10);
+        clock.sleep(50);
+        done.await();
+        assertThat(wakeUpTime[0]).isEqualTo(30);
+        assertThat(clock.now()).isEqualTo(60);
+        clock.release();
+    }
+
+    @Test
+    public void testPollTimeout() throws Exception {
+        VirtualClock clock = new VirtualClock();
+        clock.hold();
+        assertThat(clock.poll(new LinkedBlockingQueue<String>(), 100)).isNull();
+        assertThat(clock.now()).isEqualTo(100);
+        clock.release();
+    }
+}
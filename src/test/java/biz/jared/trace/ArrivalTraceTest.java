@@ -0,0 +1,91 @@
+package biz.jared.trace;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ArrivalTraceTest {
+    private Path csv;
+    private Path trace;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        csv = Files.createTempFile("arrivals", ".csv");
+        trace = Files.createTempFile("arrivals", ".trace");
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(trace);
+    }
+
+    @Test
+    public void testReadAcrossWindows() throws IOException {
+        try (ArrivalTraceWriter writer = new ArrivalTraceWriter(trace)) {
+            for (int i = 0; i < 10; i++) {
+                writer.write(i * 100L, 1 + i % 5, 10, 1 + i % 3);
+            }
+        }
+        assertThat(Files.size(trace)).isEqualTo(ArrivalTrace.HEADER_SIZE + 10 * ArrivalTrace.RECORD_SIZE);
+
+        //每个窗口3条记录，要重新映射好几次
+        try (ArrivalTraceReader reader = new ArrivalTraceReader(trace, 3)) {
+            assertThat(reader.getRecordCount()).isEqualTo(10);
+            for (int i = 0; i < 10; i++) {
+                assertThat(reader.hasNext()).isTrue();
+                reader.next();
+                assertThat(reader.getTime()).isEqualTo(i * 100L);
+                assertThat(reader.getSrcFloorNo()).isEqualTo(1 + i % 5);
+                assertThat(reader.getTargetFloorNo()).isEqualTo(10);
+                assertThat(reader.getGroupSize()).isEqualTo(1 + i % 3);
+            }
+            assertThat(reader.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void testConvert() throws IOException {
+        Files.write(csv, Arrays.asList("time,src,target,group",
+                "2017-09-06T08:30:00.000,1,12,2",
+                "# 保安交接班",
+                "",
+                "2017-09-06 08:30:01.500,12,1"), StandardCharsets.UTF_8);
+        assertThat(TraceConverter.convert(csv, trace)).isEqualTo(2);
+
+        try (ArrivalTraceReader reader = new ArrivalTraceReader(trace)) {
+            reader.next();
+            assertThat(reader.getTime()).isZero();
+            assertThat(reader.getGroupSize()).isEqualTo(2);
+            reader.next();
+            assertThat(reader.getTime()).isEqualTo(1500);
+            assertThat(reader.getSrcFloorNo()).isEqualTo(12);
+            assertThat(reader.getTargetFloorNo()).isEqualTo(1);
+            assertThat(reader.getGroupSize()).isEqualTo(1);
+            assertThat(reader.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void testConvertRejectsTimeGoingBackwards() throws IOException {
+        Files.write(csv, Arrays.asList("1000,1,5", "900,5,1"), StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> TraceConverter.convert(csv, trace))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("line 2");
+    }
+
+    @Test
+    public void testNotATrace() throws IOException {
+        Files.write(csv, Arrays.asList("1000,1,5"), StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> new ArrivalTraceReader(csv)).isInstanceOf(IOException.class);
+    }
+}
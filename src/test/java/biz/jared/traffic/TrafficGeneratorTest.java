@@ -0,0 +1,85 @@
+package biz.jared.traffic;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+public class TrafficGeneratorTest {
+    private static final int FLOOR_NUM = 20;
+    /**
+     * 10分钟，单位毫秒
+     */
+    private static final long DURATION = 600_000;
+
+    @Test
+    public void testSameSeedSameStream() {
+        List<long[]> arrivals = drain(TrafficPattern.LUNCH, 7);
+        assertThat(arrivals).isNotEmpty().containsExactlyElementsOf(drain(TrafficPattern.LUNCH, 7));
+        assertThat(arrivals.get(0)).isNotEqualTo(drain(TrafficPattern.LUNCH, 8).get(0));
+    }
+
+    @Test
+    public void testUpPeak() {
+        List<long[]> arrivals = drain(TrafficPattern.UP_PEAK, 42);
+        //高峰每分钟100人，先升后降，10分钟期望 100 * 0.6 * 10 = 600 人
+        assertThat(arrivals.size()).isBetween(500, 700);
+        long fromLobby = arrivals.stream().filter(arrival -> arrival[1] == 1).count();
+        assertThat(fromLobby / (double) arrivals.size()).isBetween(0.78, 0.92);
+        for (int i = 0; i < arrivals.size(); i++) {
+            long[] arrival = arrivals.get(i);
+            assertThat(arrival[1]).isNotEqualTo(arrival[2]).isBetween(1L, (long) FLOOR_NUM);
+            assertThat(arrival[0]).isBetween(0L, DURATION - 1);
+            if (i > 0) {
+                assertThat(arrival[0]).isGreaterThanOrEqualTo(arrivals.get(i - 1)[0]);
+            }
+        }
+        //中间一段到达率最高
+        long middle = arrivals.stream().filter(arrival -> arrival[0] >= 240_000 && arrival[0] < 360_000).count();
+        long first = arrivals.stream().filter(arrival -> arrival[0] < 120_000).count();
+        assertThat(middle).isGreaterThan(first * 2);
+    }
+
+    @Test
+    public void testRateProfile() {
+        RateProfile profile = RateProfile.peak(100, DURATION);
+        assertThat(profile.rateAt(0)).isEqualTo(30 / 60_000.0);
+        assertThat(profile.rateAt(300_000)).isEqualTo(profile.getMaxRate());
+        assertThat(profile.rateAt(DURATION)).isZero();
+        assertThat(profile.expectedArrivals()).isCloseTo(600, offset(1e-6));
+        assertThatThrownBy(() -> new RateProfile(new long[]{10}, new double[]{1}, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testMatrixSkipsZeroWeights() {
+        double[][] weights = new double[3][3];
+        weights[2][0] = 1;
+        OriginDestinationMatrix matrix = new OriginDestinationMatrix(weights);
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            int trip = matrix.sample(random);
+            assertThat(matrix.srcFloorNo(trip)).isEqualTo(3);
+            assertThat(matrix.targetFloorNo(trip)).isEqualTo(1);
+        }
+    }
+
+    /**
+     * @return 每次到达的 {时间, 出发楼层, 目标楼层}
+     */
+    private List<long[]> drain(TrafficPattern pattern, long seed) {
+        TrafficGenerator generator = new TrafficGenerator(pattern, FLOOR_NUM, RateProfile.peak(100, DURATION),
+                new Random(seed));
+        List<long[]> arrivals = new ArrayList<>();
+        while (generator.hasNext()) {
+            generator.next();
+            arrivals.add(new long[]{generator.getTime(), generator.getSrcFloorNo(), generator.getTargetFloorNo()});
+        }
+        return arrivals;
+    }
+}